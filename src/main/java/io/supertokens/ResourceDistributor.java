@@ -16,7 +16,6 @@
 
 package io.supertokens;
 
-import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
@@ -24,16 +23,27 @@ import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nonnull;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 // the purpose of this class is to tie singleton classes to s specific main instance. So that
 // when the main instance dies, those singleton classes die too.
 
 public class ResourceDistributor {
-    private final Map<KeyClass, SingletonResource> resources = new ConcurrentHashMap<>(1);
+    // resources are grouped by their resource key, so that a lookup never has to build a KeyClass, and so that all
+    // the resources of one key can be found without going through the resources of all the other keys
+    private final Map<String, Map<ResourceKey, SingletonResource>> resources = new ConcurrentHashMap<>();
+
+    // number of resources that are set for each connectionUriDomain. This is only changed from within a compute on
+    // the resource's map entry, so it can never be out of sync with the resources map for long.
+    private final Map<String, Integer> numberOfResourcesPerConnectionUriDomain = new ConcurrentHashMap<>();
+
     private final Main main;
 
+    private static final ResourceKey BASE_TENANT_KEY = new ResourceKey(TenantIdentifier.BASE_TENANT);
+
     private static TenantIdentifier appUsedForTesting = TenantIdentifier.BASE_TENANT;
 
     public ResourceDistributor(Main main) {
@@ -52,60 +62,85 @@ public class ResourceDistributor {
 
     public SingletonResource getResource(AppIdentifier appIdentifier, @Nonnull String key)
             throws TenantOrAppNotFoundException {
-        return getResource(appIdentifier.getAsPublicTenantIdentifier(), key);
+        return getResource(new ResourceKey(appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(),
+                TenantIdentifier.DEFAULT_TENANT_ID), key);
     }
 
     public SingletonResource getResource(TenantIdentifier tenantIdentifier, @Nonnull String key)
             throws TenantOrAppNotFoundException {
+        return getResource(new ResourceKey(tenantIdentifier), key);
+    }
+
+    private SingletonResource getResource(ResourceKey resourceKey, @Nonnull String key)
+            throws TenantOrAppNotFoundException {
+        Map<ResourceKey, SingletonResource> resourcesWithKey = resources.get(key);
+
         // first we do exact match
-        SingletonResource resource = resources.get(new KeyClass(tenantIdentifier, key));
+        SingletonResource resource = resourcesWithKey == null ? null : resourcesWithKey.get(resourceKey);
         if (resource != null) {
             return resource;
         }
 
-        if (tenantIdentifier.equals(new TenantIdentifier(null, null, null))) {
+        if (resourceKey.equals(BASE_TENANT_KEY)) {
             // this means we are looking at base tenant and it's not something that
             // refreshing tenants will help with (in fact it will cause an infinite loop)
-            throw new TenantOrAppNotFoundException(tenantIdentifier);
+            throw new TenantOrAppNotFoundException(resourceKey.toTenantIdentifier());
         }
 
         // then we see if the user has configured anything to do with connectionUriDomain, and if they have,
         // then we must return null cause the user has not specifically added tenantId to it
-        for (KeyClass currKey : resources.keySet()) {
-            if (currKey.getTenantIdentifier().getConnectionUriDomain()
-                    .equals(tenantIdentifier.getConnectionUriDomain())) {
-                throw new TenantOrAppNotFoundException(tenantIdentifier);
-            }
+        if (numberOfResourcesPerConnectionUriDomain.containsKey(resourceKey.connectionUriDomain)) {
+            throw new TenantOrAppNotFoundException(resourceKey.toTenantIdentifier());
         }
 
         // if it comes here, it means that the user has not configured anything to do with
         // connectionUriDomain, and therefore we fallback on the case where connectionUriDomain is the base one.
         // This is useful when the base connectionuri can be localhost or 127.0.0.1 or anything else that's
         // not specifically configured by the dev.
-        resource = resources.get(new KeyClass(
-                new TenantIdentifier(null, tenantIdentifier.getAppId(), tenantIdentifier.getTenantId()), key));
+        resource = resourcesWithKey == null ? null : resourcesWithKey.get(new ResourceKey(
+                TenantIdentifier.DEFAULT_CONNECTION_URI, resourceKey.appId, resourceKey.tenantId));
         if (resource != null) {
             return resource;
         }
 
-        throw new TenantOrAppNotFoundException(tenantIdentifier);
+        throw new TenantOrAppNotFoundException(resourceKey.toTenantIdentifier());
     }
 
     @TestOnly
     public SingletonResource getResource(@Nonnull String key) {
-        return resources.get(new KeyClass(appUsedForTesting, key));
+        Map<ResourceKey, SingletonResource> resourcesWithKey = resources.get(key);
+        return resourcesWithKey == null ? null : resourcesWithKey.get(new ResourceKey(appUsedForTesting));
     }
 
     public SingletonResource setResource(TenantIdentifier tenantIdentifier,
                                                       @Nonnull String key,
                                                       SingletonResource resource) {
-        SingletonResource existing = resources.putIfAbsent(new KeyClass(tenantIdentifier, key), resource);
-        return existing != null ? existing : resource;
+        return getOrCreateResourcesWithKey(key).compute(new ResourceKey(tenantIdentifier), (k, existing) -> {
+            if (existing != null) {
+                return existing;
+            }
+            resourceAdded(k);
+            return resource;
+        });
     }
 
     public SingletonResource removeResource(TenantIdentifier tenantIdentifier,
                                                          @Nonnull String key) {
-        return resources.remove(new KeyClass(tenantIdentifier, key));
+        return removeResource(new ResourceKey(tenantIdentifier), key);
+    }
+
+    private SingletonResource removeResource(ResourceKey resourceKey, @Nonnull String key) {
+        Map<ResourceKey, SingletonResource> resourcesWithKey = resources.get(key);
+        if (resourcesWithKey == null) {
+            return null;
+        }
+        SingletonResource[] removed = new SingletonResource[1];
+        resourcesWithKey.computeIfPresent(resourceKey, (k, existing) -> {
+            removed[0] = existing;
+            resourceRemoved(k);
+            return null;
+        });
+        return removed[0];
     }
 
     public SingletonResource setResource(AppIdentifier appIdentifier,
@@ -120,7 +155,13 @@ public class ResourceDistributor {
     }
 
     public void clearAllResourcesWithResourceKey(String inputKey) {
-        resources.keySet().removeIf(k -> k.key.equals(inputKey));
+        Map<ResourceKey, SingletonResource> resourcesWithKey = resources.get(inputKey);
+        if (resourcesWithKey == null) {
+            return;
+        }
+        for (ResourceKey resourceKey : resourcesWithKey.keySet()) {
+            removeResource(resourceKey, inputKey);
+        }
     }
 
     /**
@@ -129,20 +170,56 @@ public class ResourceDistributor {
      * (unlike a clearAllResourcesWithResourceKey followed by individual setResource calls).
      */
     public void replaceResourcesWithResourceKey(String inputKey, Map<KeyClass, SingletonResource> newResources) {
-        resources.putAll(newResources);
-        resources.keySet().removeIf(k -> k.key.equals(inputKey) && !newResources.containsKey(k));
+        Set<ResourceKey> newTenants = new HashSet<>();
+        for (Map.Entry<KeyClass, SingletonResource> entry : newResources.entrySet()) {
+            KeyClass keyClass = entry.getKey();
+            ResourceKey resourceKey = new ResourceKey(keyClass.getTenantIdentifier());
+            if (keyClass.key.equals(inputKey)) {
+                newTenants.add(resourceKey);
+            }
+            getOrCreateResourcesWithKey(keyClass.key).compute(resourceKey, (k, existing) -> {
+                if (existing == null) {
+                    resourceAdded(k);
+                }
+                return entry.getValue();
+            });
+        }
+
+        Map<ResourceKey, SingletonResource> resourcesWithKey = resources.get(inputKey);
+        if (resourcesWithKey == null) {
+            return;
+        }
+        for (ResourceKey resourceKey : resourcesWithKey.keySet()) {
+            if (!newTenants.contains(resourceKey)) {
+                removeResource(resourceKey, inputKey);
+            }
+        }
     }
 
     public Map<KeyClass, SingletonResource> getAllResourcesWithResourceKey(String inputKey) {
         Map<KeyClass, SingletonResource> result = new HashMap<>();
-        resources.forEach((key, value) -> {
-            if (key.key.equals(inputKey)) {
-                result.put(key, value);
-            }
-        });
+        Map<ResourceKey, SingletonResource> resourcesWithKey = resources.get(inputKey);
+        if (resourcesWithKey != null) {
+            resourcesWithKey.forEach((resourceKey, value) -> {
+                result.put(new KeyClass(resourceKey.toTenantIdentifier(), inputKey), value);
+            });
+        }
         return result;
     }
 
+    private Map<ResourceKey, SingletonResource> getOrCreateResourcesWithKey(String key) {
+        return resources.computeIfAbsent(key, k -> new ConcurrentHashMap<>());
+    }
+
+    private void resourceAdded(ResourceKey resourceKey) {
+        numberOfResourcesPerConnectionUriDomain.merge(resourceKey.connectionUriDomain, 1, Integer::sum);
+    }
+
+    private void resourceRemoved(ResourceKey resourceKey) {
+        numberOfResourcesPerConnectionUriDomain.computeIfPresent(resourceKey.connectionUriDomain,
+                (cud, count) -> count == 1 ? null : count - 1);
+    }
+
     @TestOnly
     public SingletonResource setResource(@Nonnull String key,
                                                       SingletonResource resource) {
@@ -167,20 +244,77 @@ public class ResourceDistributor {
 
     }
 
+    // The resources of a key are mapped by this instead of by TenantIdentifier, whose hashCode builds a string every
+    // time it is called. This only combines the hash codes of the identifier's strings, which the strings cache.
+    private static final class ResourceKey {
+        private final String connectionUriDomain;
+        private final String appId;
+        private final String tenantId;
+        private final int hashCode;
+
+        ResourceKey(TenantIdentifier tenantIdentifier) {
+            this(tenantIdentifier.getConnectionUriDomain(), tenantIdentifier.getAppId(),
+                    tenantIdentifier.getTenantId());
+        }
+
+        ResourceKey(String connectionUriDomain, String appId, String tenantId) {
+            this.connectionUriDomain = connectionUriDomain;
+            this.appId = appId;
+            this.tenantId = tenantId;
+            int result = tenantId.hashCode();
+            result = 31 * result + connectionUriDomain.hashCode();
+            this.hashCode = 31 * result + appId.hashCode();
+        }
+
+        TenantIdentifier toTenantIdentifier() {
+            return new TenantIdentifier(connectionUriDomain, appId, tenantId);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (other instanceof ResourceKey) {
+                ResourceKey otherKey = (ResourceKey) other;
+                return otherKey.hashCode == hashCode && otherKey.tenantId.equals(tenantId) &&
+                        otherKey.appId.equals(appId) && otherKey.connectionUriDomain.equals(connectionUriDomain);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hashCode;
+        }
+    }
+
     public static class KeyClass {
         @Nonnull
         private final String key;
 
         private final TenantIdentifier tenantIdentifier;
 
+        // keys are looked up far more often than they are created, so the hash is only computed once
+        private final int hashCode;
+
         public KeyClass(TenantIdentifier tenantIdentifier, @Nonnull String key) {
             this.key = key;
             this.tenantIdentifier = tenantIdentifier;
+            this.hashCode = computeHashCode();
         }
 
         public KeyClass(AppIdentifier appIdentifier, @Nonnull String key) {
             this.key = key;
             this.tenantIdentifier = appIdentifier.getAsPublicTenantIdentifier();
+            this.hashCode = computeHashCode();
+        }
+
+        private int computeHashCode() {
+            int result = this.tenantIdentifier.getTenantId().hashCode();
+            result = 31 * result + this.tenantIdentifier.getConnectionUriDomain().hashCode();
+            result = 31 * result + this.tenantIdentifier.getAppId().hashCode();
+            return 31 * result + this.key.hashCode();
         }
 
         public TenantIdentifier getTenantIdentifier() {
@@ -199,10 +333,7 @@ public class ResourceDistributor {
 
         @Override
         public int hashCode() {
-            return (this.getTenantIdentifier().getTenantId() + "|" +
-                    this.getTenantIdentifier().getConnectionUriDomain() + "|" +
-                    this.getTenantIdentifier().getAppId() + "|" +
-                    this.key).hashCode();
+            return this.hashCode;
         }
     }
 
@@ -83,7 +83,7 @@ public class ApproximateUserCount extends ResourceDistributor.SingletonResource
         } catch (TenantOrAppNotFoundException e) {
             // appIdentifier comes from the API request, so guard against filling memory with resources for
             // apps that don't exist (mirrors RequestStats.getInstance).
-            if (Multitenancy.getTenantInfo(main, appIdentifier.getAsPublicTenantIdentifier()) == null) {
+            if (!Multitenancy.isTenantPresent(main, appIdentifier.getAsPublicTenantIdentifier())) {
                 throw e;
             }
             return (ApproximateUserCount) main.getResourceDistributor()
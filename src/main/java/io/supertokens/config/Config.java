@@ -32,6 +32,8 @@ import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.ConfigMapper;
+import io.supertokens.webserver.APIKeyIndex;
+import io.supertokens.webserver.IpAccessFilter;
 import org.jetbrains.annotations.TestOnly;
 
 import java.io.File;
@@ -48,6 +50,12 @@ public class Config extends ResourceDistributor.SingletonResource {
     private final Main main;
     private final CoreConfig core;
 
+    // the below are built on first use and cached here, so that they are rebuilt only when this tenant's config
+    // is reloaded (which creates a new Config resource).
+    private volatile IpAccessFilter ipAccessFilter = null;
+
+    private volatile APIKeyIndex apiKeyIndex = null;
+
     private Config(Main main, String configFilePath) throws InvalidConfigException, IOException {
         this.main = main;
         final ObjectMapper mapper = new ObjectMapper(new YAMLFactory());
@@ -455,6 +463,29 @@ public class Config extends ResourceDistributor.SingletonResource {
         }
     }
 
+    public CoreConfig getCoreConfig() {
+        return this.core;
+    }
+
+    public IpAccessFilter getIpAccessFilter() {
+        IpAccessFilter filter = this.ipAccessFilter;
+        if (filter == null) {
+            // it's ok if multiple threads create this at the same time, since they will all be the same.
+            filter = new IpAccessFilter(this.core);
+            this.ipAccessFilter = filter;
+        }
+        return filter;
+    }
+
+    public APIKeyIndex getAPIKeyIndex() {
+        APIKeyIndex index = this.apiKeyIndex;
+        if (index == null) {
+            index = new APIKeyIndex(this.core);
+            this.apiKeyIndex = index;
+        }
+        return index;
+    }
+
     public static CoreConfig getConfig(TenantIdentifier tenantIdentifier, Main main)
             throws TenantOrAppNotFoundException {
         return getInstance(tenantIdentifier, main).core;
@@ -31,6 +31,7 @@ import io.supertokens.pluginInterface.LOG_LEVEL;
 import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.signingkeys.JWTSigningKey;
 import io.supertokens.utils.SemVer;
 import io.supertokens.webserver.Utils;
 import io.supertokens.webserver.WebserverAPI;
@@ -113,6 +114,15 @@ public class CoreConfig {
                     + "subtractively so the token expiry is never lengthened. Set to 0 to disable. [Default: 0.05]")
     private double access_token_validity_jitter = 0.05;
 
+    @EnvName("ACCESS_TOKEN_VERIFICATION_CACHE_SIZE")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "Max number of verified access tokens kept in memory per app, so that verifying the same access token " +
+                    "again does not need to check its signature. Tokens are kept until they expire. Set to 0 to " +
+                    "disable. (Default: 0)")
+    private int access_token_verification_cache_size = 0;
+
     @EnvName("RECENT_TOKEN_REUSE_BEHAVIOUR")
     @ConfigYamlOnly
     @JsonProperty
@@ -201,6 +211,16 @@ public class CoreConfig {
     @ConfigDescription("Time in hours for how frequently the dynamic signing key will change. [Default: 168 (1 week)]")
     private double access_token_dynamic_signing_key_update_interval = 168; // in hours
 
+    @EnvName("ACCESS_TOKEN_SIGNING_ALGORITHM")
+    @NotConflictingInApp
+    @JsonProperty
+    @ConfigDescription("The algorithm used to sign new access tokens. Values are \"RS256\" | \"ES256\" | \"EdDSA\". " +
+            "Signing with ES256 or EdDSA is much faster than RS256, but access tokens for CDI<2.21 can only be " +
+            "signed using RS256. Keys of the previous algorithm are still used to verify tokens after this is " +
+            "changed. (Default: RS256)")
+    @EnumProperty({"RS256", "ES256", "EdDSA"})
+    private String access_token_signing_algorithm = "RS256";
+
     @EnvName("SUPERTOKENS_PORT")
     @ConfigYamlOnly
     @JsonProperty
@@ -221,6 +241,65 @@ public class CoreConfig {
     @ConfigDescription("Sets the max thread pool size for incoming http server requests. (Default: 10)")
     private int max_server_pool_size = 10;
 
+    @EnvName("WEBSERVER_VIRTUAL_THREADS_ENABLED")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "If true, each incoming http request is run on its own virtual thread instead of on the server thread " +
+                    "pool, and max_server_pool_size is not used. The number of requests that can use a database " +
+                    "at the same time is then limited by max_concurrent_requests_per_storage. (Default: false)")
+    private boolean webserver_virtual_threads_enabled = false;
+
+    @EnvName("MAX_CONCURRENT_REQUESTS_PER_STORAGE")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "Used only if webserver_virtual_threads_enabled is true. Max number of http requests that can be " +
+                    "processed at the same time against the same database. Other requests for that database wait " +
+                    "for one of these to finish. (Default: 50)")
+    private int max_concurrent_requests_per_storage = 50;
+
+    @EnvName("WEBSERVER_HTTP2_ENABLED")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "If true, the core also accepts cleartext HTTP/2 (h2c) connections, either via prior knowledge or by " +
+                    "upgrading an HTTP/1.1 connection. Many requests can then be multiplexed over a single " +
+                    "connection. (Default: false)")
+    private boolean webserver_http2_enabled = false;
+
+    @EnvName("WEBSERVER_CONNECTION_TIMEOUT_MS")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "Time in milliseconds to wait for the request line and headers after a connection is accepted, " +
+                    "before the connection is closed. [Default: 60000 (1 minute)]")
+    private int webserver_connection_timeout_ms = 60000;
+
+    @EnvName("WEBSERVER_KEEP_ALIVE_TIMEOUT_MS")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "Time in milliseconds for which an idle keep-alive connection is kept open, waiting for the next " +
+                    "request, before it is closed. [Default: 60000 (1 minute)]")
+    private int webserver_keep_alive_timeout_ms = 60000;
+
+    @EnvName("WEBSERVER_MAX_KEEP_ALIVE_REQUESTS")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "Max number of requests that can be sent over one HTTP/1.1 keep-alive connection before it is closed. " +
+                    "Set to -1 for no limit, or 1 to disable keep-alive. (Default: 100)")
+    private int webserver_max_keep_alive_requests = 100;
+
+    @EnvName("MAX_REQUEST_BODY_SIZE_KB")
+    @ConfigYamlOnly
+    @JsonProperty
+    @ConfigDescription(
+            "Max size in kb of the body of an incoming http request. Requests with a larger body are rejected. " +
+                    "[Default: 51200 (50 mb)]")
+    private int max_request_body_size_kb = 51200; // 50 mb
+
     @EnvName("API_KEYS")
     @NotConflictingInApp
     @JsonProperty
@@ -616,6 +695,10 @@ public class CoreConfig {
         return argon2_memory_kb;
     }
 
+    public long getMaxRequestBodySizeBytes() {
+        return max_request_body_size_kb * 1024L;
+    }
+
     public int getArgon2Parallelism() {
         return argon2_parallelism;
     }
@@ -664,6 +747,10 @@ public class CoreConfig {
         return access_token_validity_jitter;
     }
 
+    public int getAccessTokenVerificationCacheSize() {
+        return access_token_verification_cache_size;
+    }
+
     public String getRecentTokenReuseBehaviour() {
         return recent_token_reuse_behaviour;
     }
@@ -715,6 +802,16 @@ public class CoreConfig {
         return (long) (access_token_dynamic_signing_key_update_interval * 3600 * 1000);
     }
 
+    public JWTSigningKey.SupportedAlgorithms getAccessTokenSigningAlgorithm() {
+        for (JWTSigningKey.SupportedAlgorithms algorithm : JWTSigningKey.SupportedAlgorithms.values()) {
+            if (algorithm.equalsString(access_token_signing_algorithm)) {
+                return algorithm;
+            }
+        }
+        // this is checked in validate
+        throw new IllegalStateException("Unknown access_token_signing_algorithm: " + access_token_signing_algorithm);
+    }
+
     public String[] getAPIKeys() {
         if (api_keys == null) {
             return null;
@@ -738,6 +835,30 @@ public class CoreConfig {
         return max_server_pool_size;
     }
 
+    public boolean isWebserverVirtualThreadsEnabled() {
+        return webserver_virtual_threads_enabled;
+    }
+
+    public int getMaxConcurrentRequestsPerStorage() {
+        return max_concurrent_requests_per_storage;
+    }
+
+    public boolean isWebserverHttp2Enabled() {
+        return webserver_http2_enabled;
+    }
+
+    public int getWebserverConnectionTimeoutMs() {
+        return webserver_connection_timeout_ms;
+    }
+
+    public int getWebserverKeepAliveTimeoutMs() {
+        return webserver_keep_alive_timeout_ms;
+    }
+
+    public int getWebserverMaxKeepAliveRequests() {
+        return webserver_max_keep_alive_requests;
+    }
+
     public boolean getHttpsEnabled() {
         return webserver_https_enabled;
     }
@@ -867,6 +988,12 @@ public class CoreConfig {
             }
         }
 
+        if (Arrays.stream(JWTSigningKey.SupportedAlgorithms.values())
+                .noneMatch(algorithm -> algorithm.equalsString(access_token_signing_algorithm))) {
+            throw new InvalidConfigException(
+                    "'access_token_signing_algorithm' must be one of 'RS256', 'ES256' or 'EdDSA'");
+        }
+
         if (!Main.isTesting || validityTesting) { // testing may set windows outside the normal bounds
             if (refresh_token_rotation_grace_period < 0 || refresh_token_rotation_grace_period > 300) {
                 throw new InvalidConfigException(
@@ -883,6 +1010,10 @@ public class CoreConfig {
                                     + " found here: " + getConfigFileLocation(main) : ""));
         }
 
+        if (access_token_verification_cache_size < 0) {
+            throw new InvalidConfigException("'access_token_verification_cache_size' must be >= 0");
+        }
+
         if (password_reset_token_lifetime <= 0) {
             throw new InvalidConfigException("'password_reset_token_lifetime' must be >= 0");
         }
@@ -914,6 +1045,26 @@ public class CoreConfig {
                                     + " found here: " + getConfigFileLocation(main) : ""));
         }
 
+        if (max_concurrent_requests_per_storage <= 0) {
+            throw new InvalidConfigException("'max_concurrent_requests_per_storage' must be >= 1");
+        }
+
+        if (webserver_connection_timeout_ms <= 0) {
+            throw new InvalidConfigException("'webserver_connection_timeout_ms' must be >= 1");
+        }
+
+        if (webserver_keep_alive_timeout_ms <= 0) {
+            throw new InvalidConfigException("'webserver_keep_alive_timeout_ms' must be >= 1");
+        }
+
+        if (webserver_max_keep_alive_requests == 0 || webserver_max_keep_alive_requests < -1) {
+            throw new InvalidConfigException("'webserver_max_keep_alive_requests' must be -1 or >= 1");
+        }
+
+        if (max_request_body_size_kb <= 0) {
+            throw new InvalidConfigException("'max_request_body_size_kb' must be >= 1");
+        }
+
         if (api_keys != null) {
             String[] keys = api_keys.split(",");
             for (int i = 0; i < keys.length; i++) {
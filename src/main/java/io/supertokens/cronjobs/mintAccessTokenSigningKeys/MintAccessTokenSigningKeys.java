@@ -0,0 +1,83 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.cronjobs.mintAccessTokenSigningKeys;
+
+import io.supertokens.Main;
+import io.supertokens.cronjobs.CronTask;
+import io.supertokens.cronjobs.CronTaskTest;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.signingkeys.AccessTokenSigningKey;
+import io.supertokens.signingkeys.SigningKeyPairPool;
+import org.jetbrains.annotations.TestOnly;
+
+import java.util.List;
+
+// Creates the next dynamic access token signing key of each app before it is due, and keeps a few RSA key pairs
+// ready in SigningKeyPairPool, so that key generation doesn't happen while handling requests.
+public class MintAccessTokenSigningKeys extends CronTask {
+
+    public static final String RESOURCE_KEY = "io.supertokens.cronjobs.mintAccessTokenSigningKeys" +
+            ".MintAccessTokenSigningKeys";
+
+    private MintAccessTokenSigningKeys(Main main, List<List<TenantIdentifier>> tenantsInfo) {
+        super("MintAccessTokenSigningKeys", main, tenantsInfo, true);
+    }
+
+    public static MintAccessTokenSigningKeys init(Main main, List<List<TenantIdentifier>> tenantsInfo) {
+        return (MintAccessTokenSigningKeys) main.getResourceDistributor()
+                .setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
+                        new MintAccessTokenSigningKeys(main, tenantsInfo));
+    }
+
+    @TestOnly
+    public static MintAccessTokenSigningKeys getInstance(Main main) {
+        try {
+            return (MintAccessTokenSigningKeys) main.getResourceDistributor()
+                    .getResource(new TenantIdentifier(null, null, null), RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    protected void doTaskPerApp(AppIdentifier app) throws Exception {
+        SigningKeyPairPool.getInstance(main).refill();
+        // we create the key if it will be due before the run after next, in case the next run is late
+        AccessTokenSigningKey.getInstance(app, main).createNextSigningKeyIfNeeded(2000L * getIntervalTimeSeconds());
+    }
+
+    @Override
+    public int getIntervalTimeSeconds() {
+        if (Main.isTesting) {
+            Integer interval = CronTaskTest.getInstance(main).getIntervalInSeconds(RESOURCE_KEY);
+            if (interval != null) {
+                return interval;
+            }
+        }
+        // Every 15 minutes.
+        return 15 * 60;
+    }
+
+    @Override
+    public int getInitialWaitTimeSeconds() {
+        // the keys of all apps are loaded (and created if needed) during startup, so there is nothing to do before
+        // the first interval
+        return getIntervalTimeSeconds();
+    }
+}
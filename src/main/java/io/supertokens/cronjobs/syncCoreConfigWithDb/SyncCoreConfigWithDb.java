@@ -62,6 +62,6 @@ public class SyncCoreConfigWithDb extends CronTask {
     @WithinOtelSpan
     @Override
     protected void doTaskForTargetTenant(TenantIdentifier targetTenant) throws Exception {
-        MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
+        MultitenancyHelper.getInstance(main).refreshTenantsInCoreIfTenantsChangedInDb();
     }
 }
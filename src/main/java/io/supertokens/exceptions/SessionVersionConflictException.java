@@ -0,0 +1,31 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.exceptions;
+
+// Thrown when a session is updated with the version of its data that the caller last read, and the session has been
+// changed since then. currentSessionVersion is the version of the session as it is now.
+public class SessionVersionConflictException extends Exception {
+
+    private static final long serialVersionUID = 1L;
+
+    public final String currentSessionVersion;
+
+    public SessionVersionConflictException(String currentSessionVersion) {
+        super("Session has been updated since the given version");
+        this.currentSessionVersion = currentSessionVersion;
+    }
+}
@@ -580,6 +580,19 @@ public class Start
         }
     }
 
+    @Override
+    public int updateSession_Transaction(TenantIdentifier tenantIdentifier, TransactionConnection con,
+                                         String sessionHandle, @Nullable JsonObject sessionData,
+                                         @Nullable JsonObject jwtPayload) throws StorageQueryException {
+        Connection sqlCon = (Connection) con.getConnection();
+        try {
+            return SessionQueries.updateSession_Transaction(this, sqlCon, tenantIdentifier, sessionHandle,
+                    sessionData, jwtPayload);
+        } catch (SQLException e) {
+            throw new StorageQueryException(e);
+        }
+    }
+
     @Override
     public void deleteSessionsOfUser_Transaction(TransactionConnection con, AppIdentifier appIdentifier, String userId)
             throws StorageQueryException {
@@ -30,6 +30,7 @@ import io.supertokens.pluginInterface.session.SessionInfo;
 
 import javax.annotation.Nullable;
 import java.sql.Connection;
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Types;
@@ -364,7 +365,20 @@ public class SessionQueries {
     public static int updateSession(Start start, TenantIdentifier tenantIdentifier, String sessionHandle,
                                     @Nullable JsonObject sessionData,
                                     @Nullable JsonObject jwtPayload) throws SQLException, StorageQueryException {
+        return update(start, getUpdateSessionQuery(start, sessionData, jwtPayload),
+                pst -> setUpdateSessionValues(pst, tenantIdentifier, sessionHandle, sessionData, jwtPayload));
+    }
+
+    public static int updateSession_Transaction(Start start, Connection con, TenantIdentifier tenantIdentifier,
+                                                String sessionHandle, @Nullable JsonObject sessionData,
+                                                @Nullable JsonObject jwtPayload)
+            throws SQLException, StorageQueryException {
+        return update(con, getUpdateSessionQuery(start, sessionData, jwtPayload),
+                pst -> setUpdateSessionValues(pst, tenantIdentifier, sessionHandle, sessionData, jwtPayload));
+    }
 
+    private static String getUpdateSessionQuery(Start start, @Nullable JsonObject sessionData,
+                                                @Nullable JsonObject jwtPayload) throws SQLException {
         if (sessionData == null && jwtPayload == null) {
             throw new SQLException("sessionData and jwtPayload are null when updating session info");
         }
@@ -379,21 +393,24 @@ public class SessionQueries {
             QUERY += (somethingBefore ? "," : "") + " jwt_user_payload = ?";
         }
         QUERY += " WHERE app_id = ? AND tenant_id = ? AND session_handle = ?";
+        return QUERY;
+    }
 
-        return update(start, QUERY, pst -> {
-            int currIndex = 1;
-            if (sessionData != null) {
-                pst.setString(currIndex, sessionData.toString());
-                currIndex++;
-            }
-            if (jwtPayload != null) {
-                pst.setString(currIndex, jwtPayload.toString());
-                currIndex++;
-            }
-            pst.setString(currIndex++, tenantIdentifier.getAppId());
-            pst.setString(currIndex++, tenantIdentifier.getTenantId());
-            pst.setString(currIndex, sessionHandle);
-        });
+    private static void setUpdateSessionValues(PreparedStatement pst, TenantIdentifier tenantIdentifier,
+                                               String sessionHandle, @Nullable JsonObject sessionData,
+                                               @Nullable JsonObject jwtPayload) throws SQLException {
+        int currIndex = 1;
+        if (sessionData != null) {
+            pst.setString(currIndex, sessionData.toString());
+            currIndex++;
+        }
+        if (jwtPayload != null) {
+            pst.setString(currIndex, jwtPayload.toString());
+            currIndex++;
+        }
+        pst.setString(currIndex++, tenantIdentifier.getAppId());
+        pst.setString(currIndex++, tenantIdentifier.getTenantId());
+        pst.setString(currIndex, sessionHandle);
     }
 
     public static SessionInfo getSession(Start start, TenantIdentifier tenantIdentifier, String sessionHandle)
@@ -0,0 +1,61 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.jwt;
+
+import com.auth0.jwt.algorithms.Algorithm;
+import com.auth0.jwt.exceptions.SignatureGenerationException;
+import com.auth0.jwt.exceptions.SignatureVerificationException;
+import com.auth0.jwt.interfaces.DecodedJWT;
+import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.utils.Utils;
+
+import java.security.GeneralSecurityException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+
+// auth0's package has no EdDSA (Ed25519) algorithm, so this signs with the JDK's implementation instead
+class EdDSAAlgorithm extends Algorithm {
+    private final PublicKey publicKey;
+    private final PrivateKey privateKey;
+
+    EdDSAAlgorithm(PublicKey publicKey, PrivateKey privateKey) {
+        super(JWTSigningKey.SupportedAlgorithms.EdDSA.name(), "Ed25519");
+        this.publicKey = publicKey;
+        this.privateKey = privateKey;
+    }
+
+    @Override
+    public void verify(DecodedJWT jwt) throws SignatureVerificationException {
+        try {
+            if (!Utils.verifyWithPublicKey(jwt.getHeader() + "." + jwt.getPayload(), jwt.getSignature(), publicKey,
+                    JWTSigningKey.SupportedAlgorithms.EdDSA, true)) {
+                throw new SignatureVerificationException(this);
+            }
+        } catch (GeneralSecurityException | IllegalArgumentException e) {
+            throw new SignatureVerificationException(this, e);
+        }
+    }
+
+    @Override
+    public byte[] sign(byte[] contentBytes) throws SignatureGenerationException {
+        try {
+            return Utils.signWithPrivateKey(contentBytes, privateKey, JWTSigningKey.SupportedAlgorithms.EdDSA);
+        } catch (GeneralSecurityException e) {
+            throw new SignatureGenerationException(this, e);
+        }
+    }
+}
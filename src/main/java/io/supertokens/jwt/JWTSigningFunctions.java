@@ -32,6 +32,7 @@ import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.signingkeys.ParsedSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
@@ -39,6 +40,10 @@ import org.jetbrains.annotations.TestOnly;
 import java.security.NoSuchAlgorithmException;
 import java.security.PrivateKey;
 import java.security.PublicKey;
+import java.security.interfaces.ECPrivateKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPrivateKey;
+import java.security.interfaces.EdECPublicKey;
 import java.security.interfaces.RSAPrivateKey;
 import java.security.interfaces.RSAPublicKey;
 import java.security.spec.InvalidKeySpecException;
@@ -95,35 +100,54 @@ public class JWTSigningFunctions {
             // If it enters this block then the string value provided does not match the algorithms we support
             throw new UnsupportedJWTSigningAlgorithmException();
         }
+        // static keys are only created for RS256
+        if (!useDynamicKey && supportedAlgorithm != JWTSigningKey.SupportedAlgorithms.RS256) {
+            throw new UnsupportedJWTSigningAlgorithmException();
+        }
 
         long issued = System.currentTimeMillis();
         long expires = System.currentTimeMillis() + (jwtValidityInSeconds * 1000);
 
+        SigningKeys signingKeys = SigningKeys.getInstance(appIdentifier, main);
         JWTSigningKeyInfo keyToUse;
         if (useDynamicKey) {
-            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(
-                    SigningKeys.getInstance(appIdentifier, main).getLatestIssuedDynamicKey());
+            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(signingKeys.getLatestIssuedDynamicKey());
         } else {
-            keyToUse = SigningKeys.getInstance(appIdentifier, main)
-                    .getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
+            keyToUse = signingKeys.getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
         }
+        ParsedSigningKey parsedKeyToUse = signingKeys.getParsedKey(keyToUse);
 
-        return createJWTToken(supportedAlgorithm, new HashMap<>(), payload, jwksDomain, expires, issued, keyToUse);
+        // The dynamic keys are shared with session access tokens, so they use the algorithm set by
+        // access_token_signing_algorithm. If that is not the requested algorithm, this throws
+        // UnsupportedJWTSigningAlgorithmException instead of signing with a different one.
+        return createJWTToken(supportedAlgorithm, new HashMap<>(), payload, jwksDomain, expires, issued,
+                parsedKeyToUse);
     }
 
-    @SuppressWarnings("unchecked")
     public static String createJWTToken(JWTSigningKey.SupportedAlgorithms supportedAlgorithm,
                                         Map<String, Object> headerClaims, JsonObject payload, String jwksDomain,
                                         long jwtExpiryInMs, long jwtIssuedAtInMs, JWTSigningKeyInfo keyToUse)
             throws StorageQueryException, StorageTransactionLogicException, NoSuchAlgorithmException,
             InvalidKeySpecException, JWTCreationException, UnsupportedJWTSigningAlgorithmException,
             TenantOrAppNotFoundException {
+        return createJWTToken(supportedAlgorithm, headerClaims, payload, jwksDomain, jwtExpiryInMs, jwtIssuedAtInMs,
+                new ParsedSigningKey((JWTAsymmetricSigningKeyInfo) keyToUse));
+    }
+
+    /**
+     * Same as above, but signs with a key that has already been parsed. Use SigningKeys.getParsedKey to get one, so
+     * that the key is not decoded again for every token.
+     */
+    @SuppressWarnings("unchecked")
+    public static String createJWTToken(JWTSigningKey.SupportedAlgorithms supportedAlgorithm,
+                                        Map<String, Object> headerClaims, JsonObject payload, String jwksDomain,
+                                        long jwtExpiryInMs, long jwtIssuedAtInMs, ParsedSigningKey keyToUse)
+            throws JWTCreationException, UnsupportedJWTSigningAlgorithmException {
         // Get an instance of auth0's Algorithm which is needed when signing using auth0's package
         Algorithm signingAlgorithm = getAuth0Algorithm(supportedAlgorithm, keyToUse);
 
         // Create the claims for the JWT header
-        headerClaims.put("alg", supportedAlgorithm.name().toUpperCase()); // All examples in the RFC have the algorithm
-        // in upper case
+        headerClaims.put("alg", supportedAlgorithm.name()); // This is the name used in the RFC (e.g. RS256 or EdDSA)
         headerClaims.put("typ", "JWT");
         headerClaims.put("kid", keyToUse.keyId);
 
@@ -146,18 +170,27 @@ public class JWTSigningFunctions {
         return builder.sign(signingAlgorithm);
     }
 
-    private static Algorithm getAuth0Algorithm(JWTSigningKey.SupportedAlgorithms algorithm, JWTSigningKeyInfo keyToUse)
-            throws NoSuchAlgorithmException, InvalidKeySpecException, UnsupportedJWTSigningAlgorithmException {
+    private static Algorithm getAuth0Algorithm(JWTSigningKey.SupportedAlgorithms algorithm, ParsedSigningKey keyToUse)
+            throws UnsupportedJWTSigningAlgorithmException {
         // TODO: Abstract this away from the main package to avoid a direct dependency on auth0s package
-        if (algorithm.equalsString("rs256")) {
-            PublicKey publicKey = Utils.getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).publicKey,
-                    algorithm);
-            PrivateKey privateKey = Utils.getPrivateKeyFromString(((JWTAsymmetricSigningKeyInfo) keyToUse).privateKey,
-                    algorithm);
+        if (keyToUse.algorithm != algorithm) {
+            throw new UnsupportedJWTSigningAlgorithmException();
+        }
+        PublicKey publicKey = keyToUse.getPublicKey();
+        PrivateKey privateKey = keyToUse.getPrivateKey();
 
+        if (algorithm == JWTSigningKey.SupportedAlgorithms.RS256) {
             if (publicKey instanceof RSAPublicKey && privateKey instanceof RSAPrivateKey) {
                 return Algorithm.RSA256((RSAPublicKey) publicKey, (RSAPrivateKey) privateKey);
             }
+        } else if (algorithm == JWTSigningKey.SupportedAlgorithms.ES256) {
+            if (publicKey instanceof ECPublicKey && privateKey instanceof ECPrivateKey) {
+                return Algorithm.ECDSA256((ECPublicKey) publicKey, (ECPrivateKey) privateKey);
+            }
+        } else if (algorithm == JWTSigningKey.SupportedAlgorithms.EdDSA) {
+            if (publicKey instanceof EdECPublicKey && privateKey instanceof EdECPrivateKey) {
+                return new EdDSAAlgorithm(publicKey, privateKey);
+            }
         }
 
         throw new UnsupportedJWTSigningAlgorithmException();
@@ -314,6 +314,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
         try {
             StorageLayer.getMultitenancyStorage(main).createTenant(newTenant);
             creationInSharedDbSucceeded = true;
+            MultitenancyHelper.tenantsChangedInDb(main);
             // Use the fast refresh path that skips the expensive normalized config diff.
             // We know exactly which tenant changed — it's the one we just created.
             // This incrementally loads config + storage for just the new tenant.
@@ -332,6 +333,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             if (!creationInSharedDbSucceeded) {
                 try {
                     StorageLayer.getMultitenancyStorage(main).overwriteTenantConfig(newTenant);
+                    MultitenancyHelper.tenantsChangedInDb(main);
                     // Use the fast refresh path for the update case as well.
                     tenantsThatChanged = MultitenancyHelper.getInstance(main)
                             .refreshAfterKnownTenantChange(newTenant.tenantIdentifier);
@@ -389,6 +391,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             // but not from the main table.
         }
         boolean didExist = StorageLayer.getMultitenancyStorage(main).deleteTenantInfoInBaseStorage(tenantIdentifier);
+        MultitenancyHelper.tenantsChangedInDb(main);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
     }
@@ -411,6 +414,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
             // but not from the main table.
         }
         boolean didExist = StorageLayer.getMultitenancyStorage(main).deleteAppInfoInBaseStorage(appIdentifier);
+        MultitenancyHelper.tenantsChangedInDb(main);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
     }
@@ -448,6 +452,7 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
         }
         boolean didExist = StorageLayer.getMultitenancyStorage(main)
                 .deleteConnectionUriDomainInfoInBaseStorage(connectionUriDomain);
+        MultitenancyHelper.tenantsChangedInDb(main);
         MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         return didExist;
     }
@@ -548,59 +553,45 @@ public class Multitenancy extends ResourceDistributor.SingletonResource {
         // we do not refresh the tenant list here cause this function is called
         // often from all the APIs and anyway, we have a cronjob that refreshes this list
         // regularly.
-        TenantConfig[] tenants = MultitenancyHelper.getInstance(main).getAllTenants();
-        for (TenantConfig t : tenants) {
-            if (t.tenantIdentifier.equals(tenantIdentifier)) {
-                return t;
-            }
-        }
-        return null;
+        TenantConfig tenantConfig = MultitenancyHelper.getInstance(main).getTenantsSnapshot()
+                .getTenant(tenantIdentifier);
+        return tenantConfig == null ? null : new TenantConfig(tenantConfig);
     }
 
-    public static TenantConfig[] getAllTenantsForApp(AppIdentifier appIdentifier, Main main) {
-        MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
-        TenantConfig[] tenants = MultitenancyHelper.getInstance(main).getAllTenants();
-        List<TenantConfig> tenantList = new ArrayList<>();
+    /**
+     * Same as checking that getTenantInfo is not null, but without copying the tenant's config.
+     */
+    public static boolean isTenantPresent(Main main, TenantIdentifier tenantIdentifier) {
+        return MultitenancyHelper.getInstance(main).getTenantsSnapshot().getTenant(tenantIdentifier) != null;
+    }
 
-        for (TenantConfig t : tenants) {
-            if (!t.tenantIdentifier.toAppIdentifier().equals(appIdentifier)) {
-                continue;
-            }
-            tenantList.add(t);
+    /**
+     * The tenants loaded in this core. These are kept in sync with the db by a cronjob (and right away for changes
+     * made via this core), so callers that need to see changes made by other cores as soon as they are done can
+     * pass refreshFromDb as true to reload all the tenants from the db first.
+     */
+    public static MultitenancyHelper.TenantsSnapshot getTenantsSnapshot(Main main, boolean refreshFromDb) {
+        if (refreshFromDb) {
+            MultitenancyHelper.getInstance(main)
+                    .refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
         }
+        return MultitenancyHelper.getInstance(main).getTenantsSnapshot();
+    }
 
-        TenantConfig[] finalResult = new TenantConfig[tenantList.size()];
-        for (int i = 0; i < tenantList.size(); i++) {
-            finalResult[i] = tenantList.get(i);
-        }
-        return finalResult;
+    public static TenantConfig[] getAllTenantsForApp(AppIdentifier appIdentifier, Main main) {
+        return MultitenancyHelper.copyOf(getTenantsSnapshot(main, true).getTenantsForApp(appIdentifier));
     }
 
     public static TenantConfig[] getAllAppsAndTenantsForConnectionUriDomain(String connectionUriDomain, Main main) {
         if (connectionUriDomain == null) {
             connectionUriDomain = TenantIdentifier.DEFAULT_CONNECTION_URI;
         }
-        MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
-        TenantConfig[] tenants = MultitenancyHelper.getInstance(main).getAllTenants();
-        List<TenantConfig> tenantList = new ArrayList<>();
-
-        for (TenantConfig t : tenants) {
-            if (!t.tenantIdentifier.getConnectionUriDomain().equals(connectionUriDomain)) {
-                continue;
-            }
-            tenantList.add(t);
-        }
-
-        TenantConfig[] finalResult = new TenantConfig[tenantList.size()];
-        for (int i = 0; i < tenantList.size(); i++) {
-            finalResult[i] = tenantList.get(i);
-        }
-        return finalResult;
+        return MultitenancyHelper.copyOf(
+                getTenantsSnapshot(main, true).getTenantsForConnectionUriDomain(connectionUriDomain));
     }
 
     public static TenantConfig[] getAllTenants(Main main) {
-        MultitenancyHelper.getInstance(main).refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
-        return MultitenancyHelper.getInstance(main).getAllTenants();
+        return MultitenancyHelper.copyOf(getTenantsSnapshot(main, true).getTenants());
     }
 
     public static void saveWebsiteAndAPIDomainForApp(Storage storage, AppIdentifier appIdentifier, String websiteDomain,
@@ -28,6 +28,7 @@ import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.multitenancy.exception.CannotModifyBaseConfigException;
 import io.supertokens.output.Logging;
+import io.supertokens.pluginInterface.KeyValueInfo;
 import io.supertokens.pluginInterface.STORAGE_TYPE;
 import io.supertokens.pluginInterface.exceptions.InvalidConfigException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -43,6 +44,7 @@ import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.thirdparty.InvalidProviderConfigException;
 import io.supertokens.utils.SemVer;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.util.*;
 
@@ -51,23 +53,32 @@ import static io.supertokens.multitenancy.Multitenancy.getTenantInfo;
 public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
 
     public static final String RESOURCE_KEY = "io.supertokens.multitenancy.Multitenancy";
-    private Main main;
-    private volatile TenantConfig[] tenantConfigs;
 
-    // when the core has `supertokens_saas_load_only_cud` set, the tenantConfigs array will be filtered
-    // based on the config value. However, we need to keep all the list of CUDs from the db to be able
-    // to check if the CUD is present in the DB or not, while processing the requests.
-    private volatile Set<String> dangerous_allCUDsFromDb = new HashSet<>();
+    // key in the base storage whose value is changed by a core every time it changes the tenants in the db. Other
+    // cores compare it with the value they last synced with to know if they need to read all the tenants again.
+    private static final String TENANTS_VERSION_KEY = "tenants_version";
+
+    // the tenants are still synced with the db at least this often, in case they were changed by something that
+    // does not update the tenants version (for example, an older core, or a manual change in the db)
+    private static final long FULL_SYNC_INTERVAL_MS = 10 * 60 * 1000;
+
+    private Main main;
+    // replaced as a whole (never modified) whenever the tenant list is refreshed, so that readers always see a
+    // consistent list and its indexes without taking a lock
+    private volatile TenantsSnapshot tenants;
+
+    // the tenants version that was in the db right before the last successful sync with the db. This is not set
+    // when this core refreshes the tenants after changing them itself, so the next sync always reads all tenants
+    // once, which picks up changes that other cores made at the same time.
+    private volatile String lastSyncedTenantsVersion = null;
+    private volatile long lastFullSyncTime = 0;
+    // guarded by the resource distributor lock
+    private boolean lastRefreshFromDbFailed = false;
 
     private MultitenancyHelper(Main main) throws StorageQueryException {
         this.main = main;
         TenantConfig[] allTenantsFromDb = getAllTenantsFromDb();
-        this.tenantConfigs = this.getFilteredTenantConfigs(allTenantsFromDb);
-        Set<String> cuds = new HashSet<>();
-        for (TenantConfig config : allTenantsFromDb) {
-            cuds.add(config.tenantIdentifier.getConnectionUriDomain());
-        }
-        this.dangerous_allCUDsFromDb = cuds;
+        this.tenants = new TenantsSnapshot(0, this.getFilteredTenantConfigs(allTenantsFromDb), allTenantsFromDb);
     }
 
     public static MultitenancyHelper getInstance(Main main) {
@@ -118,12 +129,85 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
         return StorageLayer.getMultitenancyStorage(main).getAllTenants();
     }
 
+    /**
+     * Must be called after the tenants are changed in the db, so that other cores know that they need to reload
+     * them. This is called after the change has been written, so a failure here is only logged: the change has
+     * already been made, and other cores still pick it up with their next full sync.
+     */
+    public static void tenantsChangedInDb(Main main) {
+        if (StorageLayer.getBaseStorage(main).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+        try {
+            StorageLayer.getBaseStorage(main).setKeyValue(TenantIdentifier.BASE_TENANT, TENANTS_VERSION_KEY,
+                    new KeyValueInfo(UUID.randomUUID().toString(), System.currentTimeMillis()));
+        } catch (StorageQueryException e) {
+            Logging.error(main, TenantIdentifier.BASE_TENANT,
+                    "Could not update the tenants version after changing the tenants: " + e.getMessage(), false, e);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @return null if the base storage can't store the tenants version, in which case the tenants have to be read
+     * from the db on every sync
+     */
+    @Nullable
+    private String getTenantsVersionFromDb() throws StorageQueryException {
+        if (StorageLayer.getBaseStorage(main).getType() != STORAGE_TYPE.SQL) {
+            return null;
+        }
+        try {
+            KeyValueInfo tenantsVersion = StorageLayer.getBaseStorage(main)
+                    .getKeyValue(TenantIdentifier.BASE_TENANT, TENANTS_VERSION_KEY);
+            // no core has changed the tenants since this key was added
+            return tenantsVersion == null ? "" : tenantsVersion.value;
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Used by the cronjob that keeps this core in sync with the db. This reads only the tenants version from the
+     * db, and all the tenants are read and compared only if it has changed since the last sync (or if the last full
+     * sync was too long ago).
+     */
+    @WithinOtelSpan
+    public List<TenantIdentifier> refreshTenantsInCoreIfTenantsChangedInDb() throws StorageQueryException {
+        long now = System.currentTimeMillis();
+        TenantsSnapshot tenantsBeforeCheck = this.tenants;
+        String tenantsVersion = getTenantsVersionFromDb();
+        if (tenantsVersion != null && tenantsVersion.equals(this.lastSyncedTenantsVersion)
+                && now - this.lastFullSyncTime < FULL_SYNC_INTERVAL_MS) {
+            // the tenants in the db are still the ones that were loaded
+            tenantsBeforeCheck.confirmLoadedFromDb(now);
+            return new ArrayList<>();
+        }
+
+        try {
+            // the refresh takes the same lock, so this reads lastRefreshFromDbFailed as it was set by this refresh
+            return main.getResourceDistributor().withResourceDistributorLock(() -> {
+                List<TenantIdentifier> tenantsThatChanged =
+                        refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(true);
+                if (!this.lastRefreshFromDbFailed) {
+                    this.lastSyncedTenantsVersion = tenantsVersion;
+                    this.lastFullSyncTime = now;
+                }
+                return tenantsThatChanged;
+            });
+        } catch (ResourceDistributor.FuncException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
     @WithinOtelSpan
     public List<TenantIdentifier> refreshTenantsInCoreBasedOnChangesInCoreConfigOrIfTenantListChanged(
             boolean reloadAllResources) {
         try {
             return main.getResourceDistributor().withResourceDistributorLock(() -> {
                 try {
+                    this.lastRefreshFromDbFailed = false;
                     TenantConfig[] tenantsFromDb = getAllTenantsFromDb();
                     TenantConfig[] filteredTenantsFromDb = this.getFilteredTenantConfigs(tenantsFromDb);
 
@@ -133,7 +217,7 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
 
                     Map<ResourceDistributor.KeyClass, JsonObject> normalizedTenantsFromMemory =
                             Config.getNormalisedConfigsForAllTenants(
-                                    this.tenantConfigs, Config.getBaseConfigAsJsonObject(main));
+                                    this.tenants.tenantConfigs, Config.getBaseConfigAsJsonObject(main));
 
                     List<TenantIdentifier> tenantsThatChanged = new ArrayList<>();
 
@@ -148,14 +232,9 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
                     }
 
                     boolean sameNumberOfTenants =
-                            filteredTenantsFromDb.length == this.tenantConfigs.length;
+                            filteredTenantsFromDb.length == this.tenants.tenantConfigs.length;
 
-                    Set<String> cuds = new HashSet<>();
-                    for (TenantConfig tenant : tenantsFromDb) {
-                        cuds.add(tenant.tenantIdentifier.getConnectionUriDomain());
-                    }
-                    this.dangerous_allCUDsFromDb = cuds;
-                    this.tenantConfigs = filteredTenantsFromDb;
+                    this.tenants = new TenantsSnapshot(this.tenants.version + 1, filteredTenantsFromDb, tenantsFromDb);
                     if (tenantsThatChanged.size() == 0 && sameNumberOfTenants) {
                         return tenantsThatChanged;
                     }
@@ -175,6 +254,7 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
                     }
                     return tenantsThatChanged;
                 } catch (Exception e) {
+                    this.lastRefreshFromDbFailed = true;
                     Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
                     return new ArrayList<>();
                 }
@@ -197,14 +277,9 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
                     TenantConfig[] tenantsFromDb = getAllTenantsFromDb();
                     TenantConfig[] filteredTenantsFromDb = this.getFilteredTenantConfigs(tenantsFromDb);
 
+                    TenantsSnapshot tenantsInMemory = this.tenants;
                     boolean sameNumberOfTenants =
-                            filteredTenantsFromDb.length == this.tenantConfigs.length;
-
-                    // Build set of existing tenant IDs for new-tenant detection
-                    Set<TenantIdentifier> existingTenantIds = new HashSet<>();
-                    for (TenantConfig tc : this.tenantConfigs) {
-                        existingTenantIds.add(tc.tenantIdentifier);
-                    }
+                            filteredTenantsFromDb.length == tenantsInMemory.tenantConfigs.length;
 
                     // Compute the affected set: the changed tenant + children that inherit from it
                     List<TenantIdentifier> affectedTenants = new ArrayList<>();
@@ -243,24 +318,21 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
                     JsonObject baseConfig = Config.getBaseConfigAsJsonObject(main);
                     List<TenantIdentifier> tenantsThatChanged = new ArrayList<>();
                     for (TenantIdentifier affected : affectedTenants) {
-                        if (existingTenantIds.contains(affected)) {
+                        if (tenantsInMemory.getTenant(affected) != null) {
                             JsonObject normFromDb = Config.getNormalisedConfigForTenant(
                                     affected, filteredTenantsFromDb, baseConfig);
                             JsonObject normFromMemory = Config.getNormalisedConfigForTenant(
-                                    affected, this.tenantConfigs, baseConfig);
+                                    affected, tenantsInMemory.tenantConfigs, baseConfig);
                             if (!normFromDb.equals(normFromMemory)) {
                                 tenantsThatChanged.add(affected);
                             }
                         }
-                        // New tenants (not in existingTenantIds) are skipped here;
+                        // New tenants (not in tenantsInMemory) are skipped here;
                         // sameNumberOfTenants will be false, preventing early return.
                     }
 
-                    this.dangerous_allCUDsFromDb.clear();
-                    for (TenantConfig tenant : tenantsFromDb) {
-                        this.dangerous_allCUDsFromDb.add(tenant.tenantIdentifier.getConnectionUriDomain());
-                    }
-                    this.tenantConfigs = filteredTenantsFromDb;
+                    this.tenants = new TenantsSnapshot(tenantsInMemory.version + 1, filteredTenantsFromDb,
+                            tenantsFromDb);
 
                     if (tenantsThatChanged.isEmpty() && sameNumberOfTenants) {
                         return tenantsThatChanged;
@@ -330,47 +402,31 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
     }
 
     public void loadConfig(List<TenantIdentifier> tenantsThatChanged) throws IOException, InvalidConfigException {
-        Config.loadAllTenantConfig(main, this.tenantConfigs, tenantsThatChanged);
+        Config.loadAllTenantConfig(main, this.tenants.tenantConfigs, tenantsThatChanged);
     }
 
     public void loadConfigIncremental(List<TenantIdentifier> tenantsThatChanged)
             throws IOException, InvalidConfigException {
-        Config.loadConfigForChangedTenants(main, this.tenantConfigs, tenantsThatChanged);
+        Config.loadConfigForChangedTenants(main, this.tenants.tenantConfigs, tenantsThatChanged);
     }
 
     public void loadStorageLayer() throws IOException, InvalidConfigException {
-        StorageLayer.loadAllTenantStorage(main, this.tenantConfigs);
+        StorageLayer.loadAllTenantStorage(main, this.tenants.tenantConfigs);
     }
 
     public void loadStorageLayerIncremental(List<TenantIdentifier> tenantsThatChanged)
             throws IOException, InvalidConfigException {
-        StorageLayer.loadStorageForChangedTenants(main, this.tenantConfigs, tenantsThatChanged);
+        StorageLayer.loadStorageForChangedTenants(main, this.tenants.tenantConfigs, tenantsThatChanged);
     }
 
     public void loadFeatureFlag(List<TenantIdentifier> tenantsThatChanged) {
-        List<AppIdentifier> apps = new ArrayList<>();
-        Set<AppIdentifier> appsSet = new HashSet<>();
-        for (TenantConfig t : this.tenantConfigs) {
-            if (appsSet.contains(t.tenantIdentifier.toAppIdentifier())) {
-                continue;
-            }
-            apps.add(t.tenantIdentifier.toAppIdentifier());
-            appsSet.add(t.tenantIdentifier.toAppIdentifier());
-        }
+        List<AppIdentifier> apps = new ArrayList<>(this.tenants.tenantsByApp.keySet());
         FeatureFlag.loadForAllTenants(main, apps, tenantsThatChanged);
     }
 
     public void loadSigningKeys(List<TenantIdentifier> tenantsThatChanged)
             throws UnsupportedJWTSigningAlgorithmException {
-        List<AppIdentifier> apps = new ArrayList<>();
-        Set<AppIdentifier> appsSet = new HashSet<>();
-        for (TenantConfig t : this.tenantConfigs) {
-            if (appsSet.contains(t.tenantIdentifier.toAppIdentifier())) {
-                continue;
-            }
-            apps.add(t.tenantIdentifier.toAppIdentifier());
-            appsSet.add(t.tenantIdentifier.toAppIdentifier());
-        }
+        List<AppIdentifier> apps = new ArrayList<>(this.tenants.tenantsByApp.keySet());
         AccessTokenSigningKey.loadForAllTenants(main, apps, tenantsThatChanged);
         RefreshTokenKey.loadForAllTenants(main, apps, tenantsThatChanged);
         SAMLCertificate.loadForAllTenants(main, apps, tenantsThatChanged);
@@ -384,12 +440,21 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
     }
 
     public TenantConfig[] getAllTenants() {
-        // Capture the volatile reference first so the loop operates on a stable snapshot,
-        // even if a refresh reassigns tenantConfigs mid-iteration.
-        TenantConfig[] snapshot = this.tenantConfigs;
-        TenantConfig[] result = new TenantConfig[snapshot.length];
-        for (int i = 0; i < snapshot.length; i++) {
-            result[i] = new TenantConfig(snapshot[i]);
+        return copyOf(this.tenants.tenantConfigs);
+    }
+
+    /**
+     * The tenants loaded in this core right now. Unlike getAllTenants, nothing is copied, so the configs (and arrays)
+     * returned by it must not be modified.
+     */
+    public TenantsSnapshot getTenantsSnapshot() {
+        return this.tenants;
+    }
+
+    public static TenantConfig[] copyOf(TenantConfig[] tenantConfigs) {
+        TenantConfig[] result = new TenantConfig[tenantConfigs.length];
+        for (int i = 0; i < tenantConfigs.length; i++) {
+            result[i] = new TenantConfig(tenantConfigs[i]);
         }
         return result;
     }
@@ -409,7 +474,92 @@ public class MultitenancyHelper extends ResourceDistributor.SingletonResource {
     }
 
     public boolean isConnectionUriDomainPresentInDb(String cud) {
-        return this.dangerous_allCUDsFromDb.contains(cud);
+        return this.tenants.dangerous_allCUDsFromDb.contains(cud);
+    }
+
+    /**
+     * An immutable list of the tenants that are loaded in this core, with indexes to find a tenant, the tenants of
+     * an app, or the apps and tenants of a connection uri domain without going through the whole list. The version
+     * goes up by one every time the list is refreshed from the db.
+     */
+    public static class TenantsSnapshot {
+        public final long version;
+        // when the tenants in this snapshot were last known to be the same as in the db: when they were read from
+        // it, or when a later check of the tenants version showed that they had not changed since. This tells
+        // callers how stale the tenant list served from memory can be.
+        private volatile long loadedFromDbTime;
+        private final TenantConfig[] tenantConfigs;
+        private final Map<TenantIdentifier, TenantConfig> tenantsById;
+        // insertion ordered, so that the tenants in each array are in the same order as in tenantConfigs
+        private final Map<AppIdentifier, TenantConfig[]> tenantsByApp;
+        private final Map<String, TenantConfig[]> tenantsByConnectionUriDomain;
+
+        // when the core has `supertokens_saas_load_only_cud` set, the tenantConfigs array will be filtered
+        // based on the config value. However, we need to keep all the list of CUDs from the db to be able
+        // to check if the CUD is present in the DB or not, while processing the requests.
+        private final Set<String> dangerous_allCUDsFromDb;
+
+        private TenantsSnapshot(long version, TenantConfig[] tenantConfigs, TenantConfig[] allTenantsFromDb) {
+            this.version = version;
+            this.loadedFromDbTime = System.currentTimeMillis();
+            this.tenantConfigs = tenantConfigs;
+
+            Map<TenantIdentifier, TenantConfig> tenantsById = new HashMap<>();
+            Map<AppIdentifier, List<TenantConfig>> tenantsByApp = new LinkedHashMap<>();
+            Map<String, List<TenantConfig>> tenantsByConnectionUriDomain = new LinkedHashMap<>();
+            for (TenantConfig tenantConfig : tenantConfigs) {
+                TenantIdentifier tenantIdentifier = tenantConfig.tenantIdentifier;
+                tenantsById.put(tenantIdentifier, tenantConfig);
+                tenantsByApp.computeIfAbsent(tenantIdentifier.toAppIdentifier(), k -> new ArrayList<>())
+                        .add(tenantConfig);
+                tenantsByConnectionUriDomain.computeIfAbsent(tenantIdentifier.getConnectionUriDomain(),
+                        k -> new ArrayList<>()).add(tenantConfig);
+            }
+            this.tenantsById = tenantsById;
+            this.tenantsByApp = toArrays(tenantsByApp);
+            this.tenantsByConnectionUriDomain = toArrays(tenantsByConnectionUriDomain);
+
+            Set<String> cuds = new HashSet<>();
+            for (TenantConfig tenantConfig : allTenantsFromDb) {
+                cuds.add(tenantConfig.tenantIdentifier.getConnectionUriDomain());
+            }
+            this.dangerous_allCUDsFromDb = cuds;
+        }
+
+        private static <K> Map<K, TenantConfig[]> toArrays(Map<K, List<TenantConfig>> map) {
+            Map<K, TenantConfig[]> result = new LinkedHashMap<>();
+            for (Map.Entry<K, List<TenantConfig>> entry : map.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().toArray(new TenantConfig[0]));
+            }
+            return result;
+        }
+
+        public TenantConfig[] getTenants() {
+            return this.tenantConfigs;
+        }
+
+        public long getLoadedFromDbTime() {
+            return loadedFromDbTime;
+        }
+
+        private void confirmLoadedFromDb(long time) {
+            // only the cronjob calls this, so there is no other writer to race with
+            if (time > loadedFromDbTime) {
+                loadedFromDbTime = time;
+            }
+        }
+
+        public TenantConfig getTenant(TenantIdentifier tenantIdentifier) {
+            return this.tenantsById.get(tenantIdentifier);
+        }
+
+        public TenantConfig[] getTenantsForApp(AppIdentifier appIdentifier) {
+            return this.tenantsByApp.getOrDefault(appIdentifier, new TenantConfig[0]);
+        }
+
+        public TenantConfig[] getTenantsForConnectionUriDomain(String connectionUriDomain) {
+            return this.tenantsByConnectionUriDomain.getOrDefault(connectionUriDomain, new TenantConfig[0]);
+        }
     }
 
     public static boolean isEmailPasswordEnabled(TenantConfig tenantConfig, SemVer version) {
@@ -9,13 +9,13 @@ import io.supertokens.jwt.JWTSigningFunctions;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
-import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
 import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.session.jwt.JWT;
 import io.supertokens.session.jwt.JWT.JWTException;
 import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.signingkeys.ParsedSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.utils.Utils;
 
@@ -54,7 +54,7 @@ public class OAuthToken {
             @Nonnull Main main, @Nonnull String token)
             throws TenantOrAppNotFoundException, TryRefreshTokenException, StorageQueryException,
             UnsupportedJWTSigningAlgorithmException, StorageTransactionLogicException {
-        List<JWTSigningKeyInfo> keyInfoList = SigningKeys.getInstance(appIdentifier, main).getAllKeys();
+        SigningKeys signingKeys = SigningKeys.getInstance(appIdentifier, main);
         Exception error = null;
         JWT.JWTInfo jwtInfo = null;
         JWT.JWTPreParseInfo preParseJWTInfo = null;
@@ -66,17 +66,31 @@ public class OAuthToken {
             throw new TryRefreshTokenException(e);
         }
 
-        for (JWTSigningKeyInfo keyInfo : keyInfoList) {
+        // Tokens we sign always have a kid, so we only need to check the signature against that key. Only tokens
+        // with a legacy header (which have no kid) are checked against all keys.
+        List<JWTSigningKeyInfo> keysToTry;
+        if (preParseJWTInfo.kid != null) {
+            JWTSigningKeyInfo keyInfo = signingKeys.getSigningKeyById(preParseJWTInfo.kid);
+            if (keyInfo == null) {
+                throw new TryRefreshTokenException("Key not found");
+            }
+            keysToTry = List.of(keyInfo);
+        } else {
+            keysToTry = signingKeys.getAllKeys();
+        }
+
+        for (JWTSigningKeyInfo keyInfo : keysToTry) {
             try {
-                jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo,
-                        ((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey);
+                ParsedSigningKey parsedKey = signingKeys.getParsedKey(keyInfo);
+                jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo, parsedKey.getPublicKey(),
+                        parsedKey.algorithm);
                 error = null;
                 break;
             } catch (NoSuchAlgorithmException e) {
                 // This basically should never happen, but it means, that can't verify any
                 // tokens, no need to retry
                 throw new TryRefreshTokenException(e);
-            } catch (KeyException | JWTException e) {
+            } catch (KeyException | InvalidKeySpecException | JWTException e) {
                 error = e;
             }
         }
@@ -141,17 +155,19 @@ public class OAuthToken {
             }
         }
 
+        SigningKeys signingKeys = SigningKeys.getInstance(appIdentifier, main);
         JWTSigningKeyInfo keyToUse;
         if (useDynamicSigningKey) {
-            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(
-                    SigningKeys.getInstance(appIdentifier, main).getLatestIssuedDynamicKey());
+            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(signingKeys.getLatestIssuedDynamicKey());
         } else {
-            keyToUse = SigningKeys.getInstance(appIdentifier, main)
-                    .getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
+            keyToUse = signingKeys.getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
         }
 
-        token = JWTSigningFunctions.createJWTToken(JWTSigningKey.SupportedAlgorithms.RS256, new HashMap<>(),
-                    payload, null, payload.get("exp").getAsLong(), payload.get("iat").getAsLong(), keyToUse);
+        // the dynamic keys use the algorithm set by access_token_signing_algorithm
+        ParsedSigningKey parsedKeyToUse = signingKeys.getParsedKey(keyToUse);
+        token = JWTSigningFunctions.createJWTToken(parsedKeyToUse.algorithm, new HashMap<>(),
+                    payload, null, payload.get("exp").getAsLong(), payload.get("iat").getAsLong(),
+                    parsedKeyToUse);
         return token;
     }
 }
@@ -0,0 +1,173 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.exceptions.AccessTokenPayloadError;
+import io.supertokens.exceptions.TokenTheftDetectedException;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.utils.SemVer;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Session refreshes that are running right now. When a frontend sends a few requests at the same time with an expired
+ * access token, the backend calls refresh once for each of them, with the same refresh token. Instead of each of
+ * these running its own transaction on the same session row (and getting different tokens, some of which are
+ * already replaced by the time they are returned), only the first one is done, and the others wait for it and get
+ * the same result.
+ *
+ * Calls are only joined if everything that changes the result (the refresh token and the refresh options) is the
+ * same. The anti-csrf check is done by each caller before they get here.
+ */
+public class InFlightRefreshes extends ResourceDistributor.SingletonResource {
+    private static final String RESOURCE_KEY = "io.supertokens.session.InFlightRefreshes";
+
+    private final Map<Key, CompletableFuture<SessionInformationHolder>> refreshes = new ConcurrentHashMap<>();
+
+    private InFlightRefreshes() {
+    }
+
+    public static InFlightRefreshes getInstance(Main main) {
+        try {
+            return (InFlightRefreshes) main.getResourceDistributor()
+                    .getResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            return (InFlightRefreshes) main.getResourceDistributor()
+                    .setResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY, new InFlightRefreshes());
+        }
+    }
+
+    public SessionInformationHolder refresh(Key key, Refresh refresh)
+            throws StorageTransactionLogicException, UnauthorisedException, StorageQueryException,
+            TokenTheftDetectedException, UnsupportedJWTSigningAlgorithmException, AccessTokenPayloadError,
+            TenantOrAppNotFoundException {
+        CompletableFuture<SessionInformationHolder> ourRefresh = new CompletableFuture<>();
+        CompletableFuture<SessionInformationHolder> inFlightRefresh = refreshes.putIfAbsent(key, ourRefresh);
+        if (inFlightRefresh != null) {
+            return waitFor(inFlightRefresh);
+        }
+
+        try {
+            SessionInformationHolder result = refresh.run();
+            ourRefresh.complete(result);
+            return result;
+        } catch (Throwable t) {
+            ourRefresh.completeExceptionally(t);
+            throw t;
+        } finally {
+            refreshes.remove(key, ourRefresh);
+        }
+    }
+
+    private static SessionInformationHolder waitFor(CompletableFuture<SessionInformationHolder> refresh)
+            throws StorageTransactionLogicException, UnauthorisedException, StorageQueryException,
+            TokenTheftDetectedException, UnsupportedJWTSigningAlgorithmException, AccessTokenPayloadError,
+            TenantOrAppNotFoundException {
+        try {
+            return refresh.join();
+        } catch (CompletionException e) {
+            // the refresh we waited for failed, so we fail in the same way
+            Throwable cause = e.getCause();
+            if (cause instanceof StorageTransactionLogicException) {
+                throw (StorageTransactionLogicException) cause;
+            } else if (cause instanceof UnauthorisedException) {
+                throw (UnauthorisedException) cause;
+            } else if (cause instanceof StorageQueryException) {
+                throw (StorageQueryException) cause;
+            } else if (cause instanceof TokenTheftDetectedException) {
+                throw (TokenTheftDetectedException) cause;
+            } else if (cause instanceof UnsupportedJWTSigningAlgorithmException) {
+                throw (UnsupportedJWTSigningAlgorithmException) cause;
+            } else if (cause instanceof AccessTokenPayloadError) {
+                throw (AccessTokenPayloadError) cause;
+            } else if (cause instanceof TenantOrAppNotFoundException) {
+                throw (TenantOrAppNotFoundException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    public interface Refresh {
+        SessionInformationHolder run()
+                throws StorageTransactionLogicException, UnauthorisedException, StorageQueryException,
+                TokenTheftDetectedException, UnsupportedJWTSigningAlgorithmException, AccessTokenPayloadError,
+                TenantOrAppNotFoundException;
+    }
+
+    public static class Key {
+        private final AppIdentifier appIdentifier;
+        private final String refreshToken;
+        private final boolean enableAntiCsrf;
+        private final AccessToken.VERSION accessTokenVersion;
+        @Nullable
+        private final Boolean shouldUseStaticKey;
+        private final SemVer cdiVersion;
+        @Nullable
+        private final Long accessTokenValidity;
+
+        public Key(AppIdentifier appIdentifier, String refreshToken, boolean enableAntiCsrf,
+                   AccessToken.VERSION accessTokenVersion, @Nullable Boolean shouldUseStaticKey, SemVer cdiVersion,
+                   @Nullable Long accessTokenValidity) {
+            this.appIdentifier = appIdentifier;
+            this.refreshToken = refreshToken;
+            this.enableAntiCsrf = enableAntiCsrf;
+            this.accessTokenVersion = accessTokenVersion;
+            this.shouldUseStaticKey = shouldUseStaticKey;
+            this.cdiVersion = cdiVersion;
+            this.accessTokenValidity = accessTokenValidity;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return enableAntiCsrf == other.enableAntiCsrf
+                    && refreshToken.equals(other.refreshToken)
+                    && appIdentifier.equals(other.appIdentifier)
+                    && accessTokenVersion == other.accessTokenVersion
+                    && Objects.equals(shouldUseStaticKey, other.shouldUseStaticKey)
+                    && Objects.equals(cdiVersion, other.cdiVersion)
+                    && Objects.equals(accessTokenValidity, other.accessTokenValidity);
+        }
+
+        @Override
+        public int hashCode() {
+            // the refresh token is unique enough on its own
+            return refreshToken.hashCode();
+        }
+    }
+}
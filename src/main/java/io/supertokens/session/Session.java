@@ -16,7 +16,9 @@
 
 package io.supertokens.session;
 
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.JsonPrimitive;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.auditlog.AuditLog;
@@ -27,6 +29,7 @@ import io.supertokens.config.CoreConfig;
 import io.supertokens.exceptions.AccessTokenPayloadError;
 import io.supertokens.exceptions.AccessTokenValidityOutOfRangeException;
 import io.supertokens.exceptions.RefreshTokenReuseSubtype;
+import io.supertokens.exceptions.SessionVersionConflictException;
 import io.supertokens.exceptions.TokenTheftDetectedException;
 import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.exceptions.UnauthorisedException;
@@ -774,9 +777,15 @@ public class Session {
         TenantIdentifier tenantIdentifier = refreshTokenInfo.tenantIdentifier;
         Storage storage = StorageLayer.getStorage(refreshTokenInfo.tenantIdentifier, main);
         validateAccessTokenValidityOverride(tenantIdentifier, main, accessTokenValidity);
-        return refreshSessionHelper(
+
+        // Frontends often send a few requests in parallel that all try to refresh with the same token. These are
+        // joined into one refresh so that they don't each run a transaction on the same session (and, for CDI >=
+        // 5.6, rotate over each other's new tokens). Each caller has done its own anti-csrf check above.
+        InFlightRefreshes.Key key = new InFlightRefreshes.Key(appIdentifier, refreshToken, enableAntiCsrf,
+                accessTokenVersion, shouldUseStaticKey, cdiVersion, accessTokenValidity);
+        return InFlightRefreshes.getInstance(main).refresh(key, () -> refreshSessionHelper(
                 tenantIdentifier, storage, main, refreshToken, refreshTokenInfo, enableAntiCsrf, accessTokenVersion,
-                shouldUseStaticKey, cdiVersion, accessTokenValidity);
+                shouldUseStaticKey, cdiVersion, accessTokenValidity));
     }
 
     // True when the presented refresh token is a child (via its token-internal parent hash) of the refresh
@@ -1384,22 +1393,146 @@ public class Session {
                                      String sessionHandle, @Nullable JsonObject sessionData,
                                      @Nullable JsonObject jwtData, AccessToken.VERSION version)
             throws StorageQueryException, UnauthorisedException, AccessTokenPayloadError {
+        try {
+            updateSession(tenantIdentifier, storage, sessionHandle, sessionData, jwtData, version, null);
+        } catch (SessionVersionConflictException e) {
+            throw new IllegalStateException("should never happen");
+        }
+    }
+
+    /**
+     * Updates the session data and / or the access token payload of a session, and returns the new version of the
+     * session (see {@link #getSessionVersion}).
+     *
+     * If expectedSessionVersion is given, the session is only updated if it has not been changed since the caller
+     * read that version. Otherwise, SessionVersionConflictException is thrown with the current version, so that the
+     * caller can read the session again and retry. This reads and writes the session in one transaction, which holds
+     * a lock on it, so two updates that expect the same version can't both succeed. It is only supported by SQL
+     * storages (see {@link #supportsVersionCheckedUpdates}).
+     */
+    public static String updateSession(TenantIdentifier tenantIdentifier, Storage storage,
+                                       String sessionHandle, @Nullable JsonObject sessionData,
+                                       @Nullable JsonObject jwtData, AccessToken.VERSION version,
+                                       @Nullable String expectedSessionVersion)
+            throws StorageQueryException, UnauthorisedException, AccessTokenPayloadError,
+            SessionVersionConflictException {
         if (jwtData != null &&
                 Arrays.stream(AccessTokenInfo.getRequiredAndProtectedProps(version)).anyMatch(jwtData::has)) {
             throw new AccessTokenPayloadError("The user payload contains protected field");
         }
 
-        io.supertokens.pluginInterface.session.SessionInfo session = StorageUtils.getSessionStorage(storage)
-                .getSession(tenantIdentifier, sessionHandle);
-        // If there is no session, or session is expired
-        if (session == null || session.expiry <= System.currentTimeMillis()) {
-            throw new UnauthorisedException("Session does not exist.");
+        if (expectedSessionVersion == null) {
+            io.supertokens.pluginInterface.session.SessionInfo session = StorageUtils.getSessionStorage(storage)
+                    .getSession(tenantIdentifier, sessionHandle);
+            // If there is no session, or session is expired
+            if (session == null || session.expiry <= System.currentTimeMillis()) {
+                throw new UnauthorisedException("Session does not exist.");
+            }
+
+            int numberOfRowsAffected = StorageUtils.getSessionStorage(storage)
+                    .updateSession(tenantIdentifier, sessionHandle, sessionData, jwtData);
+            if (numberOfRowsAffected != 1) {
+                throw new UnauthorisedException("Session does not exist.");
+            }
+            return getSessionVersion(sessionData == null ? session.userDataInDatabase : sessionData,
+                    jwtData == null ? session.userDataInJWT : jwtData);
         }
 
-        int numberOfRowsAffected = StorageUtils.getSessionStorage(storage)
-                .updateSession(tenantIdentifier, sessionHandle, sessionData, jwtData);
-        if (numberOfRowsAffected != 1) {
-            throw new UnauthorisedException("Session does not exist.");
+        if (!supportsVersionCheckedUpdates(storage)) {
+            // the APIs check this before calling this function
+            throw new IllegalStateException("should never happen");
+        }
+
+        SessionSQLStorage sessionStorage = (SessionSQLStorage) StorageUtils.getSessionStorage(storage);
+        try {
+            return sessionStorage.startTransaction(con -> {
+                try {
+                    io.supertokens.pluginInterface.session.SessionInfo session = sessionStorage
+                            .getSessionInfo_Transaction(tenantIdentifier, con, sessionHandle);
+                    // If there is no session, or session is expired
+                    if (session == null || session.expiry <= System.currentTimeMillis()) {
+                        sessionStorage.commitTransaction(con);
+                        throw new UnauthorisedException("Session does not exist.");
+                    }
+
+                    String currentSessionVersion = getSessionVersion(session);
+                    if (!currentSessionVersion.equals(expectedSessionVersion)) {
+                        sessionStorage.commitTransaction(con);
+                        throw new SessionVersionConflictException(currentSessionVersion);
+                    }
+
+                    int numberOfRowsAffected = sessionStorage.updateSession_Transaction(tenantIdentifier, con,
+                            sessionHandle, sessionData, jwtData);
+                    if (numberOfRowsAffected != 1) {
+                        sessionStorage.commitTransaction(con);
+                        throw new UnauthorisedException("Session does not exist.");
+                    }
+                    sessionStorage.commitTransaction(con);
+                    return getSessionVersion(sessionData == null ? session.userDataInDatabase : sessionData,
+                            jwtData == null ? session.userDataInJWT : jwtData);
+                } catch (UnauthorisedException | SessionVersionConflictException e) {
+                    throw new StorageTransactionLogicException(e);
+                }
+            });
+        } catch (StorageTransactionLogicException e) {
+            if (e.actualException instanceof UnauthorisedException) {
+                throw (UnauthorisedException) e.actualException;
+            } else if (e.actualException instanceof SessionVersionConflictException) {
+                throw (SessionVersionConflictException) e.actualException;
+            }
+            throw new StorageQueryException(e.actualException);
+        }
+    }
+
+    public static boolean supportsVersionCheckedUpdates(Storage storage) {
+        return StorageUtils.getSessionStorage(storage).getType() == STORAGE_TYPE.SQL;
+    }
+
+    /**
+     * The version of the session data and access token payload of a session. It is a hash of the two, so it does
+     * not need to be stored, and it changes whenever either of them is updated to something else. The keys of the
+     * objects are sorted before hashing, so the version is the same for a storage that reorders them.
+     */
+    public static String getSessionVersion(io.supertokens.pluginInterface.session.SessionInfo session) {
+        return getSessionVersion(session.userDataInDatabase, session.userDataInJWT);
+    }
+
+    private static String getSessionVersion(JsonObject sessionData, JsonObject jwtData) {
+        StringBuilder canonicalJson = new StringBuilder();
+        // both are JSON objects, so this can't be the same for two different pairs
+        appendCanonicalJson(canonicalJson, sessionData);
+        appendCanonicalJson(canonicalJson, jwtData);
+        try {
+            return Utils.hashSHA256(canonicalJson.toString());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void appendCanonicalJson(StringBuilder sb, JsonElement element) {
+        if (element.isJsonObject()) {
+            List<String> keys = new ArrayList<>(element.getAsJsonObject().keySet());
+            Collections.sort(keys);
+            sb.append('{');
+            for (int i = 0; i < keys.size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                sb.append(new JsonPrimitive(keys.get(i))).append(':');
+                appendCanonicalJson(sb, element.getAsJsonObject().get(keys.get(i)));
+            }
+            sb.append('}');
+        } else if (element.isJsonArray()) {
+            sb.append('[');
+            for (int i = 0; i < element.getAsJsonArray().size(); i++) {
+                if (i > 0) {
+                    sb.append(',');
+                }
+                appendCanonicalJson(sb, element.getAsJsonArray().get(i));
+            }
+            sb.append(']');
+        } else {
+            sb.append(element);
         }
     }
 
@@ -26,11 +26,9 @@ import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.exceptions.AccessTokenPayloadError;
 import io.supertokens.exceptions.TryRefreshTokenException;
-import io.supertokens.jwt.JWTSigningFunctions;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
-import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
 import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
@@ -39,6 +37,7 @@ import io.supertokens.session.info.TokenInfo;
 import io.supertokens.session.jwt.JWT;
 import io.supertokens.session.jwt.JWT.JWTException;
 import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.signingkeys.ParsedSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.utils.SemVer;
 import io.supertokens.utils.Utils;
@@ -46,13 +45,13 @@ import org.jetbrains.annotations.TestOnly;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
 import java.security.InvalidKeyException;
 import java.security.KeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -62,11 +61,15 @@ public class AccessToken {
 
     private static AccessTokenInfo getInfoFromAccessToken(AppIdentifier appIdentifier,
                                                           @Nonnull Main main, @Nonnull String token, boolean retry,
-                                                          boolean doAntiCsrfCheck)
+                                                          boolean doAntiCsrfCheck,
+                                                          @Nullable VerifiedAccessTokenCache cache,
+                                                          @Nullable ByteBuffer cacheKey)
             throws StorageQueryException, StorageTransactionLogicException, TryRefreshTokenException,
             TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException {
-        List<JWTSigningKeyInfo> keyInfoList = SigningKeys.getInstance(appIdentifier, main).getAllKeys();
+        SigningKeys signingKeys = SigningKeys.getInstance(appIdentifier, main);
+        List<JWTSigningKeyInfo> keyInfoList = signingKeys.getAllKeys();
         Exception error = null;
+        String verifiedWithKeyId = null;
         JWT.JWTInfo jwtInfo = null;
         JWT.JWTPreParseInfo preParseJWTInfo = null;
         try {
@@ -79,15 +82,17 @@ public class AccessToken {
         if (preParseJWTInfo.version != VERSION.V1 && preParseJWTInfo.version != VERSION.V2) {
             String kid = preParseJWTInfo.kid;
 
-            JWTSigningKeyInfo keyInfo = SigningKeys.getInstance(appIdentifier, main).getSigningKeyById(kid);
+            JWTSigningKeyInfo keyInfo = signingKeys.getSigningKeyById(kid);
 
             if (keyInfo == null) {
                 error = new TryRefreshTokenException("Key not found");
             } else {
                 try {
-                    jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo,
-                            ((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey);
-                } catch (NoSuchAlgorithmException e) {
+                    ParsedSigningKey parsedKey = signingKeys.getParsedKey(keyInfo);
+                    jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo, parsedKey.getPublicKey(),
+                            parsedKey.algorithm);
+                    verifiedWithKeyId = keyInfo.keyId;
+                } catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
                     // This basically should never happen, but it means, that can't verify any tokens, no need to retry
                     throw new TryRefreshTokenException(e);
                 } catch (JWTException e) {
@@ -99,16 +104,19 @@ public class AccessToken {
                 }
             }
         } else {
+            // V1 and V2 tokens have a fixed header without a kid, so we don't know which key signed them
             for (JWTSigningKeyInfo keyInfo : keyInfoList) {
                 try {
-                    jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo,
-                            ((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey);
+                    ParsedSigningKey parsedKey = signingKeys.getParsedKey(keyInfo);
+                    jwtInfo = JWT.verifyJWTAndGetPayload(preParseJWTInfo, parsedKey.getPublicKey(),
+                            parsedKey.algorithm);
+                    verifiedWithKeyId = keyInfo.keyId;
                     error = null;
                     break;
                 } catch (NoSuchAlgorithmException e) {
                     // This basically should never happen, but it means, that can't verify any tokens, no need to retry
                     throw new TryRefreshTokenException(e);
-                } catch (KeyException | JWTException e) {
+                } catch (KeyException | InvalidKeySpecException | JWTException e) {
                     /*
                      * There are a couple of reasons the verification could fail:
                      * 1) The access token is "corrupted" - this is a rare scenario since it probably means
@@ -144,7 +152,8 @@ public class AccessToken {
 
                 // remove key from memory and retry
                 SigningKeys.getInstance(appIdentifier, main).updateKeyCacheIfNotChanged(keyInfoList);
-                return AccessToken.getInfoFromAccessToken(appIdentifier, main, token, false, doAntiCsrfCheck);
+                return AccessToken.getInfoFromAccessToken(appIdentifier, main, token, false, doAntiCsrfCheck, cache,
+                        cacheKey);
             }
             throw new TryRefreshTokenException(error);
         }
@@ -154,11 +163,11 @@ public class AccessToken {
             throw new TryRefreshTokenException("Access token expired");
         }
 
-        if (doAntiCsrfCheck && tokenInfo.antiCsrfToken == null) {
-            throw new TryRefreshTokenException(
-                    "Access token does not contain all the information. Maybe the structure has changed?");
+        if (cache != null) {
+            cache.put(cacheKey, appIdentifier, tokenInfo, verifiedWithKeyId);
         }
 
+        checkAntiCsrfTokenExists(tokenInfo, doAntiCsrfCheck);
         return tokenInfo;
     }
 
@@ -167,7 +176,27 @@ public class AccessToken {
                                                          boolean doAntiCsrfCheck)
             throws StorageQueryException, StorageTransactionLogicException, TryRefreshTokenException,
             TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException {
-        return getInfoFromAccessToken(appIdentifier, main, token, true, doAntiCsrfCheck);
+        VerifiedAccessTokenCache cache = VerifiedAccessTokenCache.getInstance(appIdentifier, main);
+        if (cache == null) {
+            return getInfoFromAccessToken(appIdentifier, main, token, true, doAntiCsrfCheck, null, null);
+        }
+
+        ByteBuffer cacheKey = VerifiedAccessTokenCache.getKey(token);
+        AccessTokenInfo tokenInfo = cache.get(cacheKey, appIdentifier, SigningKeys.getInstance(appIdentifier, main));
+        if (tokenInfo == null) {
+            return getInfoFromAccessToken(appIdentifier, main, token, true, doAntiCsrfCheck, cache, cacheKey);
+        }
+
+        checkAntiCsrfTokenExists(tokenInfo, doAntiCsrfCheck);
+        return tokenInfo;
+    }
+
+    private static void checkAntiCsrfTokenExists(AccessTokenInfo tokenInfo, boolean doAntiCsrfCheck)
+            throws TryRefreshTokenException {
+        if (doAntiCsrfCheck && tokenInfo.antiCsrfToken == null) {
+            throw new TryRefreshTokenException(
+                    "Access token does not contain all the information. Maybe the structure has changed?");
+        }
     }
 
     @TestOnly
@@ -276,8 +305,6 @@ public class AccessToken {
             NoSuchAlgorithmException, TenantOrAppNotFoundException, InvalidKeySpecException, SignatureException,
             AccessTokenPayloadError, UnsupportedJWTSigningAlgorithmException {
 
-        Utils.PubPriKey signingKey;
-
         long now = System.currentTimeMillis();
         long expires;
         if (expiryTime != null) {
@@ -298,24 +325,27 @@ public class AccessToken {
                 expires,
                 parentRefreshTokenHash1, userData, antiCsrfToken, now, version, tenantIdentifier);
 
+        SigningKeys signingKeys = SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main);
         JWTSigningKeyInfo keyToUse;
         if (useStaticKey) {
-            keyToUse = SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main)
-                    .getStaticKeyForAlgorithm(JWTSigningKey.SupportedAlgorithms.RS256);
+            keyToUse = signingKeys.getStaticKeyForAlgorithm(
+                    Config.getConfig(tenantIdentifier, main).getAccessTokenSigningAlgorithm());
         } else {
-            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(
-                    SigningKeys.getInstance(tenantIdentifier.toAppIdentifier(), main).getLatestIssuedDynamicKey());
+            keyToUse = Utils.getJWTSigningKeyInfoFromKeyInfo(signingKeys.getLatestIssuedDynamicKey());
         }
+        ParsedSigningKey parsedKeyToUse = signingKeys.getParsedKey(keyToUse);
 
         String token;
         if (version != VERSION.V1 && version != VERSION.V2) {
-            HashMap<String, Object> headers = new HashMap<>();
-            headers.put("version", getVersionStringFromAccessTokenVersion(version));
-            token = JWTSigningFunctions.createJWTToken(JWTSigningKey.SupportedAlgorithms.RS256, headers,
-                    accessToken.toJSON(), null, expires, now, keyToUse);
+            // this is signed with the algorithm set by access_token_signing_algorithm, except while the previous key
+            // is still used after it was changed (see SigningKeys.getLatestIssuedDynamicKey)
+            token = JWT.createAndSignAccessToken(accessToken.toJSON(), parsedKeyToUse, version);
         } else {
-            signingKey = new Utils.PubPriKey(keyToUse.keyString);
-            token = JWT.createAndSignLegacyAccessToken(accessToken.toJSON(), signingKey.privateKey, version);
+            // the header of V1 and V2 tokens is fixed to RS256
+            if (parsedKeyToUse.algorithm != JWTSigningKey.SupportedAlgorithms.RS256) {
+                throw new UnsupportedJWTSigningAlgorithmException();
+            }
+            token = JWT.createAndSignLegacyAccessToken(accessToken.toJSON(), parsedKeyToUse.getPrivateKey(), version);
         }
 
         return new TokenInfo(token, accessToken.expiryTime, accessToken.timeCreated);
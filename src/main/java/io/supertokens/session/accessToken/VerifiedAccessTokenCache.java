@@ -0,0 +1,162 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.session.accessToken;
+
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.config.Config;
+import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.pluginInterface.exceptions.StorageQueryException;
+import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.session.accessToken.AccessToken.AccessTokenInfo;
+import io.supertokens.signingkeys.SigningKeys;
+import io.supertokens.utils.Utils;
+
+import javax.annotation.Nullable;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Access tokens of an app whose signature has already been verified, keyed by the SHA-256 digest of the token. An
+ * entry is used until the token expires, and only while the key that signed the token is still one of the app's
+ * signing keys. This is only used if access_token_verification_cache_size is more than 0.
+ *
+ * When the cache is full, expired tokens are removed first, and then some of the other tokens (in no particular
+ * order) until 10% of the space is free again.
+ */
+public class VerifiedAccessTokenCache extends ResourceDistributor.SingletonResource {
+    private static final String RESOURCE_KEY = "io.supertokens.session.accessToken.VerifiedAccessTokenCache";
+
+    private final int maxSize;
+    private final Map<ByteBuffer, Entry> entries = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private VerifiedAccessTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * @return the cache for the app, or null if access_token_verification_cache_size is 0
+     */
+    @Nullable
+    public static VerifiedAccessTokenCache getInstance(AppIdentifier appIdentifier, Main main)
+            throws TenantOrAppNotFoundException {
+        int maxSize = Config.getBaseConfig(main).getAccessTokenVerificationCacheSize();
+        if (maxSize <= 0) {
+            return null;
+        }
+        try {
+            return (VerifiedAccessTokenCache) main.getResourceDistributor()
+                    .getResource(appIdentifier, RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            // appIdentifier comes from the API request, so we need to check if the app exists before creating a cache
+            // for it, otherwise someone could fill up memory by making requests for apps that don't exist.
+            if (!Multitenancy.isTenantPresent(main, appIdentifier.getAsPublicTenantIdentifier())) {
+                throw e;
+            }
+            return (VerifiedAccessTokenCache) main.getResourceDistributor()
+                    .setResource(appIdentifier, RESOURCE_KEY, new VerifiedAccessTokenCache(maxSize));
+        }
+    }
+
+    static ByteBuffer getKey(String token) {
+        try {
+            return ByteBuffer.wrap(Utils.hashSHA256Bytes(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Nullable
+    AccessTokenInfo get(ByteBuffer key, AppIdentifier appIdentifier, SigningKeys signingKeys)
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
+            UnsupportedJWTSigningAlgorithmException {
+        Entry entry = entries.get(key);
+        // the same instance is used for requests that only differ in an unconfigured connectionUriDomain (see
+        // ResourceDistributor.getResource), but the tenant in AccessTokenInfo depends on it
+        if (entry == null || !entry.appIdentifier.equals(appIdentifier)) {
+            misses.increment();
+            return null;
+        }
+        if (entry.accessTokenInfo.expiryTime < System.currentTimeMillis()
+                || signingKeys.getSigningKeyById(entry.keyId) == null) {
+            entries.remove(key, entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.accessTokenInfo;
+    }
+
+    void put(ByteBuffer key, AppIdentifier appIdentifier, AccessTokenInfo accessTokenInfo, String keyId) {
+        if (entries.size() >= maxSize) {
+            evict();
+        }
+        entries.put(key, new Entry(appIdentifier, accessTokenInfo, keyId));
+    }
+
+    private synchronized void evict() {
+        if (entries.size() < maxSize) {
+            // some other thread already made space
+            return;
+        }
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.accessTokenInfo.expiryTime < now);
+
+        int targetSize = maxSize - Math.max(1, maxSize / 10);
+        Iterator<ByteBuffer> iterator = entries.keySet().iterator();
+        while (entries.size() > targetSize && iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    public JsonObject getStats() {
+        long hits = this.hits.sum();
+        long misses = this.misses.sum();
+
+        JsonObject stats = new JsonObject();
+        stats.addProperty("size", entries.size());
+        stats.addProperty("maxSize", maxSize);
+        stats.addProperty("hits", hits);
+        stats.addProperty("misses", misses);
+        stats.addProperty("hitRate", hits + misses == 0 ? 0.0 : (double) hits / (hits + misses));
+        return stats;
+    }
+
+    private static class Entry {
+        final AppIdentifier appIdentifier;
+        final AccessTokenInfo accessTokenInfo;
+        final String keyId;
+
+        Entry(AppIdentifier appIdentifier, AccessTokenInfo accessTokenInfo, String keyId) {
+            this.appIdentifier = appIdentifier;
+            this.accessTokenInfo = accessTokenInfo;
+            this.keyId = keyId;
+        }
+    }
+}
@@ -21,40 +21,59 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.JsonPrimitive;
 import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.signingkeys.ParsedSigningKey;
 import io.supertokens.utils.Utils;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class JWT {
-    private static String HEADERv1 = null;
-    private static String HEADERv2 = null;
+    private static final String HEADERv1 = createLegacyHeader("1");
+    private static final String HEADERv2 = createLegacyHeader("2");
 
-    private static void initHeader() {
-        if (HEADERv1 == null) {
-            JsonObject header = new JsonObject();
-            header.addProperty("alg", "RS256");
-            header.addProperty("typ", "JWT");
-            header.addProperty("version", "1");
-            JWT.HEADERv1 = Utils.convertToBase64(header.toString());
-        }
-        if (HEADERv2 == null) {
-            JsonObject header = new JsonObject();
-            header.addProperty("alg", "RS256");
-            header.addProperty("typ", "JWT");
-            header.addProperty("version", "2");
-            JWT.HEADERv2 = Utils.convertToBase64(header.toString());
-        }
+    private static final Base64.Encoder BASE64URL_ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final int MAX_CACHED_HEADERS = 256;
+
+    // our headers are about 100 characters long, so anything much longer than that wasn't made by us
+    private static final int MAX_CACHED_HEADER_LENGTH = 512;
+
+    // All tokens signed with the same key have the same header, so we only decode and parse a header the first time
+    // we see it. This is cleared once it gets too big, since a new key (and so a new header) is made every day.
+    // Only headers that we made, or of tokens whose signature has been verified, are added to parsedHeaders, so that
+    // clients can't fill it up (and so keep clearing it) with headers of their own.
+    private static final Map<String, ParsedHeader> parsedHeaders = new ConcurrentHashMap<>();
+
+    private static String createLegacyHeader(String version) {
+        JsonObject header = new JsonObject();
+        header.addProperty("alg", "RS256");
+        header.addProperty("typ", "JWT");
+        header.addProperty("version", version);
+        return Utils.convertToBase64(header.toString());
     }
 
     public static String createAndSignLegacyAccessToken(JsonElement jsonObj, String privateSigningKey,
                                                         AccessToken.VERSION version)
             throws InvalidKeyException, NoSuchAlgorithmException, InvalidKeySpecException, SignatureException {
-        initHeader();
+        return createAndSignLegacyAccessToken(jsonObj, Utils.getPrivateKeyFromString(privateSigningKey,
+                JWTSigningKey.SupportedAlgorithms.RS256), version);
+    }
+
+    public static String createAndSignLegacyAccessToken(JsonElement jsonObj, PrivateKey privateSigningKey,
+                                                        AccessToken.VERSION version)
+            throws InvalidKeyException, SignatureException {
         String payload;
         String header;
         header = version == AccessToken.VERSION.V1 ? JWT.HEADERv1 : JWT.HEADERv2;
@@ -64,24 +83,124 @@ public class JWT {
         return header + "." + payload + "." + signature;
     }
 
+    /**
+     * Creates a V3+ access token. The output is the same as what JWTSigningFunctions.createJWTToken makes for these
+     * tokens, but it is written directly into one byte array: the header is only built once per key and version, and
+     * the payload and signature are base64url encoded without going through intermediate strings.
+     */
+    public static String createAndSignAccessToken(JsonObject payload, ParsedSigningKey signingKey,
+                                                  AccessToken.VERSION version)
+            throws InvalidKeyException, SignatureException {
+        byte[] header = getEncodedHeader(signingKey, version).getBytes(StandardCharsets.US_ASCII);
+        byte[] encodedPayload = BASE64URL_ENCODER.encode(toPayloadJson(payload).getBytes(StandardCharsets.UTF_8));
+
+        byte[] signingInput = new byte[header.length + 1 + encodedPayload.length];
+        System.arraycopy(header, 0, signingInput, 0, header.length);
+        signingInput[header.length] = '.';
+        System.arraycopy(encodedPayload, 0, signingInput, header.length + 1, encodedPayload.length);
+
+        byte[] encodedSignature = BASE64URL_ENCODER.encode(
+                Utils.signWithPrivateKey(signingInput, signingKey.getPrivateKey(), signingKey.algorithm));
+
+        byte[] token = Arrays.copyOf(signingInput, signingInput.length + 1 + encodedSignature.length);
+        token[signingInput.length] = '.';
+        System.arraycopy(encodedSignature, 0, token, signingInput.length + 1, encodedSignature.length);
+        return new String(token, StandardCharsets.US_ASCII);
+    }
+
+    private static String getEncodedHeader(ParsedSigningKey signingKey, AccessToken.VERSION version) {
+        // this is kept on the key itself, since key ids are only unique within an app
+        String encodedHeader = signingKey.getEncodedAccessTokenHeader(version);
+        if (encodedHeader == null) {
+            String versionString = AccessToken.getVersionStringFromAccessTokenVersion(version);
+            JsonObject header = new JsonObject();
+            header.addProperty("alg", signingKey.algorithm.name());
+            header.addProperty("typ", "JWT");
+            header.addProperty("version", versionString);
+            header.addProperty("kid", signingKey.keyId);
+            encodedHeader = BASE64URL_ENCODER.encodeToString(header.toString().getBytes(StandardCharsets.UTF_8));
+
+            signingKey.setEncodedAccessTokenHeader(version, encodedHeader);
+            cacheParsedHeader(encodedHeader, new ParsedHeader(version, signingKey.keyId, signingKey.algorithm));
+        }
+        return encodedHeader;
+    }
+
+    private static String toPayloadJson(JsonObject payload) {
+        // auth0's JWT builder, which we used to create these tokens before, leaves out top level claims that are
+        // null (like antiCsrfToken), so we do the same
+        boolean hasNullClaim = false;
+        for (Map.Entry<String, JsonElement> claim : payload.entrySet()) {
+            if (claim.getValue().isJsonNull()) {
+                hasNullClaim = true;
+                break;
+            }
+        }
+        if (!hasNullClaim) {
+            return payload.toString();
+        }
+
+        JsonObject withoutNulls = new JsonObject();
+        for (Map.Entry<String, JsonElement> claim : payload.entrySet()) {
+            if (!claim.getValue().isJsonNull()) {
+                withoutNulls.add(claim.getKey(), claim.getValue());
+            }
+        }
+        return withoutNulls.toString();
+    }
+
     public static JWTPreParseInfo preParseJWTInfo(String jwt) throws JWTException {
-        initHeader();
-        String[] splittedInput = jwt.split("\\.");
-        if (splittedInput.length != 3) {
+        // This runs for every token we verify, so we look for the dots directly instead of using String.split. Like
+        // String.split, we ignore trailing empty parts.
+        int end = jwt.length();
+        while (end > 0 && jwt.charAt(end - 1) == '.') {
+            end--;
+        }
+        int firstDot = jwt.indexOf('.');
+        int secondDot = firstDot == -1 ? -1 : jwt.indexOf('.', firstDot + 1);
+        int thirdDot = secondDot == -1 ? -1 : jwt.indexOf('.', secondDot + 1);
+        if (secondDot == -1 || secondDot >= end || (thirdDot != -1 && thirdDot < end)) {
             throw new JWTException("Invalid JWT");
         }
 
-        if (splittedInput[0].equals(JWT.HEADERv1)) {
-            return new JWTPreParseInfo(splittedInput, AccessToken.VERSION.V1, null);
+        String header = jwt.substring(0, firstDot);
+        String payload = jwt.substring(firstDot + 1, secondDot);
+        String signature = jwt.substring(secondDot + 1, end);
+
+        if (header.equals(JWT.HEADERv1)) {
+            return new JWTPreParseInfo(header, payload, signature, jwt, secondDot, AccessToken.VERSION.V1, null,
+                    JWTSigningKey.SupportedAlgorithms.RS256);
+        }
+
+        if (header.equals(JWT.HEADERv2)) {
+            return new JWTPreParseInfo(header, payload, signature, jwt, secondDot, AccessToken.VERSION.V2, null,
+                    JWTSigningKey.SupportedAlgorithms.RS256);
         }
 
-        if (splittedInput[0].equals(JWT.HEADERv2)) {
-            return new JWTPreParseInfo(splittedInput, AccessToken.VERSION.V2, null);
+        ParsedHeader parsedHeader = parsedHeaders.get(header);
+        if (parsedHeader == null) {
+            // this is cached once the token's signature is verified (see verifyJWTAndGetPayload)
+            parsedHeader = parseHeader(header);
         }
+        return new JWTPreParseInfo(header, payload, signature, jwt, secondDot, parsedHeader.version, parsedHeader.kid,
+                parsedHeader.algorithm);
+    }
+
+    private static void cacheParsedHeader(String header, ParsedHeader parsedHeader) {
+        if (header.length() > MAX_CACHED_HEADER_LENGTH) {
+            return;
+        }
+        if (parsedHeaders.size() >= MAX_CACHED_HEADERS) {
+            parsedHeaders.clear();
+        }
+        parsedHeaders.put(header, parsedHeader);
+    }
 
+    private static ParsedHeader parseHeader(String header) throws JWTException {
         JsonObject parsedHeader;
         try {
-            parsedHeader = new JsonParser().parse(Utils.convertFromBase64(splittedInput[0])).getAsJsonObject();
+            parsedHeader = JsonParser.parseString(new String(decodeBase64(header), StandardCharsets.UTF_8))
+                    .getAsJsonObject();
         } catch (RuntimeException e) {
             // malformed base64 / JSON / non-object header is invalid input, not a server error
             throw new JWTException("Invalid JWT");
@@ -99,7 +218,14 @@ public class JWT {
             throw new JWTException("JWT header missing - alg");
         }
         JsonPrimitive alg = parsedHeader.get("alg").getAsJsonPrimitive();
-        if (!alg.isString() || !alg.getAsString().equals("RS256")) {
+        if (!alg.isString()) {
+            throw new JWTException("JWT header mismatch - alg");
+        }
+        JWTSigningKey.SupportedAlgorithms algorithm;
+        try {
+            // this is case-sensitive, like the alg values in the JWT spec
+            algorithm = JWTSigningKey.SupportedAlgorithms.valueOf(alg.getAsString());
+        } catch (IllegalArgumentException e) {
             throw new JWTException("JWT header mismatch - alg");
         }
 
@@ -127,30 +253,74 @@ public class JWT {
             throw new JWTException("JWT header mismatch - kid");
         }
         try {
-            return new JWTPreParseInfo(splittedInput, AccessToken.getVersionFromString(versionString), kid.getAsString());
+            return new ParsedHeader(AccessToken.getVersionFromString(versionString), kid.getAsString(), algorithm);
         } catch (RuntimeException e) {
             throw new JWTException("JWT header mismatch - version");
         }
     }
 
+    // This decodes both base64 and base64url, like Utils.convertFromBase64. Tokens created by us use base64url,
+    // except for V1 and V2 tokens, which use base64.
+    private static byte[] decodeBase64(String value) {
+        boolean hasUrlChars = value.indexOf('-') != -1 || value.indexOf('_') != -1;
+        if (!hasUrlChars) {
+            return Base64.getDecoder().decode(value);
+        }
+        if (value.indexOf('+') == -1 && value.indexOf('/') == -1) {
+            return Base64.getUrlDecoder().decode(value);
+        }
+        return Base64.getDecoder().decode(value.replace("-", "+").replace("_", "/"));
+    }
+
+    private static JsonObject parsePayload(String payload) {
+        return JsonParser.parseString(new String(decodeBase64(payload), StandardCharsets.UTF_8)).getAsJsonObject();
+    }
+
     public static JWTInfo verifyJWTAndGetPayload(JWTPreParseInfo jwt, String publicSigningKey)
             throws InvalidKeyException, NoSuchAlgorithmException, JWTException {
+        PublicKey publicKey;
+        try {
+            publicKey = Utils.getPublicKeyFromString(publicSigningKey, JWTSigningKey.SupportedAlgorithms.RS256);
+        } catch (InvalidKeySpecException e) {
+            throw new JWTException("JWT verification failed");
+        }
+        return verifyJWTAndGetPayload(jwt, publicKey);
+    }
+
+    public static JWTInfo verifyJWTAndGetPayload(JWTPreParseInfo jwt, PublicKey publicSigningKey)
+            throws InvalidKeyException, JWTException {
+        return verifyJWTAndGetPayload(jwt, publicSigningKey, JWTSigningKey.SupportedAlgorithms.RS256);
+    }
+
+    /**
+     * @param algorithm the algorithm of the signing key. This has to match the alg in the header of the JWT, so that
+     *                  a token can't pick how its signature is checked.
+     */
+    public static JWTInfo verifyJWTAndGetPayload(JWTPreParseInfo jwt, PublicKey publicSigningKey,
+                                                 JWTSigningKey.SupportedAlgorithms algorithm)
+            throws InvalidKeyException, JWTException {
+        if (jwt.algorithm != algorithm) {
+            throw new JWTException("JWT verification failed");
+        }
 
         try {
-            if (!Utils.verifyWithPublicKey(jwt.header + "." + jwt.payload, jwt.signature, publicSigningKey,
-                    jwt.version != AccessToken.VERSION.V1 && jwt.version != AccessToken.VERSION.V2)) {
+            if (!Utils.verifyWithPublicKey(jwt.getSigningInput(), jwt.signature, publicSigningKey,
+                    algorithm, jwt.version != AccessToken.VERSION.V1 && jwt.version != AccessToken.VERSION.V2)) {
                 throw new JWTException("JWT verification failed");
             }
-        } catch (InvalidKeySpecException | SignatureException e) {
+        } catch (SignatureException e) {
             throw new JWTException("JWT verification failed");
         }
-        return new JWTInfo(new JsonParser().parse(Utils.convertFromBase64(jwt.payload)).getAsJsonObject(), jwt.version);
+        // the version, kid and alg of tokens made by preParseJWTInfo come from their header
+        if (jwt.token != null && jwt.kid != null && !parsedHeaders.containsKey(jwt.header)) {
+            cacheParsedHeader(jwt.header, new ParsedHeader(jwt.version, jwt.kid, jwt.algorithm));
+        }
+        return new JWTInfo(parsePayload(jwt.payload), jwt.version);
     }
 
     public static JWTInfo getPayloadWithoutVerifying(String jwt) throws JWTException {
         JWTPreParseInfo jwtInfo = preParseJWTInfo(jwt);
-        return new JWTInfo(new JsonParser().parse(Utils.convertFromBase64(jwtInfo.payload)).getAsJsonObject(),
-                jwtInfo.version);
+        return new JWTInfo(parsePayload(jwtInfo.payload), jwtInfo.version);
     }
 
     public static class JWTException extends Exception {
@@ -176,7 +346,21 @@ public class JWT {
         @Nullable
         public final String kid;
 
+        @Nonnull
+        public final JWTSigningKey.SupportedAlgorithms algorithm;
+
+        // the whole token and where "header.payload" ends in it, if this was made by preParseJWTInfo
+        @Nullable
+        private final String token;
+        private final int signingInputEnd;
+
         public JWTPreParseInfo(String[] splittedInput, AccessToken.VERSION version, String kid) throws JWTException {
+            // V1 and V2 tokens are always signed with RS256
+            this(splittedInput, version, kid, JWTSigningKey.SupportedAlgorithms.RS256);
+        }
+
+        public JWTPreParseInfo(String[] splittedInput, AccessToken.VERSION version, String kid,
+                               JWTSigningKey.SupportedAlgorithms algorithm) throws JWTException {
             if (splittedInput.length != 3) {
                 throw new JWTException("Invalid JWT");
             }
@@ -184,9 +368,45 @@ public class JWT {
             this.header = splittedInput[0];
             this.payload = splittedInput[1];
             this.signature = splittedInput[2];
+            this.token = null;
+            this.signingInputEnd = -1;
+
+            this.version = version;
+            this.kid = kid;
+            this.algorithm = algorithm;
+        }
+
+        private JWTPreParseInfo(String header, String payload, String signature, String token, int signingInputEnd,
+                                AccessToken.VERSION version, String kid,
+                                JWTSigningKey.SupportedAlgorithms algorithm) {
+            this.header = header;
+            this.payload = payload;
+            this.signature = signature;
+            this.token = token;
+            this.signingInputEnd = signingInputEnd;
+
+            this.version = version;
+            this.kid = kid;
+            this.algorithm = algorithm;
+        }
+
+        private String getSigningInput() {
+            if (token == null) {
+                return header + "." + payload;
+            }
+            return token.substring(0, signingInputEnd);
+        }
+    }
+
+    private static class ParsedHeader {
+        final AccessToken.VERSION version;
+        final String kid;
+        final JWTSigningKey.SupportedAlgorithms algorithm;
 
+        ParsedHeader(AccessToken.VERSION version, String kid, JWTSigningKey.SupportedAlgorithms algorithm) {
             this.version = version;
             this.kid = kid;
+            this.algorithm = algorithm;
         }
     }
 
@@ -35,6 +35,7 @@ import javax.annotation.Nullable;
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -57,7 +58,7 @@ public class RefreshToken {
                                                            @Nonnull Main main, @Nonnull String token)
             throws UnauthorisedException, StorageQueryException, StorageTransactionLogicException,
             TenantOrAppNotFoundException {
-        String key = RefreshTokenKey.getInstance(appIdentifier, main).getKey();
+        RefreshTokenKey refreshTokenKey = RefreshTokenKey.getInstance(appIdentifier, main);
         try {
             TYPE tokenType = getTypeFromToken(token);
 
@@ -68,7 +69,13 @@ public class RefreshToken {
                         "Refresh token split with dot yielded an array of length: " + splittedToken.length);
             }
             String nonce = splittedToken[1];
-            String decrypted = Utils.decrypt(splittedToken[0], key);
+            String decrypted;
+            if (tokenType == TYPE.FREE_OPTIMISED_CACHED_KEY) {
+                decrypted = Utils.decrypt(splittedToken[0], refreshTokenKey.getEncryptionKey());
+            } else {
+                // tokens created before V3 are still accepted until they expire
+                decrypted = Utils.decrypt(splittedToken[0], refreshTokenKey.getKey());
+            }
             RefreshTokenPayload tokenPayload = new Gson().fromJson(decrypted, RefreshTokenPayload.class);
             if (tokenPayload.userId == null || tokenPayload.sessionHandle == null
                     || !nonce.equals(tokenPayload.nonce)) {
@@ -108,13 +115,13 @@ public class RefreshToken {
             throws NoSuchAlgorithmException, StorageQueryException, NoSuchPaddingException, InvalidKeyException,
             IllegalBlockSizeException, BadPaddingException, StorageTransactionLogicException,
             InvalidAlgorithmParameterException, InvalidKeySpecException, TenantOrAppNotFoundException {
-        String key = RefreshTokenKey.getInstance(tenantIdentifier.toAppIdentifier(), main).getKey();
+        SecretKey key = RefreshTokenKey.getInstance(tenantIdentifier.toAppIdentifier(), main).getEncryptionKey();
         String nonce = Utils.hashSHA256(UUID.randomUUID().toString());
         RefreshTokenPayload payload = new RefreshTokenPayload(sessionHandle, userId, parentRefreshTokenHash1, nonce,
                 antiCsrfToken, tenantIdentifier.getTenantId());
         String payloadSerialised = new Gson().toJson(payload);
         String encryptedPayload = Utils.encrypt(payloadSerialised, key);
-        String token = encryptedPayload + "." + nonce + "." + TYPE.FREE_OPTIMISED.toString();
+        String token = encryptedPayload + "." + nonce + "." + TYPE.FREE_OPTIMISED_CACHED_KEY.toString();
         long now = System.currentTimeMillis();
         return new TokenInfo(token,
                 now + Config.getConfig(tenantIdentifier, main).getRefreshTokenValidityInMillis(),
@@ -137,7 +144,8 @@ public class RefreshToken {
     }
 
     public enum TYPE {
-        FREE("V0"), PAID("V1"), FREE_OPTIMISED("V2");
+        // V3 is the same as V2, except that it is encrypted using RefreshTokenKey.getEncryptionKey
+        FREE("V0"), PAID("V1"), FREE_OPTIMISED("V2"), FREE_OPTIMISED_CACHED_KEY("V3");
 
         private String version;
 
@@ -35,6 +35,9 @@ import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.Utils;
 import org.jetbrains.annotations.TestOnly;
 
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
 import java.util.HashMap;
@@ -46,8 +49,12 @@ public class RefreshTokenKey extends ResourceDistributor.SingletonResource {
     private static final String RESOURCE_KEY = "io.supertokens.session.refreshToken.RefreshTokenKey";
     private final Main main;
     private String key;
+    private SecretKey encryptionKey;
     private final AppIdentifier appIdentifier;
 
+    // this only has to be unique to what the key is used for, since the refresh token key itself is random
+    private static final byte[] ENCRYPTION_KEY_SALT = "supertokens-refresh-token-V3".getBytes(StandardCharsets.UTF_8);
+
     private RefreshTokenKey(AppIdentifier appIdentifier, Main main) throws
             TenantOrAppNotFoundException {
         this.main = main;
@@ -109,6 +116,21 @@ public class RefreshTokenKey extends ResourceDistributor.SingletonResource {
         return this.key;
     }
 
+    /**
+     * The AES key used to encrypt V3 refresh tokens. Older refresh tokens derive a key from the refresh token key and
+     * a random nonce for every token, which takes a lot of CPU time (PBKDF2), so V3 tokens use this one instead, which
+     * is derived only once.
+     */
+    public SecretKey getEncryptionKey() throws StorageQueryException, StorageTransactionLogicException,
+            TenantOrAppNotFoundException, NoSuchAlgorithmException, InvalidKeySpecException {
+        if (this.encryptionKey == null) {
+            this.encryptionKey = new SecretKeySpec(
+                    Utils.pbkdf2(getKey().toCharArray(), ENCRYPTION_KEY_SALT, 100, 32 * 8), "AES");
+        }
+
+        return this.encryptionKey;
+    }
+
     private String maybeGenerateNewKeyAndUpdateInDb()
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
         SessionStorage storage = (SessionStorage) StorageLayer.getStorage(
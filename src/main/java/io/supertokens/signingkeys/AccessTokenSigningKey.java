@@ -47,6 +47,7 @@ import java.security.NoSuchAlgorithmException;
 import java.util.*;
 
 public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource {
+    // The algorithm of legacy keys and of dynamic keys stored without one (see fromStoredKey)
     private static final String ACCESS_TOKEN_SIGNING_ALGO = "RS256";
     // We keep the signing keys after generating a new one for accessTokenValidity multiplied by this value
     // JWTs are still checked for expiration after signature verification, this doesn't extend the lifetime of the
@@ -208,15 +209,42 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
 
     public List<SigningKeys.KeyInfo> getOrCreateAndGetSigningKeys()
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
+        return getOrCreateAndGetSigningKeys(0);
+    }
+
+    /**
+     * Called by the MintAccessTokenSigningKeys cronjob. This creates the next signing key if it would otherwise
+     * have to be created within createAheadMs, so that it is not created while handling a request. The key cache in
+     * SigningKeys is then updated with the result.
+     *
+     * @param createAheadMs how long before it is due the next key may be created. This is capped to a quarter of
+     *                      access_token_dynamic_signing_key_update_interval, which is the most by which this can make
+     *                      key rotation more frequent.
+     */
+    public void createNextSigningKeyIfNeeded(long createAheadMs)
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
+        CoreConfig config = Config.getConfig(appIdentifier.getAsPublicTenantIdentifier(), main);
+        long cappedCreateAheadMs = Math.min(createAheadMs,
+                config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis() / 4);
+        List<SigningKeys.KeyInfo> keys = getOrCreateAndGetSigningKeys(cappedCreateAheadMs);
+        SigningKeys.getInstance(appIdentifier, main).setDynamicKeys(keys);
+    }
+
+    private List<SigningKeys.KeyInfo> getOrCreateAndGetSigningKeys(long createAheadMs)
+            throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException {
         Storage storage = StorageLayer.getStorage(this.appIdentifier.getAsPublicTenantIdentifier(), main);
         CoreConfig config = Config.getConfig(appIdentifier.getAsPublicTenantIdentifier(), main);
+        // Only keys for this algorithm can be used to sign new tokens, but keys for other algorithms are kept until
+        // they expire, so tokens signed before access_token_signing_algorithm was changed can still be verified
+        final JWTSigningKey.SupportedAlgorithms algorithm = config.getAccessTokenSigningAlgorithm();
 
         // Access token signing keys older than this are deleted (ms)
         final long signingKeyLifetime = config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis()
                 + SIGNING_KEY_VALIDITY_OVERLAP * config.getAccessTokenValidityInMillis();
         // Keys created after this timestamp can be used to sign access tokens (ms) after the overlap period
         final long keysCreatedAfterCanSign = System.currentTimeMillis()
-                - config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis() + getDynamicSigningKeyOverlapMS();
+                - config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis() + getDynamicSigningKeyOverlapMS()
+                + createAheadMs;
         // Keys created after this timestamp can be used to verify access token signatures (ms)
         final long keysCreatedAfterCanVerify = System.currentTimeMillis() - signingKeyLifetime;
 
@@ -238,29 +266,29 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
 
                     for (KeyValueInfo key : keysFromStorage) {
                         if (keysCreatedAfterCanVerify <= key.createdAtTime) {
-                            if (keysCreatedAfterCanSign <= key.createdAtTime) {
+                            SigningKeys.KeyInfo keyInfo = fromStoredKey(key, signingKeyLifetime);
+                            if (keysCreatedAfterCanSign <= key.createdAtTime
+                                    && algorithm.equalsString(keyInfo.algorithm)) {
                                 generateNewKey = false;
                             }
-                            validKeysFromSQL.add(
-                                    new SigningKeys.KeyInfo("d-" + key.createdAtTime, key.value, key.createdAtTime,
-                                            signingKeyLifetime, ACCESS_TOKEN_SIGNING_ALGO));
+                            validKeysFromSQL.add(keyInfo);
                         }
                     }
                     if (generateNewKey) {
                         String signingKey;
                         try {
-                            Utils.PubPriKey rsaKeys = Utils.generateNewPubPriKey();
-                            signingKey = rsaKeys.toString();
+                            Utils.PubPriKey keyPair = SigningKeyPairPool.getInstance(main).take(algorithm);
+                            signingKey = keyPair.toString();
                         } catch (NoSuchAlgorithmException e) {
                             throw new StorageTransactionLogicException(e);
                         }
                         long creationTime = System.currentTimeMillis();
                         SigningKeys.KeyInfo newKey = new SigningKeys.KeyInfo("d-" + creationTime, signingKey,
                                 creationTime, signingKeyLifetime,
-                                ACCESS_TOKEN_SIGNING_ALGO);
+                                algorithm.name());
                         try {
                             sqlStorage.addAccessTokenSigningKey_Transaction(appIdentifier, con,
-                                    new KeyValueInfo(newKey.value, newKey.createdAtTime));
+                                    new KeyValueInfo(toStoredValue(newKey), newKey.createdAtTime));
                         } catch (TenantOrAppNotFoundException e) {
                             throw new StorageTransactionLogicException(e);
                         }
@@ -294,30 +322,29 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
                             : lastCreated;
 
                     if (keysCreatedAfterCanVerify <= key.createdAtTime) {
-                        if (keysCreatedAfterCanSign <= key.createdAtTime) {
+                        SigningKeys.KeyInfo keyInfo = fromStoredKey(key, signingKeyLifetime);
+                        if (keysCreatedAfterCanSign <= key.createdAtTime
+                                && algorithm.equalsString(keyInfo.algorithm)) {
                             generateNewKey = false;
                         }
-                        validKeys.add(
-                                new SigningKeys.KeyInfo("d-" + key.createdAtTime, key.value, key.createdAtTime,
-                                        signingKeyLifetime,
-                                        ACCESS_TOKEN_SIGNING_ALGO));
+                        validKeys.add(keyInfo);
                     }
                 }
 
                 if (generateNewKey) {
                     String signingKey;
                     try {
-                        Utils.PubPriKey rsaKeys = Utils.generateNewPubPriKey();
-                        signingKey = rsaKeys.toString();
+                        Utils.PubPriKey keyPair = SigningKeyPairPool.getInstance(main).take(algorithm);
+                        signingKey = keyPair.toString();
                     } catch (NoSuchAlgorithmException e) {
                         throw new StorageTransactionLogicException(e);
                     }
                     long creationTime = System.currentTimeMillis();
                     SigningKeys.KeyInfo newKey = new SigningKeys.KeyInfo("d-" + creationTime, signingKey, creationTime,
                             signingKeyLifetime,
-                            ACCESS_TOKEN_SIGNING_ALGO);
+                            algorithm.name());
                     boolean success = noSQLStorage.addAccessTokenSigningKey_Transaction(
-                            new KeyValueInfo(newKey.value, newKey.createdAtTime), lastCreated);
+                            new KeyValueInfo(toStoredValue(newKey), newKey.createdAtTime), lastCreated);
 
                     // If success is false, someone else already updated this particular field. So we must try again.
                     if (success) {
@@ -337,6 +364,29 @@ public class AccessTokenSigningKey extends ResourceDistributor.SingletonResource
         return Collections.unmodifiableList(validKeys);
     }
 
+    // The table of dynamic keys has no column for the algorithm, so for keys that are not RS256 the name of the
+    // algorithm is added after the key pair: "publicKey|privateKey|ES256". RS256 keys are stored as before, so
+    // existing keys don't need to be migrated.
+    private static SigningKeys.KeyInfo fromStoredKey(KeyValueInfo key, long signingKeyLifetime) {
+        for (JWTSigningKey.SupportedAlgorithms algorithm : JWTSigningKey.SupportedAlgorithms.values()) {
+            String suffix = "|" + algorithm.name();
+            if (algorithm != JWTSigningKey.SupportedAlgorithms.RS256 && key.value.endsWith(suffix)) {
+                return new SigningKeys.KeyInfo("d-" + key.createdAtTime,
+                        key.value.substring(0, key.value.length() - suffix.length()), key.createdAtTime,
+                        signingKeyLifetime, algorithm.name());
+            }
+        }
+        return new SigningKeys.KeyInfo("d-" + key.createdAtTime, key.value, key.createdAtTime, signingKeyLifetime,
+                ACCESS_TOKEN_SIGNING_ALGO);
+    }
+
+    private static String toStoredValue(SigningKeys.KeyInfo key) {
+        if (ACCESS_TOKEN_SIGNING_ALGO.equals(key.algorithm)) {
+            return key.value;
+        }
+        return key.value + "|" + key.algorithm;
+    }
+
     @TestOnly()
     public void setDynamicSigningKeyOverlapMS(int overlap) {
         dynamicSigningKeyOverlapMS = overlap;
@@ -91,17 +91,37 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
         main.getResourceDistributor().replaceResourcesWithResourceKey(RESOURCE_KEY, newResources);
     }
 
+    // The names of these are the "alg" values used in JWT headers and JWKs (RFC 7518 and RFC 8037), so they are
+    // case-sensitive.
     public enum SupportedAlgorithms {
-        RS256;
+        RS256, ES256, EdDSA;
 
         public String getAlgorithmType() {
             if (this == SupportedAlgorithms.RS256) {
                 return "rsa";
             }
+            if (this == SupportedAlgorithms.ES256) {
+                return "ec";
+            }
+            if (this == SupportedAlgorithms.EdDSA) {
+                return "ed25519";
+            }
 
             return "";
         }
 
+        // Name of the java.security.Signature algorithm that produces signatures in the format used by JWTs
+        public String getSignatureAlgorithm() {
+            if (this == SupportedAlgorithms.ES256) {
+                // JWTs use the raw R || S format rather than ASN.1 DER
+                return "SHA256withECDSAinP1363Format";
+            }
+            if (this == SupportedAlgorithms.EdDSA) {
+                return "Ed25519";
+            }
+            return "SHA256withRSA";
+        }
+
         public boolean equalsString(String algorithmString) {
             return this.name().equalsIgnoreCase(algorithmString);
         }
@@ -116,13 +136,12 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
 
     private void generateKeysForSupportedAlgos(Main main)
             throws TenantOrAppNotFoundException, UnsupportedJWTSigningAlgorithmException {
-        for (int i = 0; i < SupportedAlgorithms.values().length; i++) {
-            SupportedAlgorithms currentAlgorithm = SupportedAlgorithms.values()[i];
-            try {
-                JWTSigningKey.getInstance(appIdentifier, main).getOrCreateAndGetKeyForAlgorithm(currentAlgorithm);
-            } catch (StorageQueryException | StorageTransactionLogicException e) {
-                // Do nothing, when a call to /recipe/jwt POST is made the core will attempt to create a new key
-            }
+        // The JWT recipe only signs with RS256. Static keys for the other algorithms are only needed if an app sets
+        // access_token_signing_algorithm to them, so they are created the first time they are used.
+        try {
+            JWTSigningKey.getInstance(appIdentifier, main).getOrCreateAndGetKeyForAlgorithm(SupportedAlgorithms.RS256);
+        } catch (StorageQueryException | StorageTransactionLogicException e) {
+            // Do nothing, when a call to /recipe/jwt POST is made the core will attempt to create a new key
         }
     }
 
@@ -281,13 +300,9 @@ public class JWTSigningKey extends ResourceDistributor.SingletonResource {
 
     private JWTSigningKeyInfo generateKeyForAlgorithm(SupportedAlgorithms algorithm)
             throws NoSuchAlgorithmException, UnsupportedJWTSigningAlgorithmException {
-        if (algorithm.getAlgorithmType().equalsIgnoreCase("rsa")) {
-            long currentTimeInMillis = System.currentTimeMillis();
-            Utils.PubPriKey newKey = Utils.generateNewPubPriKey();
-            return new JWTAsymmetricSigningKeyInfo("s-" + Utils.getUUID(), currentTimeInMillis, algorithm.name(),
-                    newKey.publicKey, newKey.privateKey);
-        }
-
-        throw new IllegalArgumentException();
+        long currentTimeInMillis = System.currentTimeMillis();
+        Utils.PubPriKey newKey = SigningKeyPairPool.getInstance(main).take(algorithm);
+        return new JWTAsymmetricSigningKeyInfo("s-" + Utils.getUUID(), currentTimeInMillis, algorithm.name(),
+                newKey.publicKey, newKey.privateKey);
     }
 }
\ No newline at end of file
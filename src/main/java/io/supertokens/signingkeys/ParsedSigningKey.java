@@ -0,0 +1,76 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.signingkeys;
+
+import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
+import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.utils.Utils;
+
+import java.security.NoSuchAlgorithmException;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.InvalidKeySpecException;
+import java.util.Objects;
+
+/**
+ * The public and private key objects of an asymmetric signing key. Decoding a key from its base64 string is
+ * expensive compared to using it, so SigningKeys parses each key once and keeps the result for as long as the key is
+ * cached (see SigningKeys.getParsedKey).
+ */
+public class ParsedSigningKey {
+    public final String keyId;
+    public final JWTSigningKey.SupportedAlgorithms algorithm;
+
+    private final String keyString;
+    private final PublicKey publicKey;
+    private final PrivateKey privateKey;
+
+    // the encoded JWT header of access tokens signed with this key, by access token version. JWT builds each one the
+    // first time it is needed. This can be written by more than one thread at the same time, but they'd write the
+    // same value.
+    private final String[] encodedAccessTokenHeaders = new String[AccessToken.VERSION.values().length];
+
+    public ParsedSigningKey(JWTAsymmetricSigningKeyInfo keyInfo)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        this.keyId = keyInfo.keyId;
+        this.keyString = keyInfo.keyString;
+        this.algorithm = JWTSigningKey.SupportedAlgorithms.valueOf(keyInfo.algorithm);
+        this.publicKey = Utils.getPublicKeyFromString(keyInfo.publicKey, algorithm);
+        this.privateKey = Utils.getPrivateKeyFromString(keyInfo.privateKey, algorithm);
+    }
+
+    public PublicKey getPublicKey() {
+        return publicKey;
+    }
+
+    public PrivateKey getPrivateKey() {
+        return privateKey;
+    }
+
+    public String getEncodedAccessTokenHeader(AccessToken.VERSION version) {
+        return encodedAccessTokenHeaders[version.ordinal()];
+    }
+
+    public void setEncodedAccessTokenHeader(AccessToken.VERSION version, String encodedHeader) {
+        encodedAccessTokenHeaders[version.ordinal()] = encodedHeader;
+    }
+
+    boolean isFor(JWTSigningKeyInfo keyInfo) {
+        return Objects.equals(keyId, keyInfo.keyId) && Objects.equals(keyString, keyInfo.keyString);
+    }
+}
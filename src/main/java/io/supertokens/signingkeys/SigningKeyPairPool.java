@@ -0,0 +1,82 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.signingkeys;
+
+import io.supertokens.Main;
+import io.supertokens.ResourceDistributor;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.utils.Utils;
+import org.jetbrains.annotations.TestOnly;
+
+import java.security.NoSuchAlgorithmException;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A few RSA key pairs generated ahead of time, shared by all apps. Generating an RSA key pair takes hundreds of
+ * milliseconds, so new signing keys take one from here instead, and the MintAccessTokenSigningKeys cronjob refills
+ * it in the background. If the pool is empty, a key pair is generated on the spot like before. ES256 and EdDSA key
+ * pairs are cheap to generate, so they are not pooled.
+ */
+public class SigningKeyPairPool extends ResourceDistributor.SingletonResource {
+    private static final String RESOURCE_KEY = "io.supertokens.signingkeys.SigningKeyPairPool";
+
+    private static final int POOL_SIZE = 4;
+
+    private final Queue<Utils.PubPriKey> keyPairs = new ConcurrentLinkedQueue<>();
+
+    private SigningKeyPairPool() {
+    }
+
+    public static SigningKeyPairPool getInstance(Main main) {
+        try {
+            return (SigningKeyPairPool) main.getResourceDistributor()
+                    .getResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY);
+        } catch (TenantOrAppNotFoundException e) {
+            return (SigningKeyPairPool) main.getResourceDistributor()
+                    .setResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY, new SigningKeyPairPool());
+        }
+    }
+
+    public Utils.PubPriKey take() throws NoSuchAlgorithmException {
+        Utils.PubPriKey keyPair = keyPairs.poll();
+        if (keyPair != null) {
+            return keyPair;
+        }
+        return Utils.generateNewPubPriKey();
+    }
+
+    public Utils.PubPriKey take(JWTSigningKey.SupportedAlgorithms algorithm) throws NoSuchAlgorithmException {
+        if (algorithm == JWTSigningKey.SupportedAlgorithms.RS256) {
+            return take();
+        }
+        return Utils.generateNewPubPriKey(algorithm);
+    }
+
+    public void refill() throws NoSuchAlgorithmException {
+        // this is only called by the cronjob, so there is no need to guard against concurrent refills
+        while (keyPairs.size() < POOL_SIZE) {
+            keyPairs.add(Utils.generateNewPubPriKey());
+        }
+    }
+
+    @TestOnly
+    public int size() {
+        return keyPairs.size();
+    }
+}
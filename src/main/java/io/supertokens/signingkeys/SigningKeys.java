@@ -16,6 +16,7 @@
 
 package io.supertokens.signingkeys;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.ProcessState;
@@ -37,13 +38,14 @@ import org.jetbrains.annotations.TestOnly;
 import java.math.BigInteger;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
+import java.security.interfaces.ECPublicKey;
+import java.security.interfaces.EdECPublicKey;
 import java.security.interfaces.RSAPublicKey;
+import java.security.spec.ECPoint;
 import java.security.spec.InvalidKeySpecException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
-
-import static io.supertokens.utils.Utils.getPublicKeyFromString;
 
 public class SigningKeys extends ResourceDistributor.SingletonResource {
     private static final String RESOURCE_KEY = "io.supertokens.signingKeys.SigningKeys";
@@ -53,6 +55,21 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
     private List<KeyInfo> dynamicKeys;
     private List<JWTSigningKeyInfo> staticKeys;
 
+    // keyId -> key, for all keys in dynamicKeys and staticKeys (including dynamic keys that have expired since they
+    // were loaded). This is rebuilt whenever either list is reloaded, so that finding the key for the kid of a token
+    // doesn't depend on how many keys there are.
+    private volatile Map<String, IndexedKey> keysById = Collections.emptyMap();
+
+    // keyId -> parsed key objects, so that signing or verifying a token doesn't decode the key every time. Entries
+    // for keys that are no longer in keysById are removed whenever it is rebuilt.
+    private final Map<String, ParsedSigningKey> parsedKeys = new ConcurrentHashMap<>();
+
+    // getDynamicKeys doesn't need to reload or rotate the dynamic keys until this time, so looking up a key by its kid
+    // can skip going through all of them until then. Reset whenever the keys change.
+    private volatile long dynamicKeysCheckedUntil = Long.MIN_VALUE;
+
+    // the JWKS built from the keys returned by getAllKeys, until those change
+    private volatile JWKSDocument jwksDocument;
 
     public static SigningKeys getInstance(AppIdentifier appIdentifier, Main main)
             throws TenantOrAppNotFoundException {
@@ -102,19 +119,46 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
     public JWTSigningKeyInfo getSigningKeyById(String kid)
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
             UnsupportedJWTSigningAlgorithmException {
-        return this.getAllKeys().stream()
-                .filter(jwtSigningKeyInfo -> Objects.equals(jwtSigningKeyInfo.keyId, kid)).findAny()
-                .orElse(null);
+        // this loads the keys if needed, and picks up the next dynamic key once it is time for it
+        if (this.staticKeys == null || System.currentTimeMillis() > dynamicKeysCheckedUntil) {
+            getDynamicKeys();
+            getStaticKeys();
+        }
+
+        IndexedKey key = keysById.get(kid);
+        if (key == null || key.expiryTime < System.currentTimeMillis()) {
+            return null;
+        }
+        return key.keyInfo;
+    }
+
+    public ParsedSigningKey getParsedKey(JWTSigningKeyInfo keyInfo)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        ParsedSigningKey parsedKey = parsedKeys.get(keyInfo.keyId);
+        if (parsedKey == null || !parsedKey.isFor(keyInfo)) {
+            parsedKey = new ParsedSigningKey((JWTAsymmetricSigningKeyInfo) keyInfo);
+            parsedKeys.put(keyInfo.keyId, parsedKey);
+        }
+        return parsedKey;
     }
 
     public List<JWTSigningKeyInfo> getAllKeys()
             throws StorageQueryException, StorageTransactionLogicException, TenantOrAppNotFoundException,
             UnsupportedJWTSigningAlgorithmException {
 
-        return Stream.concat(
-                getDynamicKeys().stream().map(Utils::getJWTSigningKeyInfoFromKeyInfo),
-                getStaticKeys().stream()
-        ).collect(Collectors.toList());
+        List<KeyInfo> dynamicKeys = getDynamicKeys();
+        List<JWTSigningKeyInfo> staticKeys = getStaticKeys();
+        Map<String, IndexedKey> keysById = this.keysById;
+
+        List<JWTSigningKeyInfo> result = new ArrayList<>(dynamicKeys.size() + staticKeys.size());
+        for (KeyInfo key : dynamicKeys) {
+            IndexedKey indexedKey = keysById.get(key.id);
+            result.add(indexedKey != null && Objects.equals(indexedKey.keyInfo.keyString, key.value)
+                    ? indexedKey.keyInfo
+                    : Utils.getJWTSigningKeyInfoFromKeyInfo(key));
+        }
+        result.addAll(staticKeys);
+        return result;
     }
 
     public List<KeyInfo> getDynamicKeys()
@@ -125,6 +169,7 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
         if (this.dynamicKeys == null) {
             this.dynamicKeys = AccessTokenSigningKey.getInstance(this.appIdentifier, main)
                     .getOrCreateAndGetSigningKeys();
+            rebuildKeyIndex();
         }
 
         // This filters the list down to keys that can be used to verify tokens
@@ -136,13 +181,19 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
                 // or if we should generate a key we can use after dynamicSigningKeyOverlapMS
                 System.currentTimeMillis() +
                         AccessTokenSigningKey.getInstance(appIdentifier, main).getDynamicSigningKeyOverlapMS() >
-                        res.get(0).createdAtTime + config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis()
+                        res.get(0).createdAtTime + config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis() ||
+                // or if access_token_signing_algorithm was changed since the latest key was created
+                !config.getAccessTokenSigningAlgorithm().equalsString(res.get(0).algorithm)
         ) {
             updateKeyCacheIfNotChanged(
                     res.stream().map(Utils::getJWTSigningKeyInfoFromKeyInfo).collect(Collectors.toList()));
             return getDynamicKeys();
         }
 
+        // nothing above changes until the first usable key expires or it is time to create the next one
+        this.dynamicKeysCheckedUntil = Math.min(res.get(0).expiryTime,
+                res.get(0).createdAtTime + config.getAccessTokenDynamicSigningKeyUpdateIntervalInMillis() -
+                        AccessTokenSigningKey.getInstance(appIdentifier, main).getDynamicSigningKeyOverlapMS());
         return res;
     }
 
@@ -151,6 +202,7 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
             UnsupportedJWTSigningAlgorithmException {
         if (this.staticKeys == null) {
             this.staticKeys = JWTSigningKey.getInstance(appIdentifier, main).getAllSigningKeys();
+            rebuildKeyIndex();
         }
 
         return this.staticKeys;
@@ -252,6 +304,37 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
                     .addState(ProcessState.PROCESS_STATE.UPDATING_ACCESS_TOKEN_SIGNING_KEYS, null);
             this.staticKeys = JWTSigningKey.getInstance(appIdentifier, main).getAllSigningKeys();
         }
+
+        rebuildKeyIndex();
+    }
+
+    private synchronized void rebuildKeyIndex() {
+        Map<String, IndexedKey> oldKeysById = this.keysById;
+        Map<String, IndexedKey> newKeysById = new HashMap<>();
+        if (this.dynamicKeys != null) {
+            for (KeyInfo key : this.dynamicKeys) {
+                IndexedKey oldKey = oldKeysById.get(key.id);
+                JWTSigningKeyInfo keyInfo = oldKey != null && Objects.equals(oldKey.keyInfo.keyString, key.value)
+                        ? oldKey.keyInfo
+                        : Utils.getJWTSigningKeyInfoFromKeyInfo(key);
+                newKeysById.put(key.id, new IndexedKey(keyInfo, key.expiryTime));
+            }
+        }
+        if (this.staticKeys != null) {
+            for (JWTSigningKeyInfo key : this.staticKeys) {
+                newKeysById.put(key.keyId, new IndexedKey(key, Long.MAX_VALUE));
+            }
+        }
+        this.keysById = newKeysById;
+        this.dynamicKeysCheckedUntil = Long.MIN_VALUE;
+        parsedKeys.keySet().retainAll(newKeysById.keySet());
+    }
+
+    // Used by AccessTokenSigningKey when the keys have been loaded (and the next key possibly created) in the
+    // background, so that requests don't have to reload them.
+    synchronized void setDynamicKeys(List<KeyInfo> dynamicKeys) {
+        this.dynamicKeys = dynamicKeys;
+        rebuildKeyIndex();
     }
 
     /**
@@ -267,45 +350,126 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
     public List<JsonObject> getJWKS() throws StorageQueryException, StorageTransactionLogicException,
             NoSuchAlgorithmException, InvalidKeySpecException, UnsupportedJWTSigningAlgorithmException,
             TenantOrAppNotFoundException {
-        List<JsonObject> jwks = new ArrayList<>();
-
         // Retrieve all keys in storage
+        return getJWKS(this.getAllKeys());
+    }
+
+    /**
+     * Same as getJWKS, but as the serialised {"keys": [...]} document with its ETag. This is only rebuilt when the
+     * set of keys changes, so serving it (e.g. from /.well-known/jwks.json) doesn't need to parse keys or serialise
+     * JSON.
+     */
+    public JWKSDocument getJWKSDocument() throws StorageQueryException, StorageTransactionLogicException,
+            NoSuchAlgorithmException, InvalidKeySpecException, UnsupportedJWTSigningAlgorithmException,
+            TenantOrAppNotFoundException {
         List<JWTSigningKeyInfo> keys = this.getAllKeys();
+        JWKSDocument document = this.jwksDocument;
+        if (document == null || !document.isFor(keys)) {
+            JsonArray jwks = new JsonArray();
+            for (JsonObject jwk : getJWKS(keys)) {
+                jwks.add(jwk);
+            }
+            JsonObject body = new JsonObject();
+            body.add("keys", jwks);
+            document = new JWKSDocument(keys, body.toString());
+            this.jwksDocument = document;
+        }
+        return document;
+    }
+
+    private List<JsonObject> getJWKS(List<JWTSigningKeyInfo> keys)
+            throws NoSuchAlgorithmException, InvalidKeySpecException {
+        List<JsonObject> jwks = new ArrayList<>();
+
         for (JWTSigningKeyInfo currentKeyInfo : keys) {
             // We only use asymmetric keys
             if (currentKeyInfo instanceof JWTAsymmetricSigningKeyInfo) {
                 JWTSigningKey.SupportedAlgorithms algorithm = JWTSigningKey.SupportedAlgorithms
                         .valueOf(currentKeyInfo.algorithm);
-                // TODO: In the future with more asymmetric algorithms [ES256 for example] we will need a provider
-                // system for the public key + JWK - Nemi
-                PublicKey publicKey = getPublicKeyFromString(((JWTAsymmetricSigningKeyInfo) currentKeyInfo).publicKey,
-                        algorithm);
+                PublicKey publicKey = getParsedKey(currentKeyInfo).getPublicKey();
+                Base64.Encoder encoder = Base64.getUrlEncoder().withoutPadding();
 
+                JsonObject jwk = new JsonObject();
                 if (publicKey instanceof RSAPublicKey) {
-                    JsonObject jwk = new JsonObject();
-
                     // Most verifiers seem to expect kty and alg to be in upper case so forcing that here
                     jwk.addProperty("kty", algorithm.getAlgorithmType().toUpperCase());
                     jwk.addProperty("kid", currentKeyInfo.keyId);
-                    jwk.addProperty("n", Base64.getUrlEncoder().withoutPadding()
-                            .encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getModulus())));
-                    jwk.addProperty("e", Base64.getUrlEncoder().withoutPadding()
-                            .encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getPublicExponent())));
-                    jwk.addProperty("alg", currentKeyInfo.algorithm.toUpperCase());
-                    jwk.addProperty("use", "sig"); // We generate JWKs that are meant to be used for signature
-                    // verification
-
-                    jwks.add(jwk);
+                    jwk.addProperty("n",
+                            encoder.encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getModulus())));
+                    jwk.addProperty("e",
+                            encoder.encodeToString(toBytesUnsigned(((RSAPublicKey) publicKey).getPublicExponent())));
+                } else if (publicKey instanceof ECPublicKey) {
+                    // P-256 coordinates are always encoded as 32 bytes (RFC 7518, section 6.2.1)
+                    ECPoint point = ((ECPublicKey) publicKey).getW();
+                    jwk.addProperty("kty", "EC");
+                    jwk.addProperty("kid", currentKeyInfo.keyId);
+                    jwk.addProperty("crv", "P-256");
+                    jwk.addProperty("x", encoder.encodeToString(toBytesUnsigned(point.getAffineX(), 32)));
+                    jwk.addProperty("y", encoder.encodeToString(toBytesUnsigned(point.getAffineY(), 32)));
+                } else if (publicKey instanceof EdECPublicKey) {
+                    // The X.509 encoding of an Ed25519 key ends with the 32 byte public key, which is what goes in
+                    // the JWK (RFC 8037, section 2)
+                    byte[] encoded = publicKey.getEncoded();
+                    jwk.addProperty("kty", "OKP");
+                    jwk.addProperty("kid", currentKeyInfo.keyId);
+                    jwk.addProperty("crv", "Ed25519");
+                    jwk.addProperty("x", encoder.encodeToString(
+                            Arrays.copyOfRange(encoded, encoded.length - 32, encoded.length)));
                 } else {
                     // we don't do anything here because there could be other keys in the array
                     // that could still be valid.
+                    continue;
                 }
+                jwk.addProperty("alg", algorithm.name());
+                jwk.addProperty("use", "sig"); // We generate JWKs that are meant to be used for signature
+                // verification
+
+                jwks.add(jwk);
             }
         }
 
         return jwks;
     }
 
+    public static class JWKSDocument {
+        public final String body;
+        // a strong ETag (quoted SHA-256 of the body), so that clients can revalidate with If-None-Match
+        public final String etag;
+
+        private final List<String> keyIds;
+
+        JWKSDocument(List<JWTSigningKeyInfo> keys, String body) throws NoSuchAlgorithmException {
+            this.keyIds = new ArrayList<>(keys.size());
+            for (JWTSigningKeyInfo key : keys) {
+                this.keyIds.add(key.keyId);
+            }
+            this.body = body;
+            this.etag = "\"" + Utils.hashSHA256(body) + "\"";
+        }
+
+        boolean isFor(List<JWTSigningKeyInfo> keys) {
+            if (keys.size() != keyIds.size()) {
+                return false;
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                if (!keyIds.get(i).equals(keys.get(i).keyId)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static class IndexedKey {
+        final JWTSigningKeyInfo keyInfo;
+        final long expiryTime;
+
+        IndexedKey(JWTSigningKeyInfo keyInfo, long expiryTime) {
+            this.keyInfo = keyInfo;
+            this.expiryTime = expiryTime;
+        }
+    }
+
     public static class KeyInfo {
         public String id;
         public String value;
@@ -351,6 +515,17 @@ public class SigningKeys extends ResourceDistributor.SingletonResource {
         }
     }
 
+    // Same as below, but left padded with zeros to the given length
+    private static byte[] toBytesUnsigned(final BigInteger bigInt, int length) {
+        byte[] bytes = toBytesUnsigned(bigInt);
+        if (bytes.length >= length) {
+            return bytes;
+        }
+        byte[] padded = new byte[length];
+        System.arraycopy(bytes, 0, padded, length - bytes.length, bytes.length);
+        return padded;
+    }
+
     /**
      * Returns a byte array representation of the specified big integer
      * without the sign bit.
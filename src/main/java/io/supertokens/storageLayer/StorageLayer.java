@@ -250,6 +250,30 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
             throws MalformedURLException, InvalidConfigException {
         main.getResourceDistributor().setResource(new TenantIdentifier(null, null, null), RESOURCE_KEY,
                 new StorageLayer(main, configJson, TenantIdentifier.BASE_TENANT));
+        rebuildStoragesForApps(main);
+    }
+
+    /**
+     * Must be called after the StorageLayer resources are changed (while still holding the resource distributor
+     * lock), so that getStoragesForApp does not have to go through the storages of all tenants on each call.
+     */
+    private static void rebuildStoragesForApps(Main main) {
+        Map<AppIdentifier, Map<String, Storage>> userPoolToStoragePerApp = new HashMap<>();
+
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
+                main.getResourceDistributor()
+                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
+        for (ResourceDistributor.KeyClass key : resources.keySet()) {
+            Storage storage = ((StorageLayer) resources.get(key)).storage;
+            userPoolToStoragePerApp.computeIfAbsent(key.getTenantIdentifier().toAppIdentifier(),
+                    k -> new HashMap<>()).put(storage.getUserPoolId(), storage);
+        }
+
+        Map<AppIdentifier, Storage[]> storagesForApps = new HashMap<>();
+        for (Map.Entry<AppIdentifier, Map<String, Storage>> entry : userPoolToStoragePerApp.entrySet()) {
+            storagesForApps.put(entry.getKey(), entry.getValue().values().toArray(new Storage[0]));
+        }
+        StoragesForApps.getInstance(main).storagesForApps = storagesForApps;
     }
 
     public static void loadAllTenantStorage(Main main, TenantConfig[] tenants)
@@ -351,6 +375,7 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
                     storagesToInit.computeIfAbsent(s, k -> new HashSet<>()).add(key.getTenantIdentifier());
                 }
 
+                rebuildStoragesForApps(main);
                 return null;
             });
 
@@ -426,6 +451,7 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
                         Logging.error(main, TenantIdentifier.BASE_TENANT, e.getMessage(), false, e);
                     }
                 }
+                rebuildStoragesForApps(main);
                 return null;
             });
         } catch (ResourceDistributor.FuncException e) {
@@ -520,22 +546,11 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
 
     public static Storage[] getStoragesForApp(Main main, AppIdentifier appIdentifier)
             throws TenantOrAppNotFoundException {
-        Map<String, Storage> userPoolToStorage = new HashMap<>();
-
-        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resources =
-                main.getResourceDistributor()
-                        .getAllResourcesWithResourceKey(RESOURCE_KEY);
-        for (ResourceDistributor.KeyClass key : resources.keySet()) {
-            Storage storage = ((StorageLayer) resources.get(key)).storage;
-            if (key.getTenantIdentifier().toAppIdentifier().equals(appIdentifier)) {
-                userPoolToStorage.put(storage.getUserPoolId(), storage);
-            }
-        }
-        Storage[] storages = userPoolToStorage.values().toArray(new Storage[0]);
-        if (storages.length == 0) {
+        Storage[] storages = StoragesForApps.getInstance(main).storagesForApps.get(appIdentifier);
+        if (storages == null) {
             throw new TenantOrAppNotFoundException(appIdentifier);
         }
-        return storages;
+        return storages.clone();
     }
 
     public static StorageAndUserIdMapping findStorageAndUserIdMappingForUser(
@@ -769,4 +784,23 @@ public class StorageLayer extends ResourceDistributor.SingletonResource {
         }
     }
 
+    /**
+     * The unique storages (by user pool) of each app, built from the StorageLayer resources each time they are
+     * changed. The map is replaced as a whole, and never modified after that.
+     */
+    private static class StoragesForApps extends ResourceDistributor.SingletonResource {
+        private static final String RESOURCE_KEY = "io.supertokens.storageLayer.StorageLayer.StoragesForApps";
+
+        private volatile Map<AppIdentifier, Storage[]> storagesForApps = new HashMap<>();
+
+        private static StoragesForApps getInstance(Main main) {
+            try {
+                return (StoragesForApps) main.getResourceDistributor()
+                        .getResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY);
+            } catch (TenantOrAppNotFoundException e) {
+                return (StoragesForApps) main.getResourceDistributor()
+                        .setResource(TenantIdentifier.BASE_TENANT, RESOURCE_KEY, new StoragesForApps());
+            }
+        }
+    }
 }
@@ -50,6 +50,7 @@ import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
+import java.security.spec.ECGenParameterSpec;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
 import java.security.spec.PKCS8EncodedKeySpec;
@@ -58,8 +59,13 @@ import java.util.Arrays;
 import java.util.Base64;
 import java.util.Base64.Decoder;
 import java.util.Base64.Encoder;
+import java.util.EnumMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
 import java.util.regex.Pattern;
 
 public class Utils {
@@ -201,16 +207,20 @@ public class Utils {
         }
     }
 
+    // SecureRandom is thread safe, and creating one for every call is slow
+    private static final SecureRandom SECURE_RANDOM = new SecureRandom();
+
+    // Like the Signature objects below, a Cipher is fully reset by init, so they are reused from a pool
+    private static final InstancePool<Cipher> AES_GCM_CIPHERS =
+            new InstancePool<>(() -> Cipher.getInstance("AES/GCM/NoPadding"));
+
     public static String encrypt(String plaintext, String masterKey)
             throws NoSuchAlgorithmException, InvalidKeySpecException, NoSuchPaddingException, InvalidKeyException,
             InvalidAlgorithmParameterException, IllegalBlockSizeException, BadPaddingException {
 
-        // Prepare the nonce
-        SecureRandom secureRandom = new SecureRandom();
-
         // Nonce should be 12 bytes
         byte[] iv = new byte[12];
-        secureRandom.nextBytes(iv);
+        SECURE_RANDOM.nextBytes(iv);
 
         // Prepare your key/password
         byte[] key = pbkdf2(masterKey.toCharArray(), iv, 100, 32 * 8);
@@ -269,6 +279,52 @@ public class Utils {
         return new String(cipher.doFinal(cipherBytes));
     }
 
+    /**
+     * Same as encrypt(String, String), but with an AES key that is given directly, instead of one that is derived
+     * from the master key and nonce on every call. The output has the same format: base64 of the nonce followed by
+     * the encrypted data.
+     */
+    public static String encrypt(String plaintext, SecretKey key)
+            throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException,
+            BadPaddingException {
+        byte[] iv = new byte[12];
+        SECURE_RANDOM.nextBytes(iv);
+
+        byte[] plaintextBytes = stringToBytes(plaintext);
+        byte[] output;
+        Cipher cipher = AES_GCM_CIPHERS.take();
+        try {
+            cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(128, iv));
+            output = new byte[iv.length + cipher.getOutputSize(plaintextBytes.length)];
+            System.arraycopy(iv, 0, output, 0, iv.length);
+            cipher.doFinal(plaintextBytes, 0, plaintextBytes.length, output, iv.length);
+        } catch (ShortBufferException e) {
+            // this can't happen since the buffer size comes from getOutputSize
+            throw new IllegalStateException(e);
+        } finally {
+            AES_GCM_CIPHERS.giveBack(cipher);
+        }
+
+        return Base64.getEncoder().encodeToString(output);
+    }
+
+    public static String decrypt(String encdata, SecretKey key)
+            throws InvalidKeyException, InvalidAlgorithmParameterException, IllegalBlockSizeException,
+            BadPaddingException {
+        byte[] data = Base64.getDecoder().decode(encdata);
+        if (data.length < 12) {
+            throw new IllegalBlockSizeException("Encrypted data is too short");
+        }
+
+        Cipher cipher = AES_GCM_CIPHERS.take();
+        try {
+            cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(128, data, 0, 12));
+            return new String(cipher.doFinal(data, 12, data.length - 12), StandardCharsets.UTF_8);
+        } finally {
+            AES_GCM_CIPHERS.giveBack(cipher);
+        }
+    }
+
     public static byte[] pbkdf2(char[] text, byte[] salt, int iterationCount, int keyLength)
             throws NoSuchAlgorithmException, InvalidKeySpecException {
 
@@ -278,8 +334,21 @@ public class Utils {
     }
 
     public static PubPriKey generateNewPubPriKey() throws NoSuchAlgorithmException {
-        KeyPairGenerator kpg = KeyPairGenerator.getInstance("RSA");
-        kpg.initialize(2048);
+        return generateNewPubPriKey(JWTSigningKey.SupportedAlgorithms.RS256);
+    }
+
+    public static PubPriKey generateNewPubPriKey(JWTSigningKey.SupportedAlgorithms algorithm)
+            throws NoSuchAlgorithmException {
+        KeyPairGenerator kpg = KeyPairGenerator.getInstance(algorithm.getAlgorithmType());
+        if (algorithm == JWTSigningKey.SupportedAlgorithms.RS256) {
+            kpg.initialize(2048);
+        } else if (algorithm == JWTSigningKey.SupportedAlgorithms.ES256) {
+            try {
+                kpg.initialize(new ECGenParameterSpec("secp256r1"));
+            } catch (InvalidAlgorithmParameterException e) {
+                throw new NoSuchAlgorithmException(e);
+            }
+        }
         KeyPair kp = kpg.generateKeyPair();
         PublicKey pub = kp.getPublic();
         PrivateKey pvt = kp.getPrivate();
@@ -290,32 +359,116 @@ public class Utils {
         return new PubPriKey(pubStr, priStr);
     }
 
+    /**
+     * A few instances of a class that is not thread safe, each lent to one caller at a time. This is used instead of
+     * a ThreadLocal, since with webserver_virtual_threads_enabled every request runs on a new thread, and would make
+     * a new instance for each request. If all instances are in use, a new one is made, and it is dropped when it is
+     * given back to a full pool.
+     */
+    private static final class InstancePool<T> {
+        private final BlockingQueue<T> instances =
+                new ArrayBlockingQueue<>(2 * Runtime.getRuntime().availableProcessors());
+        private final Callable<T> factory;
+
+        InstancePool(Callable<T> factory) {
+            this.factory = factory;
+        }
+
+        T take() {
+            T instance = instances.poll();
+            if (instance != null) {
+                return instance;
+            }
+            try {
+                return factory.call();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void giveBack(T instance) {
+            instances.offer(instance);
+        }
+    }
+
+    // Signature objects are fully reset by initSign / initVerify, so they are reused instead of looking up the
+    // provider for every token.
+    private static final Map<JWTSigningKey.SupportedAlgorithms, InstancePool<Signature>> SIGNATURES =
+            new EnumMap<>(JWTSigningKey.SupportedAlgorithms.class);
+
+    static {
+        for (JWTSigningKey.SupportedAlgorithms algorithm : JWTSigningKey.SupportedAlgorithms.values()) {
+            SIGNATURES.put(algorithm,
+                    new InstancePool<>(() -> Signature.getInstance(algorithm.getSignatureAlgorithm())));
+        }
+    }
+
     public static String signWithPrivateKey(String content, String privateKey, boolean urlEncode)
             throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
-        Signature sign = Signature.getInstance("SHA256withRSA");
         Base64.Decoder decoder = Base64.getDecoder();
         PKCS8EncodedKeySpec ks = new PKCS8EncodedKeySpec(decoder.decode(privateKey));
         KeyFactory kf = KeyFactory.getInstance("RSA");
         PrivateKey pvt = kf.generatePrivate(ks);
 
-        sign.initSign(pvt);
-        sign.update(stringToBytes(content));
+        return signWithPrivateKey(content, pvt, urlEncode);
+    }
+
+    public static String signWithPrivateKey(String content, PrivateKey privateKey, boolean urlEncode)
+            throws InvalidKeyException, SignatureException {
+        return signWithPrivateKey(content, privateKey, JWTSigningKey.SupportedAlgorithms.RS256, urlEncode);
+    }
+
+    public static String signWithPrivateKey(String content, PrivateKey privateKey,
+                                            JWTSigningKey.SupportedAlgorithms algorithm, boolean urlEncode)
+            throws InvalidKeyException, SignatureException {
         Base64.Encoder encoder = urlEncode ? Base64.getUrlEncoder() : Base64.getEncoder();
-        return encoder.encodeToString(sign.sign());
+        return encoder.encodeToString(signWithPrivateKey(stringToBytes(content), privateKey, algorithm));
+    }
+
+    public static byte[] signWithPrivateKey(byte[] content, PrivateKey privateKey,
+                                            JWTSigningKey.SupportedAlgorithms algorithm)
+            throws InvalidKeyException, SignatureException {
+        InstancePool<Signature> signatures = SIGNATURES.get(algorithm);
+        Signature sign = signatures.take();
+        try {
+            sign.initSign(privateKey);
+            sign.update(content);
+            return sign.sign();
+        } finally {
+            signatures.giveBack(sign);
+        }
     }
 
     public static boolean verifyWithPublicKey(String content, String signature, String publicKey, boolean urlEncoded)
             throws NoSuchAlgorithmException, InvalidKeySpecException, InvalidKeyException, SignatureException {
-        Signature sign = Signature.getInstance("SHA256withRSA");
         Base64.Decoder keyDecoder = Base64.getDecoder();
         X509EncodedKeySpec ks = new X509EncodedKeySpec(keyDecoder.decode(publicKey));
         KeyFactory kf = KeyFactory.getInstance("RSA");
         PublicKey pub = kf.generatePublic(ks);
 
+        return verifyWithPublicKey(content, signature, pub, urlEncoded);
+    }
+
+    public static boolean verifyWithPublicKey(String content, String signature, PublicKey publicKey,
+                                              boolean urlEncoded)
+            throws InvalidKeyException, SignatureException {
+        return verifyWithPublicKey(content, signature, publicKey, JWTSigningKey.SupportedAlgorithms.RS256,
+                urlEncoded);
+    }
+
+    public static boolean verifyWithPublicKey(String content, String signature, PublicKey publicKey,
+                                              JWTSigningKey.SupportedAlgorithms algorithm, boolean urlEncoded)
+            throws InvalidKeyException, SignatureException {
         Base64.Decoder decoder = urlEncoded ? Base64.getUrlDecoder() : Base64.getDecoder();
-        sign.initVerify(pub);
-        sign.update(stringToBytes(content));
-        return sign.verify(decoder.decode(signature));
+        InstancePool<Signature> signatures = SIGNATURES.get(algorithm);
+        Signature sign = signatures.take();
+        try {
+            sign.initVerify(publicKey);
+            sign.update(stringToBytes(content));
+            return sign.verify(decoder.decode(signature));
+        } finally {
+            signatures.giveBack(sign);
+        }
     }
 
     public static boolean isFakeEmail(String email) {
@@ -0,0 +1,82 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import io.supertokens.config.CoreConfig;
+import io.supertokens.utils.Utils;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * SHA-256 digests of the api_keys and supertokens_saas_secret of a config. This is built once per config (see
+ * Config.getAPIKeyIndex), so that checking the API key of a request is a single digest of the incoming key and a
+ * hash lookup, no matter how many keys are configured.
+ *
+ * Since only digests are compared, the time taken by a comparison does not reveal anything useful about the
+ * configured keys.
+ */
+public class APIKeyIndex {
+
+    // null if api_keys is not configured
+    private final Set<ByteBuffer> apiKeyDigests;
+
+    // null if supertokens_saas_secret is not configured
+    private final byte[] saasSecretDigest;
+
+    public APIKeyIndex(CoreConfig config) {
+        String[] keys = config.getAPIKeys();
+        if (keys == null) {
+            this.apiKeyDigests = null;
+        } else {
+            this.apiKeyDigests = new HashSet<>();
+            for (String key : keys) {
+                this.apiKeyDigests.add(ByteBuffer.wrap(digest(key)));
+            }
+        }
+        String saasSecret = config.getSuperTokensSaaSSecret();
+        this.saasSecretDigest = saasSecret == null ? null : digest(saasSecret);
+    }
+
+    public boolean hasAPIKeys() {
+        return apiKeyDigests != null;
+    }
+
+    public boolean hasSaaSSecret() {
+        return saasSecretDigest != null;
+    }
+
+    public boolean isAPIKey(String apiKey) {
+        return apiKeyDigests != null && apiKeyDigests.contains(ByteBuffer.wrap(digest(apiKey)));
+    }
+
+    public boolean isSaaSSecret(String apiKey) {
+        return saasSecretDigest != null && MessageDigest.isEqual(saasSecretDigest, digest(apiKey));
+    }
+
+    private static byte[] digest(String key) {
+        try {
+            return Utils.hashSHA256Bytes(key.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
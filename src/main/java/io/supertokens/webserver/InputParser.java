@@ -20,28 +20,184 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
-
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import io.supertokens.config.CoreConfig;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 
-import java.io.BufferedReader;
+import java.io.FilterInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 
 public class InputParser {
+
+    // used for requests that have not gone through WebserverAPI.service, and so have no config attached to them
+    private static final long DEFAULT_MAX_BODY_SIZE_BYTES = new CoreConfig().getMaxRequestBodySizeBytes();
+
     public static JsonObject parseJsonObjectOrThrowError(HttpServletRequest request)
             throws ServletException, IOException {
-        StringBuilder sb = new StringBuilder();
-        try (BufferedReader reader = request.getReader()) {
-            String line;
-            while ((line = reader.readLine()) != null) {
-                sb.append(line).append('\n');
-            }
+        try (Reader reader = getBodyReader(request)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        } catch (Exception e) {
+            throw invalidBodyException(e);
         }
-        try {
-            return new JsonParser().parse(sb.toString()).getAsJsonObject();
+    }
+
+    /**
+     * Parses a JSON object body without ever holding the array in fieldName in memory: each of its elements is
+     * parsed from the request stream and handed to the consumer, in order, before the next one is read. All the
+     * other fields of the body are returned as a JsonObject. Meant for bulk APIs whose input is mostly one large
+     * array.
+     *
+     * The array field is required. If it is missing, is not an array, or appears more than once, this throws a
+     * bad request error just like parseArrayOrThrowError does.
+     */
+    public static JsonObject parseJsonObjectWithArrayOrThrowError(HttpServletRequest request, String fieldName,
+                                                                  JsonArrayElementConsumer consumer)
+            throws ServletException, IOException {
+        JsonObject result = new JsonObject();
+        boolean arrayFound = false;
+        try (JsonReader reader = new JsonReader(getBodyReader(request))) {
+            // same as JsonParser.parseReader
+            reader.setStrictness(Strictness.LENIENT);
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (!name.equals(fieldName)) {
+                    result.add(name, JsonParser.parseReader(reader));
+                    continue;
+                }
+                if (arrayFound || reader.peek() != JsonToken.BEGIN_ARRAY) {
+                    throw invalidFieldException(fieldName);
+                }
+                arrayFound = true;
+                reader.beginArray();
+                for (int index = 0; reader.hasNext(); index++) {
+                    consumer.beforeElement(index);
+                    consumer.accept(index, JsonParser.parseReader(reader));
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+            if (reader.peek() != JsonToken.END_DOCUMENT) {
+                throw new IOException("Did not consume the entire document");
+            }
+        } catch (ServletException e) {
+            throw e;
         } catch (Exception e) {
-            throw new ServletException(new WebserverAPI.BadRequestException("Invalid Json Input"));
+            throw invalidBodyException(e);
+        }
+        if (!arrayFound) {
+            throw invalidFieldException(fieldName);
+        }
+        return result;
+    }
+
+    @FunctionalInterface
+    public interface JsonArrayElementConsumer {
+        void accept(int index, JsonElement element) throws ServletException;
+
+        /**
+         * Called before the element at index is read from the request. Consumers that limit the number of elements
+         * can throw from here, so that the rest of the request is not read at all.
+         */
+        default void beforeElement(int index) throws ServletException {
+        }
+    }
+
+    /**
+     * Returns a reader over the request body that fails once more than max_request_body_size_kb bytes have been
+     * read. The Content-Length header (if present) is checked upfront, so that such requests are rejected before
+     * their body is read at all.
+     */
+    private static Reader getBodyReader(HttpServletRequest request) throws IOException {
+        long maxBodySize = getMaxBodySizeBytes(request);
+        if (request.getContentLengthLong() > maxBodySize) {
+            throw new BodyTooLargeException();
+        }
+        // if the request does not say which charset it uses, we use the same default as the servlet container does
+        // for request.getReader()
+        String encoding = request.getCharacterEncoding();
+        Charset charset = encoding == null ? StandardCharsets.ISO_8859_1 : Charset.forName(encoding);
+        return new InputStreamReader(new SizeLimitedInputStream(request.getInputStream(), maxBodySize), charset);
+    }
+
+    private static long getMaxBodySizeBytes(HttpServletRequest request) {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(request);
+        if (context == null) {
+            return DEFAULT_MAX_BODY_SIZE_BYTES;
+        }
+        // this is a ConfigYamlOnly config, so it is read from the base tenant
+        return context.getBaseConfig().getMaxRequestBodySizeBytes();
+    }
+
+    private static ServletException invalidBodyException(Exception e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof BodyTooLargeException) {
+                return new ServletException(new WebserverAPI.BadRequestException("Request body is too large"));
+            }
+        }
+        return new ServletException(new WebserverAPI.BadRequestException("Invalid Json Input"));
+    }
+
+    private static ServletException invalidFieldException(String fieldName) {
+        return new ServletException(
+                new WebserverAPI.BadRequestException("Field name '" + fieldName + "' is invalid in JSON input"));
+    }
+
+    private static class BodyTooLargeException extends IOException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Counts the bytes of the body as they are read from the request, before they are decoded into chars.
+     */
+    private static class SizeLimitedInputStream extends FilterInputStream {
+        private final long maxBytes;
+        private long bytesRead = 0;
+
+        SizeLimitedInputStream(InputStream in, long maxBytes) {
+            super(in);
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b != -1) {
+                count(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count(n);
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = super.skip(n);
+            count(skipped);
+            return skipped;
+        }
+
+        private void count(long n) throws BodyTooLargeException {
+            bytesRead += n;
+            if (bytesRead > maxBytes) {
+                throw new BodyTooLargeException();
+            }
         }
     }
 
@@ -0,0 +1,67 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import io.supertokens.config.CoreConfig;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+/**
+ * The compiled ip_allow_regex and ip_deny_regex of a tenant's config. This has the same semantics as tomcat's
+ * RemoteAddrFilter, but the patterns are compiled just once per config (see Config.getIpAccessFilter) instead of
+ * once per request.
+ */
+public class IpAccessFilter {
+
+    private static final int DENY_STATUS = 403;
+
+    private final Pattern allow;
+    private final Pattern deny;
+
+    public IpAccessFilter(CoreConfig config) {
+        // the regexes have already been validated by CoreConfig.normalizeAndValidate
+        this.allow = config.getIpAllowRegex() == null ? null : Pattern.compile(config.getIpAllowRegex());
+        this.deny = config.getIpDenyRegex() == null ? null : Pattern.compile(config.getIpDenyRegex());
+    }
+
+    public boolean isAllowed(String remoteAddr) {
+        if (allow == null && deny == null) {
+            return true;
+        }
+        if (deny != null && deny.matcher(remoteAddr).matches()) {
+            return false;
+        }
+        if (allow != null && allow.matcher(remoteAddr).matches()) {
+            return true;
+        }
+        return allow == null;
+    }
+
+    /**
+     * Returns true if the request is allowed. Otherwise, it sends a 403 response and returns false.
+     */
+    public boolean checkAccess(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        if (isAllowed(req.getRemoteAddr())) {
+            return true;
+        }
+        resp.sendError(DENY_STATUS);
+        return false;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import com.google.gson.JsonObject;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+
+/**
+ * Lock free histogram of request latencies, in microseconds. Latencies under 16 us each get their own bucket, and
+ * every power of two above that is split into 8 buckets, so a percentile read from this is at most 12.5% above the
+ * actual value. Latencies beyond the last bucket (about 38 hours) are counted in the last bucket.
+ */
+final class LatencyHistogram {
+
+    private static final int LINEAR_BUCKETS = 16; // 2 ^ (SUB_BUCKET_BITS + 1)
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 36;
+    private static final int NUM_BUCKETS = LINEAR_BUCKETS + (MAX_EXPONENT - 4 + 1) * SUB_BUCKETS;
+
+    private final String method;
+    private final String path;
+    private final int statusCode;
+
+    private final AtomicLongArray counts = new AtomicLongArray(NUM_BUCKETS);
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    LatencyHistogram(String method, String path, int statusCode) {
+        this.method = method;
+        this.path = path;
+        this.statusCode = statusCode;
+    }
+
+    void record(long latencyNanos) {
+        long micros = Math.max(0, latencyNanos / 1000);
+        counts.incrementAndGet(bucketOf(micros));
+        max.accumulate(micros);
+    }
+
+    static int bucketOf(long micros) {
+        if (micros < LINEAR_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return NUM_BUCKETS - 1;
+        }
+        int subBucket = (int) (micros >> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return LINEAR_BUCKETS + (exponent - 4) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < LINEAR_BUCKETS) {
+            return bucket;
+        }
+        int exponent = 4 + (bucket - LINEAR_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - LINEAR_BUCKETS) % SUB_BUCKETS;
+        long width = 1L << (exponent - SUB_BUCKET_BITS);
+        return (SUB_BUCKETS + subBucket) * width + width - 1;
+    }
+
+    String getMethod() {
+        return method;
+    }
+
+    String getPath() {
+        return path;
+    }
+
+    int getStatusCode() {
+        return statusCode;
+    }
+
+    long getCount() {
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    JsonObject toJson() {
+        long[] snapshot = new long[NUM_BUCKETS];
+        long total = 0;
+        for (int i = 0; i < NUM_BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        long maxMicros = max.get();
+
+        JsonObject result = new JsonObject();
+        result.addProperty("method", method);
+        result.addProperty("path", path);
+        result.addProperty("statusCode", statusCode);
+        result.addProperty("count", total);
+        result.addProperty("p50", toMillis(percentile(snapshot, total, 0.5, maxMicros)));
+        result.addProperty("p90", toMillis(percentile(snapshot, total, 0.9, maxMicros)));
+        result.addProperty("p99", toMillis(percentile(snapshot, total, 0.99, maxMicros)));
+        result.addProperty("max", toMillis(maxMicros));
+        return result;
+    }
+
+    private static long percentile(long[] snapshot, long total, double quantile, long maxMicros) {
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * total));
+        long seen = 0;
+        for (int i = 0; i < snapshot.length; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(i), maxMicros);
+            }
+        }
+        return maxMicros;
+    }
+
+    private static double toMillis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -22,13 +22,22 @@ import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 public class PathRouter extends WebserverAPI {
     private static final long serialVersionUID = -3199188474453935983L;
 
     List<WebserverAPI> apis;
 
+    // rebuilt on every addAPI call (which only happens during setup, or in tests), and read without locking on
+    // every request.
+    private volatile RouteTable routeTable = new RouteTable(new ArrayList<>());
+
+    // set only when requests are run on virtual threads
+    private volatile StorageRequestPermits storageRequestPermits = null;
+
     public PathRouter(Main main) {
         super(main, "");
         this.apis = new ArrayList();
@@ -43,6 +52,11 @@ public class PathRouter extends WebserverAPI {
                 }
             }
         }
+        this.routeTable = new RouteTable(this.apis);
+    }
+
+    void setStorageRequestPermits(StorageRequestPermits storageRequestPermits) {
+        this.storageRequestPermits = storageRequestPermits;
     }
 
     @Override
@@ -62,55 +76,147 @@ public class PathRouter extends WebserverAPI {
 
     private WebserverAPI getAPIThatMatchesPath(HttpServletRequest req) {
         // getServletPath returns the path without the configured base path.
-        String requestPath = req.getServletPath().toLowerCase();
+        WebserverAPI api = this.routeTable.match(req.getServletPath().toLowerCase());
+        if (api == null) {
+            throw new RuntimeException("Should never come here");
+        }
+        return api;
+    }
 
-        // first we check for exact match
-        for (WebserverAPI api : this.apis) {
-            String apiPath = api.getPath().toLowerCase();
-            if (!apiPath.startsWith("/")) {
-                apiPath = "/" + apiPath;
-            }
-            if (requestPath.equals(apiPath) || requestPath.equals(apiPath + "/")) {
-                return api;
-            }
+    @Override
+    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        StorageRequestPermits storageRequestPermits = this.storageRequestPermits;
+        if (storageRequestPermits == null) {
+            getAPIThatMatchesPath(req).service(req, resp);
+            return;
+        }
+        storageRequestPermits.attachTo(req);
+        try {
+            getAPIThatMatchesPath(req).service(req, resp);
+        } finally {
+            // the API takes a permit (if at all) when it first asks for a storage
+            storageRequestPermits.release(req);
         }
+    }
 
-        // then we check if tenantId or appId is embedded in the URL.
-        for (WebserverAPI api : this.apis) {
-            String apiPath = api.getPath().toLowerCase();
-            if (!apiPath.startsWith("/")) {
-                apiPath = "/" + apiPath;
+    /**
+     * Immutable lookup table over the registered APIs. A request path can optionally be prefixed by
+     * /appid-<appId> and / or /<tenantId>, so at most three splits of the request path need to be looked up
+     * against the API paths, each of which is a hash lookup. When more than one API matches a request, the one
+     * that was added most recently wins, as is the case with the order of the apis list.
+     */
+    private static class RouteTable {
+        private static final String APP_ID_PREFIX = "appid-";
+
+        // keyed by the lowercase API path with a leading slash
+        private final Map<String, Route> exactRoutes = new HashMap<>();
+
+        // keyed by the lowercase API path with a leading slash and without its trailing slash ("" for the root
+        // path).
+        private final Map<String, Route> routesAfterTenantPrefix = new HashMap<>();
+
+        private final WebserverAPI fallbackApi;
+
+        RouteTable(List<WebserverAPI> apis) {
+            WebserverAPI fallback = null;
+            // apis is ordered from the most recent to the oldest, so the priority is the reverse of the index
+            for (int i = 0; i < apis.size(); i++) {
+                WebserverAPI api = apis.get(i);
+                Route route = new Route(api, apis.size() - i);
+
+                String apiPath = api.getPath().toLowerCase();
+                if (!apiPath.startsWith("/")) {
+                    apiPath = "/" + apiPath;
+                }
+                exactRoutes.putIfAbsent(apiPath, route);
+
+                if (apiPath.endsWith("/")) {
+                    apiPath = apiPath.substring(0, apiPath.length() - 1);
+                }
+                routesAfterTenantPrefix.putIfAbsent(apiPath, route);
+
+                if (fallback == null && api.getPath().equals("/")) {
+                    fallback = api;
+                }
             }
+            this.fallbackApi = fallback;
+        }
 
-            if (apiPath.endsWith("/")) {
-                apiPath = apiPath.substring(0, apiPath.length() - 1);
+        WebserverAPI match(String requestPath) {
+            // first we check for exact match
+            Route exact = exactRoutes.get(requestPath);
+            if (requestPath.endsWith("/")) {
+                exact = higherPriority(exact,
+                        exactRoutes.get(requestPath.substring(0, requestPath.length() - 1)));
+            }
+            if (exact != null) {
+                return exact.api;
             }
 
-            if (apiPath.isBlank()) {
-                String tenantIdStopWords = String.join("$|", Utils.INVALID_WORDS_FOR_TENANTID) + "$"; // Adds an end of string for each entry
-                tenantIdStopWords += "|" + String.join("/|", Utils.INVALID_WORDS_FOR_TENANTID) + "/"; // Adds a trailing slash for each entry
-                if (requestPath.matches(
-                        "^(/appid-[a-z0-9-]*)?(/(?!" + tenantIdStopWords + ")[a-z0-9-]+)?" + "/?$")) {
-                    return api;
-                }
-            } else {
-                String tenantIdStopWords = String.join("/|", Utils.INVALID_WORDS_FOR_TENANTID) + "/"; // Adds a trailing slash for each entry
-                if (requestPath.matches(
-                        "^(/appid-[a-z0-9-]*)?(/(?!" + tenantIdStopWords + ")[a-z0-9-]+)?" + apiPath + "/?$")) {
-                    return api;
+            // then we check if tenantId or appId is embedded in the URL. The first path segment can be an appId
+            // or a tenantId, and the second one can be the tenantId only if the first one was an appId.
+            Route best = matchAfterTenantPrefix(requestPath);
+
+            int firstSegmentEnd = endOfSegment(requestPath, 1);
+            if (firstSegmentEnd != -1) {
+                String firstSegment = requestPath.substring(1, firstSegmentEnd);
+                if (isValidTenantIdSegment(firstSegment)) {
+                    best = higherPriority(best, matchAfterTenantPrefix(requestPath.substring(firstSegmentEnd)));
+
+                    if (firstSegment.startsWith(APP_ID_PREFIX)) {
+                        int secondSegmentEnd = endOfSegment(requestPath, firstSegmentEnd + 1);
+                        if (secondSegmentEnd != -1 && isValidTenantIdSegment(
+                                requestPath.substring(firstSegmentEnd + 1, secondSegmentEnd))) {
+                            best = higherPriority(best,
+                                    matchAfterTenantPrefix(requestPath.substring(secondSegmentEnd)));
+                        }
+                    }
                 }
             }
+
+            if (best != null) {
+                return best.api;
+            }
+            return fallbackApi;
         }
-        for (WebserverAPI api : this.apis) {
-            if (api.getPath().equals("/")) {
-                return api;
+
+        private Route matchAfterTenantPrefix(String remainingPath) {
+            // the remaining path is either empty, or starts with a slash, and may end with an extra slash.
+            Route route = routesAfterTenantPrefix.get(remainingPath);
+            if (remainingPath.endsWith("/")) {
+                route = higherPriority(route,
+                        routesAfterTenantPrefix.get(remainingPath.substring(0, remainingPath.length() - 1)));
             }
+            return route;
+        }
+
+        private static int endOfSegment(String path, int start) {
+            return RequestTenantContext.endOfSegment(path, start);
+        }
+
+        private static boolean isValidTenantIdSegment(String segment) {
+            return !segment.isEmpty() && !Utils.INVALID_WORDS_FOR_TENANTID.contains(segment)
+                    && RequestTenantContext.hasOnlyIdCharacters(segment);
+        }
+
+        private static Route higherPriority(Route a, Route b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            return a.priority >= b.priority ? a : b;
         }
-        throw new RuntimeException("Should never come here");
     }
 
-    @Override
-    protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
-        getAPIThatMatchesPath(req).service(req, resp);
+    private static class Route {
+        final WebserverAPI api;
+        final int priority;
+
+        Route(WebserverAPI api, int priority) {
+            this.api = api;
+            this.priority = priority;
+        }
     }
 }
@@ -25,16 +25,33 @@ import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
 public class RequestStats extends ResourceDistributor.SingletonResource {
     public static final String RESOURCE_KEY = "io.supertokens.webserver.RequestStats";
 
     private final int MAX_MINUTES = 24 * 60;
 
-    private long currentMinute; // current minute since epoch
-    private final int[] currentMinuteRequestCounts; // array of 60 items representing number of requests at each
-    // second in the current minute
+    // the minute (since epoch) in which this was created. Minutes before this have no stats.
+    private final long startMinute;
+
+    // counts of the minute that is going on right now. Requests only ever increment this, without taking any lock.
+    private volatile MinuteRequestCounts currentMinuteCounts;
+
+    // counts of the minute before currentMinuteCounts. This is moved into the arrays below only on the next minute
+    // change, so that a request which read currentMinuteCounts just before the minute changed still gets counted.
+    // Guarded by this.
+    private MinuteRequestCounts previousMinuteCounts = null;
 
-    // The 2 arrays below contains stats for a day for every minute
+    // Contains stats for a day for every minute. Each item packs the number of requests in that minute in its upper
+    // 32 bits, and the peak requests per second in that minute in its lower 32 bits. 0 means there were no requests.
     // the array is stored in such a way that array[currentMinute % MAX_MINUTES] contains the stats for a day ago
     // until array[(currentMinute - 1) % MAX_MINUTES] which contains the stats for the last minute, circling around
     // from end of array to the beginning
@@ -47,50 +64,73 @@ public class RequestStats extends ResourceDistributor.SingletonResource {
     // array[1] contains stats for now - 1189 minutes
     // ...
     // array[249] contains stats for now - 1 minute
-    private final double[] averageRequestsPerSecond;
-    private final int[] peakRequestsPerSecond;
+    // Only minutes up to lastRecordedMinute have been written to this. It is null if there were no requests in the
+    // last day (which is the case for most apps in a core with many apps), in which case all of them are 0.
+    // Guarded by this.
+    private long[] requestsPerMinute = null;
+    private long lastRecordedMinute;
+    private long lastMinuteWithRequests = Long.MIN_VALUE;
+
+    // at most this many latency histograms (about 2 KB each) are kept per app. Requests for any other combination of
+    // method, API path and status code after that are recorded in the overflow histogram.
+    private static final int MAX_LATENCY_HISTOGRAMS = 256;
+
+    private static final Set<String> KNOWN_METHODS = Set.of("GET", "POST", "PUT", "PATCH", "DELETE", "HEAD",
+            "OPTIONS", "TRACE");
+
+    // latency histograms by method, API path and status code, since this was created. The path is the one the API
+    // is registered with, and not the request URI, so it has no ids or tenant prefixes in it.
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentHashMap<>();
+    private final LatencyHistogram overflowLatencies = new LatencyHistogram("OTHER", "*", 0);
 
     private RequestStats() {
-        currentMinute = System.currentTimeMillis() / 60000;
-        currentMinuteRequestCounts = new int[60];
-
-        averageRequestsPerSecond = new double[MAX_MINUTES];
-        peakRequestsPerSecond = new int[MAX_MINUTES];
-        for (int i = 0; i < MAX_MINUTES; i++) {
-            averageRequestsPerSecond[i] = -1;
-            peakRequestsPerSecond[i] = -1;
-        }
+        startMinute = System.currentTimeMillis() / 60000;
+        currentMinuteCounts = new MinuteRequestCounts(startMinute);
+        lastRecordedMinute = startMinute - 1;
     }
 
-    private void checkAndUpdateMinute(long currentSecond) {
-        if (currentSecond / 60 == currentMinute) {
-            return; // stats update not required
+    private MinuteRequestCounts getCountsForMinute(long minute) {
+        MinuteRequestCounts counts = this.currentMinuteCounts;
+        if (counts.minute >= minute) {
+            return counts;
         }
+        return changeMinute(minute);
+    }
 
-        int sum = 0;
-        int max = 0;
-        for (int i = 0; i < 60; i++) {
-            sum += currentMinuteRequestCounts[i];
-            max = Math.max(max, currentMinuteRequestCounts[i]);
+    synchronized private MinuteRequestCounts changeMinute(long minute) {
+        MinuteRequestCounts counts = this.currentMinuteCounts;
+        if (counts.minute >= minute) {
+            return counts; // another thread has already done this
         }
-
-        averageRequestsPerSecond[(int) (currentMinute % MAX_MINUTES)] = sum / 60.0;
-        peakRequestsPerSecond[(int) (currentMinute % MAX_MINUTES)] = max;
-
-        // fill zeros for passed minutes
-        for (long i = currentMinute + 1; i < currentSecond / 60; i++) {
-            averageRequestsPerSecond[(int) (i % MAX_MINUTES)] = 0;
-            peakRequestsPerSecond[(int) (i % MAX_MINUTES)] = 0;
+        if (previousMinuteCounts != null) {
+            record(previousMinuteCounts);
         }
+        previousMinuteCounts = counts;
+        currentMinuteCounts = new MinuteRequestCounts(minute);
+        return currentMinuteCounts;
+    }
 
-        currentMinute = currentSecond / 60;
-        for (int i = 0; i < 60; i++) {
-            currentMinuteRequestCounts[i] = 0;
+    private void record(MinuteRequestCounts counts) {
+        long stats = counts.getPackedStats();
+        if (stats != 0) {
+            lastMinuteWithRequests = counts.minute;
+            if (requestsPerMinute == null) {
+                // all items are 0 at this point, which is right for the minutes before this one
+                requestsPerMinute = new long[MAX_MINUTES];
+            }
+        } else if (requestsPerMinute != null && counts.minute - lastMinuteWithRequests >= MAX_MINUTES) {
+            // no requests in the last day, so all items would be 0 anyway
+            requestsPerMinute = null;
         }
-    }
 
-    private void updateCounts(long currentSecond) {
-        currentMinuteRequestCounts[(int) (currentSecond % 60)]++;
+        if (requestsPerMinute != null) {
+            // minutes between the last recorded one and this one had no requests
+            for (long i = Math.max(lastRecordedMinute + 1, counts.minute - MAX_MINUTES + 1); i < counts.minute; i++) {
+                requestsPerMinute[(int) (i % MAX_MINUTES)] = 0;
+            }
+            requestsPerMinute[(int) (counts.minute % MAX_MINUTES)] = stats;
+        }
+        lastRecordedMinute = counts.minute;
     }
 
     public static RequestStats getInstance(Main main, AppIdentifier appIdentifier) throws TenantOrAppNotFoundException {
@@ -103,7 +143,7 @@ public class RequestStats extends ResourceDistributor.SingletonResource {
             // that don't exist.
             // The other resources are created during init or while refreshing tenants from the db, so we don't need
             // this kind of pattern for those resources.
-            if (Multitenancy.getTenantInfo(main, appIdentifier.getAsPublicTenantIdentifier()) == null) {
+            if (!Multitenancy.isTenantPresent(main, appIdentifier.getAsPublicTenantIdentifier())) {
                 throw e;
             }
             return (RequestStats) main.getResourceDistributor()
@@ -111,36 +151,138 @@ public class RequestStats extends ResourceDistributor.SingletonResource {
         }
     }
 
-    public void updateRequestStats() {
-        this.updateRequestStats(true);
-    }
-
-    synchronized private void updateRequestStats(boolean updateCounts) {
+    public void updateRequestStats(String method, String path, int statusCode, long latencyNanos) {
         long now = System.currentTimeMillis() / 1000;
-        this.checkAndUpdateMinute(now);
-        if (updateCounts) {
-            this.updateCounts(now);
+        getCountsForMinute(now / 60).increment(now);
+
+        // clients can send any method, so only the standard ones get their own histograms
+        String normalisedMethod = KNOWN_METHODS.contains(method) ? method : "OTHER";
+        String key = normalisedMethod + " " + path + " " + statusCode;
+        LatencyHistogram histogram = latencies.get(key);
+        if (histogram == null) {
+            if (latencies.size() >= MAX_LATENCY_HISTOGRAMS) {
+                histogram = overflowLatencies;
+            } else {
+                // a few racing requests may take this slightly above the limit, which is fine
+                histogram = latencies.computeIfAbsent(key,
+                        k -> new LatencyHistogram(normalisedMethod, path, statusCode));
+            }
         }
+        histogram.record(latencyNanos);
     }
 
     public JsonObject getStats() {
-        this.updateRequestStats(false);
+        long atMinute = System.currentTimeMillis() / 60000;
+        getCountsForMinute(atMinute);
 
         JsonArray avgRps = new JsonArray();
         JsonArray peakRps = new JsonArray();
 
-        long atMinute = System.currentTimeMillis() / 60000;
+        synchronized (this) {
+            freeHistoryIfIdle(atMinute);
+            for (long minute = atMinute - MAX_MINUTES; minute < atMinute; minute++) {
+                int index = (int) (minute % MAX_MINUTES);
+                if (minute < startMinute) {
+                    avgRps.add(new JsonPrimitive(-1.0));
+                    peakRps.add(new JsonPrimitive(-1));
+                } else if (minute <= lastRecordedMinute) {
+                    long stats = requestsPerMinute == null ? 0 : requestsPerMinute[index];
+                    avgRps.add(new JsonPrimitive(getAverage(stats)));
+                    peakRps.add(new JsonPrimitive(getPeak(stats)));
+                } else if (previousMinuteCounts != null && minute == previousMinuteCounts.minute) {
+                    long stats = previousMinuteCounts.getPackedStats();
+                    avgRps.add(new JsonPrimitive(getAverage(stats)));
+                    peakRps.add(new JsonPrimitive(getPeak(stats)));
+                } else {
+                    // no requests in this minute
+                    avgRps.add(new JsonPrimitive(0.0));
+                    peakRps.add(new JsonPrimitive(0));
+                }
+            }
+        }
 
-        int offset = (int) (atMinute % MAX_MINUTES);
-        for (int i = 0; i < MAX_MINUTES; i++) {
-            avgRps.add(new JsonPrimitive(this.averageRequestsPerSecond[(i + offset) % MAX_MINUTES]));
-            peakRps.add(new JsonPrimitive(this.peakRequestsPerSecond[(i + offset) % MAX_MINUTES]));
+        List<LatencyHistogram> histograms = new ArrayList<>(latencies.values());
+        histograms.sort(Comparator.comparing(LatencyHistogram::getPath)
+                .thenComparing(LatencyHistogram::getMethod)
+                .thenComparingInt(LatencyHistogram::getStatusCode));
+        JsonArray latenciesJson = new JsonArray();
+        for (LatencyHistogram histogram : histograms) {
+            latenciesJson.add(histogram.toJson());
+        }
+        if (overflowLatencies.getCount() > 0) {
+            latenciesJson.add(overflowLatencies.toJson());
         }
 
         JsonObject result = new JsonObject();
         result.addProperty("atMinute", atMinute);
         result.add("averageRequestsPerSecond", avgRps);
         result.add("peakRequestsPerSecond", peakRps);
+        result.add("latencies", latenciesJson);
         return result;
     }
+
+    // record(...) only frees the history when a minute without requests is recorded, which needs requests to come
+    // in. This is called on reads too, so that an app which got no requests in the last day frees its history even if
+    // it never gets another one. Must be called while holding the lock on this.
+    private void freeHistoryIfIdle(long atMinute) {
+        if (requestsPerMinute == null) {
+            return;
+        }
+        long lastMinuteToShow = Math.max(lastMinuteWithRequests,
+                previousMinuteCounts == null ? Long.MIN_VALUE : previousMinuteCounts.minute);
+        if (atMinute - lastMinuteToShow > MAX_MINUTES) {
+            // every minute that is shown had no requests
+            requestsPerMinute = null;
+        }
+    }
+
+    private static class MinuteRequestCounts {
+        private final long minute; // minute since epoch
+
+        // number of requests at each second in this minute. A counter is only created for a second in which there
+        // was a request, since most apps get requests in only a few seconds of a minute (if at all).
+        private final AtomicReferenceArray<LongAdder> requestCounts = new AtomicReferenceArray<>(60);
+
+        MinuteRequestCounts(long minute) {
+            this.minute = minute;
+        }
+
+        void increment(long currentSecond) {
+            int index = (int) (currentSecond % 60);
+            LongAdder count = requestCounts.get(index);
+            if (count == null) {
+                requestCounts.compareAndSet(index, null, new LongAdder());
+                count = requestCounts.get(index);
+            }
+            count.increment();
+        }
+
+        long getPackedStats() {
+            long sum = 0;
+            long max = 0;
+            for (int i = 0; i < 60; i++) {
+                LongAdder count = requestCounts.get(i);
+                if (count != null) {
+                    long value = count.sum();
+                    sum += value;
+                    max = Math.max(max, value);
+                }
+            }
+            return packStats(sum, max);
+        }
+    }
+
+    // public only so that tests can check the encoding
+    public static long packStats(long requestsInMinute, long peakRequestsPerSecond) {
+        return (Math.min(requestsInMinute, Integer.MAX_VALUE) << 32) |
+                Math.min(peakRequestsPerSecond, Integer.MAX_VALUE);
+    }
+
+    public static double getAverage(long packedStats) {
+        return (packedStats >>> 32) / 60.0;
+    }
+
+    public static int getPeak(long packedStats) {
+        return (int) packedStats;
+    }
 }
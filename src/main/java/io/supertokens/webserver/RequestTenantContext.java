@@ -0,0 +1,394 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import io.supertokens.Main;
+import io.supertokens.config.Config;
+import io.supertokens.config.CoreConfig;
+import io.supertokens.pluginInterface.Storage;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
+import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.utils.SemVer;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+
+import javax.annotation.Nullable;
+
+/**
+ * The tenant that an HTTP request is made for, along with its config, storage and negotiated CDI version. This is
+ * resolved once at the start of WebserverAPI.service and attached to the request, so that the URL is parsed and
+ * the resources are looked up only once per request.
+ *
+ * The config and storage fields are null if the tenant (or app) did not exist when the request started.
+ */
+public final class RequestTenantContext {
+
+    private static final String REQUEST_ATTRIBUTE = RequestTenantContext.class.getName();
+
+    private static final String APP_ID_PREFIX = "appid-";
+
+    private final WebserverAPI api;
+
+    private final TenantIdentifier tenantIdentifier;
+
+    // null if the path did not contain a tenantId, or if it was the public tenant
+    @Nullable
+    private final String tenantIdFromPath;
+
+    @Nullable
+    private final CoreConfig config;
+
+    @Nullable
+    private final Storage storage;
+
+    @Nullable
+    private final CoreConfig appConfig;
+
+    @Nullable
+    private final Storage appStorage;
+
+    private final CoreConfig baseConfig;
+
+    // of the app. This is null if the app does not exist.
+    @Nullable
+    private final APIKeyIndex appAPIKeyIndex;
+
+    private final APIKeyIndex baseAPIKeyIndex;
+
+    // of the tenant, or of the app if the tenant does not exist. This is null if neither exist.
+    @Nullable
+    private final IpAccessFilter ipAccessFilter;
+
+    private final SemVer maxCDIVersion;
+
+    @Nullable
+    private final SemVer minCDIVersion;
+
+    @Nullable
+    private final SemVer version;
+
+    // set instead of version if the cdi-version header is not acceptable. It is thrown only when the version is
+    // asked for, so that other checks (like the API key check) still happen before it.
+    @Nullable
+    private final String versionError;
+
+    RequestTenantContext(Main main, WebserverAPI api, HttpServletRequest req, @Nullable String connectionUriDomain) {
+        this.api = api;
+
+        String path = req.getServletPath().toLowerCase();
+        String apiPath = normaliseAPIPath(api.getPath());
+        this.tenantIdFromPath = getTenantIdFromPath(path, apiPath);
+        this.tenantIdentifier = new TenantIdentifier(connectionUriDomain, getAppIdFromPath(path, apiPath),
+                this.tenantIdFromPath);
+        TenantIdentifier appTenantIdentifier = this.tenantIdentifier.toAppIdentifier()
+                .getAsPublicTenantIdentifier();
+
+        Config tenantConfigResource = getConfigOrNull(main, this.tenantIdentifier);
+        Config appConfigResource = appTenantIdentifier.equals(this.tenantIdentifier) ? tenantConfigResource :
+                getConfigOrNull(main, appTenantIdentifier);
+        this.config = tenantConfigResource == null ? null : tenantConfigResource.getCoreConfig();
+        this.appConfig = appConfigResource == null ? null : appConfigResource.getCoreConfig();
+        if (tenantConfigResource != null) {
+            this.ipAccessFilter = tenantConfigResource.getIpAccessFilter();
+        } else if (appConfigResource != null) {
+            this.ipAccessFilter = appConfigResource.getIpAccessFilter();
+        } else {
+            this.ipAccessFilter = null;
+        }
+        this.storage = getStorageOrNull(main, this.tenantIdentifier);
+        this.appStorage = appTenantIdentifier.equals(this.tenantIdentifier) ? this.storage :
+                getStorageOrNull(main, appTenantIdentifier);
+        this.appAPIKeyIndex = appConfigResource == null ? null : appConfigResource.getAPIKeyIndex();
+        Config baseConfigResource;
+        try {
+            baseConfigResource = Config.getInstance(TenantIdentifier.BASE_TENANT, main);
+        } catch (TenantOrAppNotFoundException e) {
+            throw new IllegalStateException(e);
+        }
+        this.baseConfig = baseConfigResource.getCoreConfig();
+        this.baseAPIKeyIndex = baseConfigResource.getAPIKeyIndex();
+
+        String maxCDIVersionStr = this.appConfig == null ? null : this.appConfig.getMaxCDIVersion();
+        this.maxCDIVersion = maxCDIVersionStr == null ? WebserverAPI.getLatestCDIVersion() :
+                new SemVer(maxCDIVersionStr);
+        String minCDIVersionStr = this.appConfig == null ? null : this.appConfig.getMinCDIVersion();
+        this.minCDIVersion = minCDIVersionStr == null ? null : new SemVer(minCDIVersionStr);
+
+        String versionStr = req.getHeader("cdi-version");
+        SemVer version = null;
+        String versionError = null;
+        if (versionStr == null) {
+            version = this.maxCDIVersion;
+        } else {
+            try {
+                version = new SemVer(versionStr);
+            } catch (RuntimeException e) {
+                versionError = "cdi-version header is invalid";
+            }
+            if (version != null) {
+                if (version.greaterThan(this.maxCDIVersion)) {
+                    versionError = "cdi-version " + version + " not supported";
+                } else if (this.minCDIVersion != null && version.lesserThan(this.minCDIVersion)) {
+                    versionError = "cdi-version " + version + " is lower than the minimum allowed version "
+                            + this.minCDIVersion;
+                }
+                if (versionError != null) {
+                    version = null;
+                }
+            }
+        }
+        this.version = version;
+        this.versionError = versionError;
+    }
+
+    void attachTo(HttpServletRequest req) {
+        req.setAttribute(REQUEST_ATTRIBUTE, this);
+    }
+
+    /**
+     * Returns the context attached to this request by whichever API is serving it, or null if there is none.
+     */
+    @Nullable
+    static RequestTenantContext getFromRequest(HttpServletRequest req) {
+        Object context = req.getAttribute(REQUEST_ATTRIBUTE);
+        return context instanceof RequestTenantContext ? (RequestTenantContext) context : null;
+    }
+
+    /**
+     * Returns the context attached to this request by the given API, or null if there is none (for example if
+     * the request did not go through WebserverAPI.service).
+     */
+    @Nullable
+    static RequestTenantContext getFromRequest(HttpServletRequest req, WebserverAPI api) {
+        Object context = req.getAttribute(REQUEST_ATTRIBUTE);
+        if (context instanceof RequestTenantContext && ((RequestTenantContext) context).api == api) {
+            return (RequestTenantContext) context;
+        }
+        return null;
+    }
+
+    public TenantIdentifier getTenantIdentifier() {
+        return tenantIdentifier;
+    }
+
+    public AppIdentifier getAppIdentifier() {
+        return tenantIdentifier.toAppIdentifier();
+    }
+
+    @Nullable
+    String getTenantIdFromPath() {
+        return tenantIdFromPath;
+    }
+
+    @Nullable
+    public CoreConfig getConfig() {
+        return config;
+    }
+
+    @Nullable
+    public Storage getStorage() {
+        return storage;
+    }
+
+    @Nullable
+    public CoreConfig getAppConfig() {
+        return appConfig;
+    }
+
+    @Nullable
+    public Storage getAppStorage() {
+        return appStorage;
+    }
+
+    public CoreConfig getBaseConfig() {
+        return baseConfig;
+    }
+
+    @Nullable
+    public IpAccessFilter getIpAccessFilter() {
+        return ipAccessFilter;
+    }
+
+    @Nullable
+    public APIKeyIndex getAppAPIKeyIndex() {
+        return appAPIKeyIndex;
+    }
+
+    public APIKeyIndex getBaseAPIKeyIndex() {
+        return baseAPIKeyIndex;
+    }
+
+    public SemVer getMaxCDIVersion() {
+        return maxCDIVersion;
+    }
+
+    @Nullable
+    public SemVer getMinCDIVersion() {
+        return minCDIVersion;
+    }
+
+    public SemVer getVersion() throws ServletException {
+        if (versionError != null) {
+            throw new ServletException(new WebserverAPI.BadRequestException(versionError));
+        }
+        return version;
+    }
+
+    @Nullable
+    private static Config getConfigOrNull(Main main, TenantIdentifier tenantIdentifier) {
+        try {
+            return Config.getInstance(tenantIdentifier, main);
+        } catch (TenantOrAppNotFoundException e) {
+            return null;
+        }
+    }
+
+    @Nullable
+    private static Storage getStorageOrNull(Main main, TenantIdentifier tenantIdentifier) {
+        try {
+            return StorageLayer.getStorage(tenantIdentifier, main);
+        } catch (TenantOrAppNotFoundException e) {
+            return null;
+        }
+    }
+
+    // The functions below parse the optional /appid-<appId>/<tenantId> prefix of the request path, given the
+    // path of the API that is serving the request. Both the paths must be in lowercase.
+
+    public static String normaliseAPIPath(String apiPath) {
+        apiPath = apiPath.toLowerCase();
+        if (!apiPath.startsWith("/")) {
+            apiPath = "/" + apiPath;
+        }
+        if (apiPath.endsWith("/")) {
+            apiPath = apiPath.substring(0, apiPath.length() - 1);
+        }
+        return apiPath;
+    }
+
+    @Nullable
+    public static String getTenantIdFromPath(String path, String apiPath) {
+        if (apiPath.isBlank() && (path.equals("") || path.equals("/"))) {
+            return null;
+        }
+
+        int firstSegmentEnd = endOfSegment(path, 1);
+        if (firstSegmentEnd == -1) {
+            return null;
+        }
+        String firstSegment = path.substring(1, firstSegmentEnd);
+
+        if (isAppIdSegment(firstSegment)) {
+            // /appid-<appId>/<tenantId><apiPath>
+            int secondSegmentEnd = endOfSegment(path, firstSegmentEnd + 1);
+            if (secondSegmentEnd != -1 && isTenantIdSegment(path.substring(firstSegmentEnd + 1, secondSegmentEnd))
+                    && restOfPathMatches(path, secondSegmentEnd, apiPath)) {
+                return normaliseTenantIdFromPath(path.substring(firstSegmentEnd + 1, secondSegmentEnd));
+            }
+            // /appid-<appId><apiPath>
+            if (restOfPathMatches(path, firstSegmentEnd, apiPath)) {
+                return null;
+            }
+        }
+
+        // /<tenantId><apiPath>
+        if (isTenantIdSegment(firstSegment) && restOfPathMatches(path, firstSegmentEnd, apiPath)) {
+            return normaliseTenantIdFromPath(firstSegment);
+        }
+        return null;
+    }
+
+    @Nullable
+    public static String getAppIdFromPath(String path, String apiPath) {
+        if (apiPath.isBlank() && (path.equals("") || path.equals("/"))) {
+            return null;
+        }
+
+        int firstSegmentEnd = endOfSegment(path, 1);
+        if (firstSegmentEnd == -1) {
+            return null;
+        }
+        String firstSegment = path.substring(1, firstSegmentEnd);
+        if (!isAppIdSegment(firstSegment)) {
+            return null;
+        }
+
+        boolean matches = restOfPathMatches(path, firstSegmentEnd, apiPath);
+        if (!matches) {
+            int secondSegmentEnd = endOfSegment(path, firstSegmentEnd + 1);
+            matches = secondSegmentEnd != -1
+                    && isTenantIdSegment(path.substring(firstSegmentEnd + 1, secondSegmentEnd))
+                    && restOfPathMatches(path, secondSegmentEnd, apiPath);
+        }
+        if (!matches || firstSegment.equals(APP_ID_PREFIX + AppIdentifier.DEFAULT_APP_ID)) {
+            return null;
+        }
+        return firstSegment.substring(APP_ID_PREFIX.length());
+    }
+
+    @Nullable
+    private static String normaliseTenantIdFromPath(String tenantId) {
+        if (tenantId.equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
+            return null;
+        }
+        if (Utils.INVALID_WORDS_FOR_TENANTID.contains(tenantId)) {
+            return null;
+        }
+        return tenantId;
+    }
+
+    // returns the index at which the path segment starting at `start` ends, or -1 if there is no such segment
+    static int endOfSegment(String path, int start) {
+        if (start > path.length() || path.charAt(start - 1) != '/') {
+            return -1;
+        }
+        int end = path.indexOf('/', start);
+        return end == -1 ? path.length() : end;
+    }
+
+    // the rest of the path must be the API path, optionally followed by a trailing slash
+    private static boolean restOfPathMatches(String path, int offset, String apiPath) {
+        int remaining = path.length() - offset;
+        if (remaining != apiPath.length() && remaining != apiPath.length() + 1) {
+            return false;
+        }
+        if (!path.startsWith(apiPath, offset)) {
+            return false;
+        }
+        return remaining == apiPath.length() || path.charAt(path.length() - 1) == '/';
+    }
+
+    private static boolean isAppIdSegment(String segment) {
+        return segment.startsWith(APP_ID_PREFIX) && hasOnlyIdCharacters(segment);
+    }
+
+    private static boolean isTenantIdSegment(String segment) {
+        return !segment.isEmpty() && hasOnlyIdCharacters(segment);
+    }
+
+    static boolean hasOnlyIdCharacters(String segment) {
+        for (int i = 0; i < segment.length(); i++) {
+            char c = segment.charAt(i);
+            if (!((c >= 'a' && c <= 'z') || (c >= '0' && c <= '9') || c == '-')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
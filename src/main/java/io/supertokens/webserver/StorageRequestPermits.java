@@ -0,0 +1,127 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.webserver;
+
+import io.supertokens.pluginInterface.Storage;
+import jakarta.servlet.http.HttpServletRequest;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * When requests run on virtual threads (see webserver_virtual_threads_enabled), the server thread pool no longer
+ * limits how many requests hit a database at the same time. This holds one semaphore per storage instance, with
+ * max_concurrent_requests_per_storage permits. A request takes a permit the first time it asks WebserverAPI for a
+ * storage, and holds it until it is done (except while it waits for an outbound call, see suspend), so requests that
+ * never use a storage (like the config or JWKS APIs) never wait for one. Tenants that share a database share the
+ * same storage instance, and so the same permits.
+ */
+final class StorageRequestPermits {
+
+    private static final String REQUEST_ATTRIBUTE = StorageRequestPermits.class.getName();
+
+    private static final String HELD_PERMIT_REQUEST_ATTRIBUTE = REQUEST_ATTRIBUTE + ".heldPermit";
+
+    private static final String SUSPENDED_PERMIT_REQUEST_ATTRIBUTE = REQUEST_ATTRIBUTE + ".suspendedPermit";
+
+    private static final String PINNED_REQUEST_ATTRIBUTE = REQUEST_ATTRIBUTE + ".pinned";
+
+    private final int permitsPerStorage;
+
+    // weak keys, so that storages which are no longer loaded (for example after a tenant's db config has changed)
+    // are dropped along with their semaphore
+    private final Map<Storage, Semaphore> permits = Collections.synchronizedMap(new WeakHashMap<>());
+
+    StorageRequestPermits(int permitsPerStorage) {
+        this.permitsPerStorage = permitsPerStorage;
+    }
+
+    Semaphore getPermits(Storage storage) {
+        return permits.computeIfAbsent(storage, s -> new Semaphore(permitsPerStorage, true));
+    }
+
+    /**
+     * Takes a permit of the storage for this request, unless the request already holds one. A request holds at most
+     * one permit at a time, so that two requests can never wait for each other's permits.
+     */
+    void acquire(HttpServletRequest req, Storage storage) throws InterruptedException {
+        if (req.getAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE) != null) {
+            return;
+        }
+        Semaphore semaphore = getPermits(storage);
+        semaphore.acquire();
+        req.setAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE, semaphore);
+    }
+
+    void release(HttpServletRequest req) {
+        Object semaphore = req.getAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE);
+        if (semaphore instanceof Semaphore) {
+            req.removeAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE);
+            ((Semaphore) semaphore).release();
+        }
+    }
+
+    /**
+     * Gives back the permit held by this request while it waits for something other than its storage (like an
+     * OAuth provider), so that other requests can use the storage in the meantime. resume takes it again. This does
+     * nothing while the request is pinned, which it is while it keeps a transaction open, since the request must not
+     * wait for a permit while it holds a connection.
+     */
+    void suspend(HttpServletRequest req) {
+        if (req.getAttribute(PINNED_REQUEST_ATTRIBUTE) != null) {
+            return;
+        }
+        Object semaphore = req.getAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE);
+        if (semaphore instanceof Semaphore) {
+            req.removeAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE);
+            req.setAttribute(SUSPENDED_PERMIT_REQUEST_ATTRIBUTE, semaphore);
+            ((Semaphore) semaphore).release();
+        }
+    }
+
+    void resume(HttpServletRequest req) throws InterruptedException {
+        Object semaphore = req.getAttribute(SUSPENDED_PERMIT_REQUEST_ATTRIBUTE);
+        if (semaphore instanceof Semaphore) {
+            req.removeAttribute(SUSPENDED_PERMIT_REQUEST_ATTRIBUTE);
+            if (req.getAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE) == null) {
+                ((Semaphore) semaphore).acquire();
+                req.setAttribute(HELD_PERMIT_REQUEST_ATTRIBUTE, semaphore);
+            }
+        }
+    }
+
+    void setPinned(HttpServletRequest req, boolean pinned) {
+        if (pinned) {
+            req.setAttribute(PINNED_REQUEST_ATTRIBUTE, Boolean.TRUE);
+        } else {
+            req.removeAttribute(PINNED_REQUEST_ATTRIBUTE);
+        }
+    }
+
+    void attachTo(HttpServletRequest req) {
+        req.setAttribute(REQUEST_ATTRIBUTE, this);
+    }
+
+    @Nullable
+    static StorageRequestPermits getFromRequest(HttpServletRequest req) {
+        Object permits = req.getAttribute(REQUEST_ATTRIBUTE);
+        return permits instanceof StorageRequestPermits ? (StorageRequestPermits) permits : null;
+    }
+}
@@ -26,6 +26,7 @@ import org.apache.catalina.LifecycleState;
 import org.apache.catalina.connector.Connector;
 import org.apache.catalina.core.StandardContext;
 import org.apache.catalina.startup.Tomcat;
+import org.apache.coyote.http2.Http2Protocol;
 import org.apache.tomcat.util.http.fileupload.FileUtils;
 import org.jetbrains.annotations.TestOnly;
 
@@ -248,10 +249,30 @@ public class Webserver extends ResourceDistributor.SingletonResource {
 
         // set thread pool size and port
         Connector connector = new Connector();
-        connector.setProperty("maxThreads", Config.getBaseConfig(main).getMaxThreadPoolSize() + "");
+        if (Config.getBaseConfig(main).isWebserverVirtualThreadsEnabled()) {
+            // every request gets its own virtual thread, so concurrency against each db is bounded by permits instead
+            // of by the size of the thread pool
+            connector.setProperty("useVirtualThreads", "true");
+            pathRouter.setStorageRequestPermits(
+                    new StorageRequestPermits(Config.getBaseConfig(main).getMaxConcurrentRequestsPerStorage()));
+        } else {
+            connector.setProperty("maxThreads", Config.getBaseConfig(main).getMaxThreadPoolSize() + "");
+        }
         connector.setPort(Config.getBaseConfig(main).getPort(main));
         connector.setProperty("address", Config.getBaseConfig(main).getHost(main));
 
+        // connection reuse, so that SDKs making many short requests don't need a new connection for each of them
+        connector.setProperty("connectionTimeout", Config.getBaseConfig(main).getWebserverConnectionTimeoutMs() + "");
+        connector.setProperty("keepAliveTimeout", Config.getBaseConfig(main).getWebserverKeepAliveTimeoutMs() + "");
+        connector.setProperty("maxKeepAliveRequests",
+                Config.getBaseConfig(main).getWebserverMaxKeepAliveRequests() + "");
+        if (Config.getBaseConfig(main).isWebserverHttp2Enabled()) {
+            // this enables h2c, both via prior knowledge and via an upgrade from HTTP/1.1
+            Http2Protocol http2Protocol = new Http2Protocol();
+            http2Protocol.setKeepAliveTimeout(Config.getBaseConfig(main).getWebserverKeepAliveTimeoutMs());
+            connector.addUpgradeProtocol(http2Protocol);
+        }
+
         tomcat.setConnector(connector);
 
         // we do this because we may run multiple tomcat servers in the same JVM
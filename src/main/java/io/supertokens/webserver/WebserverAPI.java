@@ -16,13 +16,18 @@
 
 package io.supertokens.webserver;
 
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonWriter;
 import io.supertokens.Main;
 import io.supertokens.StorageAndUserIdMapping;
 import io.supertokens.config.Config;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.exceptions.QuitProgramException;
 import io.supertokens.featureflag.exceptions.FeatureNotEnabledException;
+import io.supertokens.multitenancy.Multitenancy;
 import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.output.Logging;
@@ -36,21 +41,17 @@ import io.supertokens.pluginInterface.opentelemetry.WithinOtelSpan;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.utils.SemVer;
-import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
-import jakarta.servlet.ServletRequest;
-import jakarta.servlet.ServletResponse;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
-import org.apache.catalina.filters.RemoteAddrFilter;
 
 import java.io.IOException;
+import java.io.PrintWriter;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.regex.PatternSyntaxException;
 
 public abstract class WebserverAPI extends HttpServlet {
 
@@ -59,6 +60,9 @@ public abstract class WebserverAPI extends HttpServlet {
     public static final Set<SemVer> supportedVersions = new HashSet<>();
     private String rid;
 
+    // does not escape html characters, so that the output is the same as JsonElement.toString
+    private static final Gson JSON_RESPONSE_GSON = new GsonBuilder().serializeNulls().disableHtmlEscaping().create();
+
     static {
         supportedVersions.add(SemVer.v2_7);
         supportedVersions.add(SemVer.v2_8);
@@ -93,6 +97,10 @@ public abstract class WebserverAPI extends HttpServlet {
 
     public SemVer getLatestCDIVersionForRequest(HttpServletRequest req)
             throws ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getMaxCDIVersion();
+        }
         SemVer maxCDIVersion = getLatestCDIVersion();
         String maxCDIVersionStr = null;
         try {
@@ -132,9 +140,35 @@ public abstract class WebserverAPI extends HttpServlet {
     }
 
     protected void sendJsonResponse(int statusCode, JsonElement json, HttpServletResponse resp) throws IOException {
+        sendJsonResponse(statusCode, writer -> writeJson(writer, json), resp);
+    }
+
+    /**
+     * Streams the response body into the servlet's (buffered) writer as it is produced, instead of building the
+     * whole response as a String first. Large list APIs can use this to write their elements one at a time. The
+     * body should not throw once it has started writing, since the response may already have been committed by
+     * then.
+     */
+    protected void sendJsonResponse(int statusCode, JsonResponseBody body, HttpServletResponse resp)
+            throws IOException {
         resp.setStatus(statusCode);
         resp.setHeader("Content-Type", "application/json; charset=UTF-8");
-        resp.getWriter().println(json.toString());
+        PrintWriter out = resp.getWriter();
+        JsonWriter writer = new JsonWriter(out);
+        // same as JsonElement.toString, which is what was used to serialise responses earlier
+        writer.setStrictness(Strictness.LENIENT);
+        body.write(writer);
+        writer.flush();
+        out.println();
+    }
+
+    protected static void writeJson(JsonWriter writer, JsonElement json) {
+        JSON_RESPONSE_GSON.toJson(json, writer);
+    }
+
+    @FunctionalInterface
+    protected interface JsonResponseBody {
+        void write(JsonWriter writer) throws IOException;
     }
 
     @Override
@@ -213,38 +247,31 @@ public abstract class WebserverAPI extends HttpServlet {
             // segment (e.g. /ghosttenant/...) under a real app — which previously threw
             // TenantOrAppNotFoundException and caused this check to be skipped entirely,
             // letting an unauthenticated caller through.
-            String[] keys = Config.getConfig(
-                    new TenantIdentifier(getConnectionUriDomain(req), getAppId(req), null),
-                    this.main).getAPIKeys();
-            if (keys != null) {
+            APIKeyIndex appKeys = getAppAPIKeyIndex(req);
+            if (appKeys.hasAPIKeys()) {
                 if (apiKey == null) {
                     throw new ServletException(new APIKeyUnauthorisedException());
                 }
                 apiKey = apiKey.trim();
-                boolean isAuthorised = false;
-                for (String key : keys) {
-                    isAuthorised = isAuthorised || key.equals(apiKey);
-                }
-                if (isAuthorised) {
+                if (appKeys.isAPIKey(apiKey)) {
                     return;
                 }
             }
 
             // if the normal API key did not exist, or did not match the api key from the header, we try the
             // supertokens_saas_secret
-            String superTokensSaaSSecret = Config.getConfig(new TenantIdentifier(null, null, null), this.main)
-                    .getSuperTokensSaaSSecret();
-            if (superTokensSaaSSecret != null) {
+            APIKeyIndex baseKeys = getBaseAPIKeyIndex(req);
+            if (baseKeys.hasSaaSSecret()) {
                 if (apiKey == null) {
                     throw new ServletException(new APIKeyUnauthorisedException());
                 }
-                if (apiKey.equals(superTokensSaaSSecret)) {
+                if (baseKeys.isSaaSSecret(apiKey)) {
                     return;
                 }
             }
 
             // if either were defined, and both failed, we throw an exception
-            if (superTokensSaaSSecret != null || keys != null) {
+            if (baseKeys.hasSaaSSecret() || appKeys.hasAPIKeys()) {
                 throw new ServletException(new APIKeyUnauthorisedException());
             }
         } catch (TenantOrAppNotFoundException e) {
@@ -255,17 +282,29 @@ public abstract class WebserverAPI extends HttpServlet {
         }
     }
 
+    /**
+     * The tenants loaded in this core, for the APIs that list them. From CDI 5.6, the caller can pass the
+     * refreshFromDb query param as true to reload them from the db first (to see changes that were just made via
+     * another core).
+     */
+    protected MultitenancyHelper.TenantsSnapshot getTenantsSnapshot(HttpServletRequest req) throws ServletException {
+        boolean refreshFromDb = false;
+        if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_6)) {
+            String refreshFromDbString = InputParser.getQueryParamOrThrowError(req, "refreshFromDb", true);
+            refreshFromDb = refreshFromDbString != null && refreshFromDbString.equalsIgnoreCase("true");
+        }
+        return Multitenancy.getTenantsSnapshot(main, refreshFromDb);
+    }
+
     protected boolean shouldProtectProtectedConfig(HttpServletRequest req) throws TenantOrAppNotFoundException {
         String apiKey = getApiKeyFromRequest(req);
-        String superTokensSaaSSecret = Config.getConfig(
-                        new TenantIdentifier(null, null, null), this.main)
-                .getSuperTokensSaaSSecret();
+        APIKeyIndex baseKeys = getBaseAPIKeyIndex(req);
 
-        if (superTokensSaaSSecret == null) {
+        if (!baseKeys.hasSaaSSecret()) {
             return false;
         }
 
-        if (apiKey != null && apiKey.equals(superTokensSaaSSecret)) {
+        if (apiKey != null && baseKeys.isSaaSSecret(apiKey)) {
             return false;
         }
 
@@ -277,71 +316,17 @@ public abstract class WebserverAPI extends HttpServlet {
     }
 
     private String getTenantId(HttpServletRequest req) {
-        String path = req.getServletPath().toLowerCase();
-        String apiPath = getPath().toLowerCase();
-        if (!apiPath.startsWith("/")) {
-            apiPath = "/" + apiPath;
-        }
-        if (apiPath.endsWith("/")) {
-            apiPath = apiPath.substring(0, apiPath.length() - 1);
-        }
-
-        if (apiPath.isBlank() && (path.equals("") || path.equals("/"))) {
-            return null;
-        } else {
-            if (path.matches("^/appid-[a-z0-9-]*/[a-z0-9-]+" + apiPath + "/?$")) {
-                String tenantId = path.split("/")[2].toLowerCase();
-                if (tenantId.equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
-                    return null;
-                }
-
-                if (Utils.INVALID_WORDS_FOR_TENANTID.contains(tenantId)) {
-                    return null;
-                }
-
-                return tenantId;
-            } else if (path.matches("^/appid-[a-z0-9-]*" + apiPath + "/?$")) {
-                return null;
-            } else if (path.matches("^/[a-z0-9-]+" + apiPath + "/?$")) {
-                String tenantId = path.split("/")[1].toLowerCase();
-                if (tenantId.equals(TenantIdentifier.DEFAULT_TENANT_ID)) {
-                    return null;
-                }
-
-                if (Utils.INVALID_WORDS_FOR_TENANTID.contains(tenantId)) {
-                    return null;
-                }
-
-                return tenantId;
-            } else {
-                return null;
-            }
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getTenantIdFromPath();
         }
+        return RequestTenantContext.getTenantIdFromPath(req.getServletPath().toLowerCase(),
+                RequestTenantContext.normaliseAPIPath(getPath()));
     }
 
     private String getAppId(HttpServletRequest req) {
-        String path = req.getServletPath().toLowerCase();
-        String apiPath = getPath().toLowerCase();
-        if (!apiPath.startsWith("/")) {
-            apiPath = "/" + apiPath;
-        }
-        if (apiPath.endsWith("/")) {
-            apiPath = apiPath.substring(0, apiPath.length() - 1);
-        }
-
-        if (apiPath.isBlank() && (path.equals("") || path.equals("/"))) {
-            return null;
-        } else {
-            if (path.matches("^/appid-[a-z0-9-]*(/[a-z0-9-]+)?" + apiPath + "/?$")) {
-                String appId = path.split("/")[1].toLowerCase();
-                if (appId.equals("appid-public")) {
-                    return null;
-                }
-                return appId.substring(6);
-            } else {
-                return null;
-            }
-        }
+        return RequestTenantContext.getAppIdFromPath(req.getServletPath().toLowerCase(),
+                RequestTenantContext.normaliseAPIPath(getPath()));
     }
 
     private String getConnectionUriDomain(HttpServletRequest req) throws ServletException {
@@ -363,25 +348,40 @@ public abstract class WebserverAPI extends HttpServlet {
     }
 
     private TenantIdentifier getTenantIdentifierWithoutVerifying(HttpServletRequest req) throws ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getTenantIdentifier();
+        }
         return new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req), this.getTenantId(req));
     }
 
     protected TenantIdentifier getTenantIdentifier(HttpServletRequest req)
             throws ServletException, TenantOrAppNotFoundException {
-        getTenantStorage(req); // ensure the tenant exists
-        return new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req), this.getTenantId(req));
+        getTenantStorageWithoutPermit(req); // ensure the tenant exists
+        return getTenantIdentifierWithoutVerifying(req);
     }
 
     private AppIdentifier getAppIdentifierWithoutVerifying(HttpServletRequest req) throws ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getAppIdentifier();
+        }
         return new AppIdentifier(this.getConnectionUriDomain(req), this.getAppId(req));
     }
 
     @WithinOtelSpan
     protected AppIdentifier getAppIdentifier(HttpServletRequest req)
             throws ServletException, TenantOrAppNotFoundException {
-        AppIdentifier appIdentifier = getAppIdentifierWithoutVerifying(req);
-        StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main); // ensure the app exists
-        return appIdentifier;
+        getAppStorageWithoutPermit(req); // ensure the app exists
+        return getAppIdentifierWithoutVerifying(req);
+    }
+
+    /**
+     * Returns the tenant context that was resolved for this request when it started, or null if this request did
+     * not go through service (which can be the case in tests).
+     */
+    protected RequestTenantContext getRequestTenantContext(HttpServletRequest req) {
+        return RequestTenantContext.getFromRequest(req, this);
     }
 
     /**
@@ -397,9 +397,111 @@ public abstract class WebserverAPI extends HttpServlet {
 
     protected Storage getTenantStorage(HttpServletRequest req)
             throws TenantOrAppNotFoundException, ServletException {
-        TenantIdentifier tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                this.getTenantId(req));
-        return StorageLayer.getStorage(tenantIdentifier, main);
+        Storage storage = getTenantStorageWithoutPermit(req);
+        takeStoragePermit(req, storage);
+        return storage;
+    }
+
+    private Storage getTenantStorageWithoutPermit(HttpServletRequest req)
+            throws TenantOrAppNotFoundException, ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null && context.getStorage() != null) {
+            return context.getStorage();
+        }
+        return StorageLayer.getStorage(getTenantIdentifierWithoutVerifying(req), main);
+    }
+
+    private Storage getAppStorage(HttpServletRequest req) throws TenantOrAppNotFoundException, ServletException {
+        Storage storage = getAppStorageWithoutPermit(req);
+        takeStoragePermit(req, storage);
+        return storage;
+    }
+
+    private Storage getAppStorageWithoutPermit(HttpServletRequest req)
+            throws TenantOrAppNotFoundException, ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null && context.getAppStorage() != null) {
+            return context.getAppStorage();
+        }
+        return StorageLayer.getStorage(getAppIdentifierWithoutVerifying(req).getAsPublicTenantIdentifier(), main);
+    }
+
+    // only does something when requests run on virtual threads, see StorageRequestPermits
+    private void takeStoragePermit(HttpServletRequest req, Storage storage) throws ServletException {
+        StorageRequestPermits storageRequestPermits = StorageRequestPermits.getFromRequest(req);
+        if (storageRequestPermits == null) {
+            return;
+        }
+        try {
+            storageRequestPermits.acquire(req, storage);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        }
+    }
+
+    /**
+     * For APIs that use the storage of a tenant other than the one in the path, like the tenant of a session handle.
+     * The request waits for (and holds) a permit of that storage, like with getTenantStorage.
+     */
+    protected Storage getTenantStorage(HttpServletRequest req, TenantIdentifier tenantIdentifier)
+            throws TenantOrAppNotFoundException, ServletException {
+        Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
+        takeStoragePermit(req, storage);
+        return storage;
+    }
+
+    /**
+     * Gives back the storage permit of this request while it makes a call to another service, so that requests
+     * waiting on slow outbound calls don't keep others from using the storage. The caller must call
+     * retakeStoragePermitAfterOutboundCall once the call is done, before it uses the storage again.
+     */
+    public static void releaseStoragePermitDuringOutboundCall(HttpServletRequest req) {
+        StorageRequestPermits storageRequestPermits = StorageRequestPermits.getFromRequest(req);
+        if (storageRequestPermits != null) {
+            storageRequestPermits.suspend(req);
+        }
+    }
+
+    public static void retakeStoragePermitAfterOutboundCall(HttpServletRequest req) throws ServletException {
+        StorageRequestPermits storageRequestPermits = StorageRequestPermits.getFromRequest(req);
+        if (storageRequestPermits == null) {
+            return;
+        }
+        try {
+            storageRequestPermits.resume(req);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServletException(e);
+        }
+    }
+
+    /**
+     * Keeps the storage permit of this request during outbound calls, for while it has a transaction open.
+     */
+    protected void keepStoragePermitDuringOutboundCalls(HttpServletRequest req, boolean keep) {
+        StorageRequestPermits storageRequestPermits = StorageRequestPermits.getFromRequest(req);
+        if (storageRequestPermits != null) {
+            storageRequestPermits.setPinned(req, keep);
+        }
+    }
+
+    private APIKeyIndex getAppAPIKeyIndex(HttpServletRequest req)
+            throws TenantOrAppNotFoundException, ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null && context.getAppAPIKeyIndex() != null) {
+            return context.getAppAPIKeyIndex();
+        }
+        return Config.getInstance(getAppIdentifierWithoutVerifying(req).getAsPublicTenantIdentifier(), main)
+                .getAPIKeyIndex();
+    }
+
+    private APIKeyIndex getBaseAPIKeyIndex(HttpServletRequest req) throws TenantOrAppNotFoundException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getBaseAPIKeyIndex();
+        }
+        return Config.getInstance(TenantIdentifier.BASE_TENANT, main).getAPIKeyIndex();
     }
 
     protected Storage[] enforcePublicTenantAndGetAllStoragesForApp(HttpServletRequest req)
@@ -412,7 +514,10 @@ public abstract class WebserverAPI extends HttpServlet {
         }
 
         AppIdentifier appIdentifier = getAppIdentifierWithoutVerifying(req);
-        return StorageLayer.getStoragesForApp(main, appIdentifier);
+        Storage[] storages = StorageLayer.getStoragesForApp(main, appIdentifier);
+        // the request waits for (and holds) a permit of the app's public tenant storage
+        getAppStorage(req);
+        return storages;
     }
 
     protected Storage enforcePublicTenantAndGetPublicTenantStorage(
@@ -424,8 +529,7 @@ public abstract class WebserverAPI extends HttpServlet {
             }
         }
 
-        AppIdentifier appIdentifier = getAppIdentifier(req);
-        return StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+        return getAppStorage(req);
     }
 
     // Rejects a call made on a non-public tenant, but only from `sinceVersion` onwards. Used by app-specific
@@ -441,8 +545,9 @@ public abstract class WebserverAPI extends HttpServlet {
     protected StorageAndUserIdMapping getStorageAndUserIdMappingForTenantSpecificApi(
             HttpServletRequest req, String userId, UserIdType userIdType)
             throws StorageQueryException, TenantOrAppNotFoundException, UnknownUserIdException, ServletException {
-        TenantIdentifier tenantIdentifier = new TenantIdentifier(this.getConnectionUriDomain(req), this.getAppId(req),
-                this.getTenantId(req));
+        TenantIdentifier tenantIdentifier = getTenantIdentifierWithoutVerifying(req);
+        // the request waits for (and holds) a permit of the tenant's storage
+        getTenantStorage(req);
         return StorageLayer.findStorageAndUserIdMappingForUser(main, tenantIdentifier, userId,
                 userIdType);
     }
@@ -467,61 +572,40 @@ public abstract class WebserverAPI extends HttpServlet {
 
     protected boolean checkIPAccess(HttpServletRequest req, HttpServletResponse resp)
             throws ServletException, IOException {
-        CoreConfig config = null;
-        try {
-            config = Config.getConfig(getTenantIdentifierWithoutVerifying(req), main);
-        } catch (TenantOrAppNotFoundException e) {
-            // Unknown tenant: fall back to the app's public-tenant IP rules rather than
-            // skipping IP access control (which would let an unknown tenant path segment
-            // bypass an IP allow/deny configured on the app).
-            try {
-                config = Config.getConfig(getAppIdentifierWithoutVerifying(req).getAsPublicTenantIdentifier(), main);
-            } catch (TenantOrAppNotFoundException e2) {
-                return true; // no app either, so no IP access control to apply
-            }
-        }
-        String allow = config.getIpAllowRegex();
-        String deny = config.getIpDenyRegex();
-        if (allow == null && deny == null) {
-            return true;
-        }
-        RemoteAddrFilter filter = new RemoteAddrFilter();
-        if (allow != null) {
+        IpAccessFilter filter;
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            filter = context.getIpAccessFilter();
+        } else {
             try {
-                filter.setAllow(allow);
-            } catch (PatternSyntaxException e) {
-                throw new RuntimeException("should never happen");
+                filter = Config.getInstance(getTenantIdentifierWithoutVerifying(req), main).getIpAccessFilter();
+            } catch (TenantOrAppNotFoundException e) {
+                // Unknown tenant: fall back to the app's public-tenant IP rules rather than
+                // skipping IP access control (which would let an unknown tenant path segment
+                // bypass an IP allow/deny configured on the app).
+                try {
+                    filter = Config.getInstance(getAppIdentifierWithoutVerifying(req).getAsPublicTenantIdentifier(),
+                            main).getIpAccessFilter();
+                } catch (TenantOrAppNotFoundException e2) {
+                    filter = null;
+                }
             }
         }
-        if (deny != null) {
-            try {
-                filter.setDeny(deny);
-            } catch (PatternSyntaxException e) {
-                throw new RuntimeException("should never happen");
-            }
+        if (filter == null) {
+            return true; // no app either, so no IP access control to apply
         }
-        filter.setDenyStatus(403);
-
-        final boolean[] isAllowed = {false};
-        FilterChain dummyFilterChain = new FilterChain() {
-            @Override
-            public void doFilter(ServletRequest request, ServletResponse response)
-                    throws IOException, ServletException {
-                isAllowed[0] = true;
-            }
-        };
-
-        filter.doFilter(req, resp, dummyFilterChain);
-        return isAllowed[0];
+        return filter.checkAccess(req, resp);
     }
 
     @Override
     protected void service(HttpServletRequest req, HttpServletResponse resp) throws IOException {
 
-
+        long startTime = System.nanoTime();
         TenantIdentifier tenantIdentifier = null;
         try {
-            tenantIdentifier = getTenantIdentifierWithoutVerifying(req);
+            RequestTenantContext context = new RequestTenantContext(main, this, req, getConnectionUriDomain(req));
+            context.attachTo(req);
+            tenantIdentifier = context.getTenantIdentifier();
 
             if (!this.checkIPAccess(req, resp)) {
                 // IP access denied and the filter has already sent the response
@@ -598,7 +682,9 @@ public abstract class WebserverAPI extends HttpServlet {
 
         if (tenantIdentifier != null) {
             try {
-                RequestStats.getInstance(main, tenantIdentifier.toAppIdentifier()).updateRequestStats();
+                RequestStats.getInstance(main, tenantIdentifier.toAppIdentifier())
+                        .updateRequestStats(req.getMethod(), getPath(), resp.getStatus(),
+                                System.nanoTime() - startTime);
             } catch (TenantOrAppNotFoundException e) {
                 // Ignore the error as we would have already sent the response for tenantNotFound
             }
@@ -625,6 +711,10 @@ public abstract class WebserverAPI extends HttpServlet {
     }
 
     public SemVer getMinCDIVersionForRequest(HttpServletRequest req) throws ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getMinCDIVersion();
+        }
         String minCDIVersionStr = null;
         try {
             minCDIVersionStr = Config.getConfig(
@@ -639,6 +729,10 @@ public abstract class WebserverAPI extends HttpServlet {
     }
 
     protected SemVer getVersionFromRequest(HttpServletRequest req) throws ServletException {
+        RequestTenantContext context = RequestTenantContext.getFromRequest(req, this);
+        if (context != null) {
+            return context.getVersion();
+        }
         SemVer maxCDIVersion = getLatestCDIVersionForRequest(req);
         String version = req.getHeader("cdi-version");
 
@@ -17,6 +17,7 @@
 package io.supertokens.webserver.api.bulkimport;
 
 import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonPrimitive;
 import io.supertokens.Main;
@@ -99,19 +100,22 @@ public class BulkImportAPI extends WebserverAPI {
 
         try {
             BulkImportUserPaginationContainer users = BulkImport.getUsers(appIdentifier, storage, limit, status, paginationToken);
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "OK");
-
-            JsonArray usersJson = new JsonArray();
-            for (BulkImportUser user : users.users) {
-                usersJson.add(user.toJsonObject());
-            }
-            result.add("users", usersJson);
-
-            if (users.nextPaginationToken != null) {
-                result.addProperty("nextPaginationToken", users.nextPaginationToken);
-            }
-            super.sendJsonResponse(200, result, resp);
+            // the users are serialised one at a time, straight into the response
+            super.sendJsonResponse(200, writer -> {
+                writer.beginObject();
+                writer.name("status").value("OK");
+
+                writer.name("users").beginArray();
+                for (BulkImportUser user : users.users) {
+                    writeJson(writer, user.toJsonObject());
+                }
+                writer.endArray();
+
+                if (users.nextPaginationToken != null) {
+                    writer.name("nextPaginationToken").value(users.nextPaginationToken);
+                }
+                writer.endObject();
+            }, resp);
         } catch (BulkImportUserPaginationToken.InvalidTokenException e) {
             Logging.debug(main, null, Utils.exceptionStacktraceToString(e));
             throw new ServletException(new BadRequestException("invalid pagination token"));
@@ -128,49 +132,91 @@ public class BulkImportAPI extends WebserverAPI {
             throw new ServletException(new BadRequestException("This API is not supported in the in-memory database."));
         }
 
-        JsonObject input = InputParser.parseJsonObjectOrThrowError(req);
-        JsonArray users = InputParser.parseArrayOrThrowError(input, "users", false);
+        // the users are converted one at a time as they are read from the request, so the request body is never
+        // held in memory as a whole
+        BulkImportUsersReader usersReader = new BulkImportUsersReader(req);
+        InputParser.parseJsonObjectWithArrayOrThrowError(req, "users", usersReader);
 
-        if (users.size() == 0) {
+        if (usersReader.count == 0) {
             JsonObject result = new JsonObject();
             result.addProperty("status", "OK");
             super.sendJsonResponse(200, result, resp);
             return;
         }
 
-        if (users.size() > BulkImport.MAX_USERS_TO_ADD) {
+        if (usersReader.errorsJson.size() > 0) {
             JsonObject errorResponseJson = new JsonObject();
-            String errorMsg = users.size() <= 0 ? "You need to add at least one user."
-                    : "You can only add " + BulkImport.MAX_USERS_TO_ADD + " users at a time.";
-            errorResponseJson.addProperty("error", errorMsg);
+            errorResponseJson.addProperty("error",
+                    "Data has missing or invalid fields. Please check the users field for more details.");
+            errorResponseJson.add("users", usersReader.errorsJson);
             throw new ServletException(new WebserverAPI.BadRequestException(errorResponseJson.toString()));
         }
 
-        AppIdentifier appIdentifier = null;
-        Storage storage = null;
+        AppIdentifier appIdentifier = usersReader.appIdentifier;
+        Storage storage = usersReader.storage;
+        List<BulkImportUser> usersToAdd = usersReader.usersToAdd;
 
         try {
-            appIdentifier = getAppIdentifier(req);
-            storage = enforcePublicTenantAndGetPublicTenantStorage(req);
-        } catch (TenantOrAppNotFoundException | BadPermissionException e) {
+            BulkImport.addUsers(appIdentifier, storage, usersToAdd);
+        } catch (TenantOrAppNotFoundException | StorageQueryException e) {
             throw new ServletException(e);
         }
 
-        String[] allUserRoles = null;
+        JsonObject result = new JsonObject();
+        result.addProperty("status", "OK");
+        JsonArray responseUsers = new JsonArray();
+        for(BulkImportUser user : usersToAdd){
+            responseUsers.add(user.toResponseJson());
+        }
+        result.add("users", responseUsers);
+        super.sendJsonResponse(200, result, resp);
+    }
 
-        try {
-            allUserRoles = StorageUtils.getUserRolesStorage(storage).getRoles(appIdentifier);
-        } catch (StorageQueryException e) {
-            throw new ServletException(e);
+    private class BulkImportUsersReader implements InputParser.JsonArrayElementConsumer {
+        private final HttpServletRequest req;
+
+        private int count = 0;
+        private final JsonArray errorsJson = new JsonArray();
+        private final List<BulkImportUser> usersToAdd = new ArrayList<>();
+
+        // initialised when the first user is read
+        private AppIdentifier appIdentifier = null;
+        private Storage storage = null;
+        private BulkImportUserUtils bulkImportUserUtils = null;
+
+        private BulkImportUsersReader(HttpServletRequest req) {
+            this.req = req;
         }
 
-        JsonArray errorsJson = new JsonArray();
-        List<BulkImportUser> usersToAdd = new ArrayList<>();
+        @Override
+        public void beforeElement(int index) throws ServletException {
+            // checked before the user is read, so that the users after the limit are never parsed or validated
+            if (index >= BulkImport.MAX_USERS_TO_ADD) {
+                JsonObject errorResponseJson = new JsonObject();
+                errorResponseJson.addProperty("error",
+                        "You can only add " + BulkImport.MAX_USERS_TO_ADD + " users at a time.");
+                throw new ServletException(new WebserverAPI.BadRequestException(errorResponseJson.toString()));
+            }
+        }
+
+        @Override
+        public void accept(int index, JsonElement userJson) throws ServletException {
+            count++;
+
+            if (bulkImportUserUtils == null) {
+                try {
+                    appIdentifier = getAppIdentifier(req);
+                    storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+                    String[] allUserRoles = StorageUtils.getUserRolesStorage(storage).getRoles(appIdentifier);
+                    bulkImportUserUtils = new BulkImportUserUtils(allUserRoles);
+                } catch (TenantOrAppNotFoundException | BadPermissionException | StorageQueryException e) {
+                    throw new ServletException(e);
+                }
+            }
 
-        BulkImportUserUtils bulkImportUserUtils = new BulkImportUserUtils(allUserRoles);
-        for (int i = 0; i < users.size(); i++) {
             try {
-                BulkImportUser user = bulkImportUserUtils.createBulkImportUserFromJSON(main, appIdentifier, users.get(i).getAsJsonObject(), BulkImportUserUtils.IDMode.GENERATE);
+                BulkImportUser user = bulkImportUserUtils.createBulkImportUserFromJSON(main, appIdentifier,
+                        userJson.getAsJsonObject(), BulkImportUserUtils.IDMode.GENERATE);
                 usersToAdd.add(user);
             } catch (io.supertokens.bulkimport.exceptions.InvalidBulkImportDataException e) {
                 JsonObject errorObj = new JsonObject();
@@ -179,35 +225,12 @@ public class BulkImportAPI extends WebserverAPI {
                         .map(JsonPrimitive::new)
                         .collect(JsonArray::new, JsonArray::add, JsonArray::addAll);
 
-                errorObj.addProperty("index", i);
+                errorObj.addProperty("index", index);
                 errorObj.add("errors", errors);
                 errorsJson.add(errorObj);
             } catch (StorageQueryException | TenantOrAppNotFoundException e) {
                 throw new ServletException(e);
             }
         }
-
-        if (errorsJson.size() > 0) {
-            JsonObject errorResponseJson = new JsonObject();
-            errorResponseJson.addProperty("error",
-                    "Data has missing or invalid fields. Please check the users field for more details.");
-            errorResponseJson.add("users", errorsJson);
-            throw new ServletException(new WebserverAPI.BadRequestException(errorResponseJson.toString()));
-        }
-
-        try {
-            BulkImport.addUsers(appIdentifier, storage, usersToAdd);
-        } catch (TenantOrAppNotFoundException | StorageQueryException e) {
-            throw new ServletException(e);
-        }
-
-        JsonObject result = new JsonObject();
-        result.addProperty("status", "OK");
-        JsonArray responseUsers = new JsonArray();
-        for(BulkImportUser user : usersToAdd){
-            responseUsers.add(user.toResponseJson());
-        }
-        result.add("users", responseUsers);
-        super.sendJsonResponse(200, result, resp);
     }
 }
@@ -16,10 +16,6 @@
 
 package io.supertokens.webserver.api.core;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.supertokens.Main;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
@@ -34,7 +30,6 @@ import jakarta.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
-import java.util.List;
 
 public class JWKSPublicAPI extends WebserverAPI {
     public JWKSPublicAPI(Main main) {
@@ -62,15 +57,36 @@ public class JWKSPublicAPI extends WebserverAPI {
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
         try {
             SigningKeys signingKeys = SigningKeys.getInstance(this.getAppIdentifier(req), main);
-            List<JsonObject> jwks = signingKeys.getJWKS();
-            JsonObject reply = new JsonObject();
-            JsonArray jwksJsonArray = new JsonParser().parse(new Gson().toJson(jwks)).getAsJsonArray();
-            reply.add("keys", jwksJsonArray);
+            SigningKeys.JWKSDocument jwks = signingKeys.getJWKSDocument();
+            // the max-age lasts until the next key is published, which is before it is used to sign tokens
             resp.setHeader("Cache-Control", "max-age=" + signingKeys.getCacheDurationInSeconds() + ", must-revalidate");
-            super.sendJsonResponse(200, reply, resp);
+            resp.setHeader("ETag", jwks.etag);
+            if (matchesETag(req.getHeader("If-None-Match"), jwks.etag)) {
+                resp.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+            super.sendJsonResponse(200, writer -> writer.jsonValue(jwks.body), resp);
         } catch (StorageQueryException | StorageTransactionLogicException | NoSuchAlgorithmException
                  | InvalidKeySpecException | TenantOrAppNotFoundException | UnsupportedJWTSigningAlgorithmException e) {
             throw new ServletException(e);
         }
     }
+
+    // If-None-Match can be "*" or a list of (possibly weak) ETags, which are compared ignoring the W/ prefix (RFC
+    // 9110, section 13.1.2)
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -21,6 +21,7 @@ import io.supertokens.Main;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.session.accessToken.VerifiedAccessTokenCache;
 import io.supertokens.webserver.RequestStats;
 import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
@@ -48,6 +49,10 @@ public class RequestStatsAPI extends WebserverAPI {
             AppIdentifier appIdentifier = getAppIdentifier(req);
             enforcePublicTenantAndGetPublicTenantStorage(req); // enforce public tenant
             JsonObject stats = RequestStats.getInstance(main, appIdentifier).getStats();
+            VerifiedAccessTokenCache accessTokenCache = VerifiedAccessTokenCache.getInstance(appIdentifier, main);
+            if (accessTokenCache != null) {
+                stats.add("accessTokenVerificationCache", accessTokenCache.getStats());
+            }
             stats.addProperty("status", "OK");
             super.sendJsonResponse(200, stats, resp);
 
@@ -16,8 +16,6 @@
 
 package io.supertokens.webserver.api.core;
 
-import com.google.gson.JsonArray;
-import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.authRecipe.AuthRecipe;
@@ -172,34 +170,35 @@ public class UsersAPI extends WebserverAPI {
 
             UserIdMapping.populateExternalUserIdForUsers(tenantIdentifier.toAppIdentifier(), storage, users.users);
 
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "OK");
-
-            JsonArray usersJson = new JsonArray();
-            for (AuthRecipeUserInfo user : users.users) {
-                if (getVersionFromRequest(req).lesserThan(SemVer.v4_0)) {
-                    JsonObject jsonObj = new JsonObject();
-                    jsonObj.addProperty("recipeId", user.loginMethods[0].recipeId.toString());
-                    JsonObject userJson = user.toJsonWithoutAccountLinking();
-                    jsonObj.add("user", userJson);
-                    usersJson.add(jsonObj);
-                } else {
-                    usersJson.add(user.toJson(getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_3)));
+            SemVer version = getVersionFromRequest(req);
+
+            // the users are serialised one at a time, straight into the response
+            super.sendJsonResponse(200, writer -> {
+                writer.beginObject();
+                writer.name("status").value("OK");
+
+                writer.name("users").beginArray();
+                for (AuthRecipeUserInfo user : users.users) {
+                    JsonObject userJson;
+                    if (version.lesserThan(SemVer.v4_0)) {
+                        userJson = new JsonObject();
+                        userJson.addProperty("recipeId", user.loginMethods[0].recipeId.toString());
+                        userJson.add("user", user.toJsonWithoutAccountLinking());
+                        if (version.lesserThan(SemVer.v3_0)) {
+                            userJson.get("user").getAsJsonObject().remove("tenantIds");
+                        }
+                    } else {
+                        userJson = user.toJson(version.greaterThanOrEqualTo(SemVer.v5_3));
+                    }
+                    writeJson(writer, userJson);
                 }
-            }
+                writer.endArray();
 
-            if (getVersionFromRequest(req).lesserThan(SemVer.v3_0)) {
-                for (JsonElement user : usersJson) {
-                    user.getAsJsonObject().get("user").getAsJsonObject().remove("tenantIds");
+                if (users.nextPaginationToken != null) {
+                    writer.name("nextPaginationToken").value(users.nextPaginationToken);
                 }
-            }
-
-            result.add("users", usersJson);
-
-            if (users.nextPaginationToken != null) {
-                result.addProperty("nextPaginationToken", users.nextPaginationToken);
-            }
-            super.sendJsonResponse(200, result, resp);
+                writer.endObject();
+            }, resp);
         } catch (UserPaginationToken.InvalidTokenException e) {
             Logging.debug(main, tenantIdentifier, Utils.exceptionStacktraceToString(e));
             throw new ServletException(new BadRequestException("invalid pagination token"));
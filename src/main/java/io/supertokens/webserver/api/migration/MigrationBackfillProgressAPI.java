@@ -78,7 +78,7 @@ public class MigrationBackfillProgressAPI extends WebserverAPI {
                 JsonArray cuds = new JsonArray();
                 for (List<TenantIdentifier> tenants : StorageLayer.getTenantsWithUniqueUserPoolId(main)) {
                     TenantIdentifier rep = tenants.get(0);
-                    Storage storage = StorageLayer.getStorage(rep, main);
+                    Storage storage = getTenantStorage(req, rep);
                     JsonObject entry = new JsonObject();
                     entry.addProperty("connectionUriDomain", rep.getConnectionUriDomain());
                     if (!(storage instanceof MigrationBackfillStorage)) {
@@ -97,7 +97,7 @@ public class MigrationBackfillProgressAPI extends WebserverAPI {
                 result.add("cuds", cuds);
                 sendJsonResponse(200, result, resp);
             } else {
-                Storage storage = StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+                Storage storage = getTenantStorage(req, appIdentifier.getAsPublicTenantIdentifier());
                 if (!(storage instanceof MigrationBackfillStorage)) {
                     JsonObject result = new JsonObject();
                     result.addProperty("status", "FEATURE_NOT_SUPPORTED_ERROR");
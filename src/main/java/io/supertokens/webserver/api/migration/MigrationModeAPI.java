@@ -69,7 +69,7 @@ public class MigrationModeAPI extends WebserverAPI {
                 JsonArray cuds = new JsonArray();
                 for (List<TenantIdentifier> tenants : StorageLayer.getTenantsWithUniqueUserPoolId(main)) {
                     TenantIdentifier rep = tenants.get(0);
-                    Storage storage = StorageLayer.getStorage(rep, main);
+                    Storage storage = getTenantStorage(req, rep);
                     if (!(storage instanceof MigrationBackfillStorage)) {
                         continue;
                     }
@@ -83,7 +83,7 @@ public class MigrationModeAPI extends WebserverAPI {
                 result.add("cuds", cuds);
                 sendJsonResponse(200, result, resp);
             } else {
-                Storage storage = StorageLayer.getStorage(appIdentifier.getAsPublicTenantIdentifier(), main);
+                Storage storage = getTenantStorage(req, appIdentifier.getAsPublicTenantIdentifier());
                 if (!(storage instanceof MigrationBackfillStorage)) {
                     JsonObject result = new JsonObject();
                     result.addProperty("status", "FEATURE_NOT_SUPPORTED_ERROR");
@@ -21,6 +21,7 @@ import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.Storage;
@@ -64,8 +65,8 @@ public class ListAppsAPI extends WebserverAPI {
                         "all apps associated with this connection uri domain");
             }
 
-            TenantConfig[] tenantConfigs = Multitenancy.getAllAppsAndTenantsForConnectionUriDomain(
-                    tenantIdentifier.getConnectionUriDomain(), main);
+            TenantConfig[] tenantConfigs = MultitenancyHelper.copyOf(Multitenancy.getTenantsSnapshot(main, false)
+                    .getTenantsForConnectionUriDomain(tenantIdentifier.getConnectionUriDomain()));
 
             Map<String, List<TenantConfig>> appsToTenants = new HashMap<>();
             for (TenantConfig tenantConfig : tenantConfigs) {
@@ -21,6 +21,7 @@ import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.Storage;
@@ -66,7 +67,8 @@ public class ListConnectionUriDomainsAPI extends WebserverAPI {
                                 "core");
             }
 
-            TenantConfig[] tenantConfigs = Multitenancy.getAllTenants(main);
+            TenantConfig[] tenantConfigs = MultitenancyHelper.copyOf(
+                    Multitenancy.getTenantsSnapshot(main, false).getTenants());
 
             Map<String, Map<String, List<TenantConfig>>> cudToAppToTenants = new HashMap<>();
             for (TenantConfig tenantConfig : tenantConfigs) {
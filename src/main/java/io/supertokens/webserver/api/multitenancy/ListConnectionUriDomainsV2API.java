@@ -20,13 +20,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.config.CoreConfig;
-import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.TenantConfig;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.utils.SemVer;
 import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -64,7 +65,8 @@ public class ListConnectionUriDomainsV2API extends WebserverAPI {
                                 "core");
             }
 
-            TenantConfig[] tenantConfigs = Multitenancy.getAllTenants(main);
+            MultitenancyHelper.TenantsSnapshot tenants = getTenantsSnapshot(req);
+            TenantConfig[] tenantConfigs = MultitenancyHelper.copyOf(tenants.getTenants());
 
             Map<String, Map<String, List<TenantConfig>>> cudToAppToTenants = new HashMap<>();
             for (TenantConfig tenantConfig : tenantConfigs) {
@@ -110,6 +112,9 @@ public class ListConnectionUriDomainsV2API extends WebserverAPI {
             JsonObject result = new JsonObject();
             result.addProperty("status", "OK");
             result.add("connectionUriDomains", cudArray);
+            if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_6)) {
+                result.addProperty("tenantsLoadedFromDbTime", tenants.getLoadedFromDbTime());
+            }
 
             super.sendJsonResponse(200, result, resp);
 
@@ -21,6 +21,7 @@ import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.config.CoreConfig;
 import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.Storage;
@@ -59,7 +60,8 @@ public class ListTenantsAPI extends WebserverAPI {
                         "associated with this app");
             }
 
-            TenantConfig[] tenantConfigs = Multitenancy.getAllTenantsForApp(tenantIdentifier.toAppIdentifier(), main);
+            TenantConfig[] tenantConfigs = MultitenancyHelper.copyOf(Multitenancy.getTenantsSnapshot(main, false)
+                    .getTenantsForApp(tenantIdentifier.toAppIdentifier()));
             JsonArray tenantsArray = new JsonArray();
 
             boolean shouldProtect = shouldProtectProtectedConfig(req);
@@ -20,13 +20,14 @@ import com.google.gson.JsonArray;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.config.CoreConfig;
-import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
 import io.supertokens.multitenancy.exception.BadPermissionException;
 import io.supertokens.pluginInterface.RECIPE_ID;
 import io.supertokens.pluginInterface.Storage;
 import io.supertokens.pluginInterface.multitenancy.TenantConfig;
 import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
+import io.supertokens.utils.SemVer;
 import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -57,7 +58,11 @@ public class ListTenantsV2API extends WebserverAPI {
                         "associated with this app");
             }
 
-            TenantConfig[] tenantConfigs = Multitenancy.getAllTenantsForApp(tenantIdentifier.toAppIdentifier(), main);
+            // the tenants are served from what is loaded in this core, unless the caller asks for them to be
+            // reloaded from the db first
+            MultitenancyHelper.TenantsSnapshot tenants = getTenantsSnapshot(req);
+            TenantConfig[] tenantConfigs = MultitenancyHelper.copyOf(
+                    tenants.getTenantsForApp(tenantIdentifier.toAppIdentifier()));
             JsonArray tenantsArray = new JsonArray();
 
             boolean shouldProtect = shouldProtectProtectedConfig(req);
@@ -72,6 +77,9 @@ public class ListTenantsV2API extends WebserverAPI {
             JsonObject result = new JsonObject();
             result.addProperty("status", "OK");
             result.add("tenants", tenantsArray);
+            if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_6)) {
+                result.addProperty("tenantsLoadedFromDbTime", tenants.getLoadedFromDbTime());
+            }
 
             super.sendJsonResponse(200, result, resp);
 
@@ -175,13 +175,21 @@ public class CreateUpdateOrGetOAuthClientAPI extends WebserverAPI {
         try {
             Map<String, String> queryParams = new HashMap<>();
             queryParams.put("clientId", clientId);
-            HttpRequestForOAuthProvider.Response response = OAuth.doOAuthProxyGET(
-                    main,
-                    getAppIdentifier(req),
-                    enforcePublicTenantAndGetPublicTenantStorage(req),
-                    clientId,
-                    "/admin/clients/" + clientId,
-                    true, true, queryParams, null);
+            AppIdentifier appIdentifier = getAppIdentifier(req);
+            Storage storage = enforcePublicTenantAndGetPublicTenantStorage(req);
+            HttpRequestForOAuthProvider.Response response;
+            releaseStoragePermitDuringOutboundCall(req);
+            try {
+                response = OAuth.doOAuthProxyGET(
+                        main,
+                        appIdentifier,
+                        storage,
+                        clientId,
+                        "/admin/clients/" + clientId,
+                        true, true, queryParams, null);
+            } finally {
+                retakeStoragePermitAfterOutboundCall(req);
+            }
 
             JsonObject existingConfig = response.jsonResponse.getAsJsonObject();
             for (Map.Entry<String, JsonElement> entry : existingConfig.entrySet()) {
@@ -35,7 +35,6 @@ import io.supertokens.pluginInterface.session.SessionInfo;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.session.Session;
 import io.supertokens.session.jwt.JWT;
-import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.webserver.InputParser;
 import io.supertokens.webserver.WebserverAPI;
@@ -132,7 +131,7 @@ public class OAuthAuthAPI extends WebserverAPI {
                             String sessionHandle = null;
                             if (accessTokenPayload.has("sessionHandle")) {
                                 sessionHandle = accessTokenPayload.get("sessionHandle").getAsString();
-                                updateLastActive(appIdentifier, sessionHandle);
+                                updateLastActive(req, appIdentifier, sessionHandle);
                             }
 
                             OAuth.createOrUpdateOauthSession(main, appIdentifier, storage, clientId, gid, null, null, sessionHandle, jti, exp);
@@ -163,11 +162,11 @@ public class OAuthAuthAPI extends WebserverAPI {
         }
     }
 
-    private void updateLastActive(AppIdentifier appIdentifier, String sessionHandle) {
+    private void updateLastActive(HttpServletRequest req, AppIdentifier appIdentifier, String sessionHandle) {
         try {
             TenantIdentifier tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(),
                     appIdentifier.getAppId(), Session.getTenantIdFromSessionHandle(sessionHandle));
-            Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
+            Storage storage = getTenantStorage(req, tenantIdentifier);
             SessionInfo sessionInfo = Session.getSession(tenantIdentifier, storage, sessionHandle);
 
             UserIdMapping userIdMapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
@@ -20,6 +20,7 @@ import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.oauth.exception.OAuthClientNotFoundException;
+import io.supertokens.webserver.WebserverAPI;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -31,6 +32,7 @@ public class OAuthProxyHelper {
     public static HttpRequestForOAuthProvider.Response proxyGET(Main main, HttpServletRequest req, HttpServletResponse resp, AppIdentifier appIdentifier, Storage storage,
                                                                 String clientIdToCheck, String path, boolean proxyToAdmin, boolean camelToSnakeCaseConversion,
                                                                 Map<String, String> queryParams, Map<String, String> headers) throws IOException, ServletException {
+        WebserverAPI.releaseStoragePermitDuringOutboundCall(req);
         try {
             return OAuth.doOAuthProxyGET(main, appIdentifier, storage, clientIdToCheck, path, proxyToAdmin, camelToSnakeCaseConversion, queryParams, headers);
 
@@ -40,6 +42,8 @@ public class OAuthProxyHelper {
             handleOAuthAPIException(resp, e);
         } catch (StorageQueryException | TenantOrAppNotFoundException | FeatureNotEnabledException | InvalidConfigException e) {
             throw new ServletException(e);
+        } finally {
+            WebserverAPI.retakeStoragePermitAfterOutboundCall(req);
         }
         return null;
     }
@@ -47,6 +51,7 @@ public class OAuthProxyHelper {
     public static HttpRequestForOAuthProvider.Response proxyFormPOST(Main main, HttpServletRequest req, HttpServletResponse resp, AppIdentifier appIdentifier, Storage storage,
                                                                      String clientIdToCheck, String path, boolean proxyToAdmin, boolean camelToSnakeCaseConversion,
                                                                      Map<String, String> formFields, Map<String, String> headers) throws IOException, ServletException {
+        WebserverAPI.releaseStoragePermitDuringOutboundCall(req);
         try {
             return OAuth.doOAuthProxyFormPOST(main, appIdentifier, storage, clientIdToCheck, path, proxyToAdmin, camelToSnakeCaseConversion, formFields, headers);
         } catch (OAuthClientNotFoundException e) {
@@ -55,6 +60,8 @@ public class OAuthProxyHelper {
             handleOAuthAPIException(resp, e);
         } catch (StorageQueryException | TenantOrAppNotFoundException | FeatureNotEnabledException | InvalidConfigException e) {
             throw new ServletException(e);
+        } finally {
+            WebserverAPI.retakeStoragePermitAfterOutboundCall(req);
         }
         return null;
     }
@@ -62,6 +69,7 @@ public class OAuthProxyHelper {
     public static HttpRequestForOAuthProvider.Response proxyJsonPOST(Main main, HttpServletRequest req, HttpServletResponse resp, AppIdentifier appIdentifier, Storage storage,
                                                                      String clientIdToCheck, String path, boolean proxyToAdmin, boolean camelToSnakeCaseConversion,
                                                                      JsonObject jsonInput, Map<String, String> headers) throws IOException, ServletException {
+        WebserverAPI.releaseStoragePermitDuringOutboundCall(req);
         try {
             return OAuth.doOAuthProxyJsonPOST(main, appIdentifier, storage, clientIdToCheck, path, proxyToAdmin, camelToSnakeCaseConversion, jsonInput, headers);
         } catch (OAuthClientNotFoundException e) {
@@ -70,6 +78,8 @@ public class OAuthProxyHelper {
             handleOAuthAPIException(resp, e);
         } catch (StorageQueryException | TenantOrAppNotFoundException | FeatureNotEnabledException | InvalidConfigException e) {
             throw new ServletException(e);
+        } finally {
+            WebserverAPI.retakeStoragePermitAfterOutboundCall(req);
         }
         return null;
     }
@@ -78,6 +88,7 @@ public class OAuthProxyHelper {
                                                                     String clientIdToCheck, String path, boolean proxyToAdmin, boolean camelToSnakeCaseConversion,
                                                                     Map<String, String> queryParams, JsonObject jsonInput, Map<String, String> headers) throws IOException, ServletException {
 
+        WebserverAPI.releaseStoragePermitDuringOutboundCall(req);
         try {
             return OAuth.doOAuthProxyJsonPUT(main, appIdentifier, storage, clientIdToCheck, path, proxyToAdmin, camelToSnakeCaseConversion, queryParams,  jsonInput, headers);
         } catch (OAuthClientNotFoundException e) {
@@ -86,6 +97,8 @@ public class OAuthProxyHelper {
             handleOAuthAPIException(resp, e);
         } catch (StorageQueryException | TenantOrAppNotFoundException | FeatureNotEnabledException | InvalidConfigException e) {
             throw new ServletException(e);
+        } finally {
+            WebserverAPI.retakeStoragePermitAfterOutboundCall(req);
         }
         return null;
     }
@@ -93,6 +106,7 @@ public class OAuthProxyHelper {
     public static HttpRequestForOAuthProvider.Response proxyJsonDELETE(Main main, HttpServletRequest req, HttpServletResponse resp, AppIdentifier appIdentifier, Storage storage,
                                                                        String clientIdToCheck, String path, boolean proxyToAdmin, boolean camelToSnakeCaseConversion,
                                                                        Map<String, String> queryParams, JsonObject jsonInput, Map<String, String> headers) throws IOException, ServletException {
+        WebserverAPI.releaseStoragePermitDuringOutboundCall(req);
         try {
             return OAuth.doOAuthProxyJsonDELETE(main, appIdentifier, storage, clientIdToCheck, path, proxyToAdmin, camelToSnakeCaseConversion, queryParams, jsonInput, headers);
         } catch (OAuthClientNotFoundException e) {
@@ -101,6 +115,8 @@ public class OAuthProxyHelper {
             handleOAuthAPIException(resp, e);
         } catch (StorageQueryException | TenantOrAppNotFoundException | FeatureNotEnabledException | InvalidConfigException e) {
             throw new ServletException(e);
+        } finally {
+            WebserverAPI.retakeStoragePermitAfterOutboundCall(req);
         }
         return null;
     }
@@ -45,7 +45,6 @@ import io.supertokens.pluginInterface.sqlStorage.SQLStorage;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.session.Session;
 import io.supertokens.session.jwt.JWT.JWTException;
-import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.output.Logging;
 import io.supertokens.utils.Utils;
@@ -239,7 +238,7 @@ public class OAuthTokenAPI extends WebserverAPI {
                             accessTokenExp = accessTokenPayload.get("exp").getAsLong();
                             if (accessTokenPayload.has("sessionHandle")) {
                                 sessionHandle = accessTokenPayload.get("sessionHandle").getAsString();
-                                updateLastActive(appIdentifier, sessionHandle);
+                                updateLastActive(req, appIdentifier, sessionHandle);
                             }
                         } catch (TryRefreshTokenException e) {
                             //ignore, shouldn't happen
@@ -310,11 +309,11 @@ public class OAuthTokenAPI extends WebserverAPI {
         }
     }
 
-    private void updateLastActive(AppIdentifier appIdentifier, String sessionHandle) {
+    private void updateLastActive(HttpServletRequest req, AppIdentifier appIdentifier, String sessionHandle) {
         try {
             TenantIdentifier tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(),
                     appIdentifier.getAppId(), Session.getTenantIdFromSessionHandle(sessionHandle));
-            Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
+            Storage storage = getTenantStorage(req, tenantIdentifier);
             SessionInfo sessionInfo = Session.getSession(tenantIdentifier, storage, sessionHandle);
 
             UserIdMapping userIdMapping = io.supertokens.useridmapping.UserIdMapping.getUserIdMapping(
@@ -389,6 +388,8 @@ public class OAuthTokenAPI extends WebserverAPI {
 
         final JsonObject[] finalResponse = {null};
 
+        // the transaction below stays open during the Hydra calls, so the request keeps its storage permit
+        keepStoragePermitDuringOutboundCalls(req, true);
         try {
             sqlStorage.startTransaction(con -> {
                 try {
@@ -456,7 +457,7 @@ public class OAuthTokenAPI extends WebserverAPI {
                             jti = atPayload.get("jti").getAsString();
                             if (atPayload.has("sessionHandle")) {
                                 sessionHandle = atPayload.get("sessionHandle").getAsString();
-                                updateLastActive(appIdentifier, sessionHandle);
+                                updateLastActive(req, appIdentifier, sessionHandle);
                             }
                         } catch (TryRefreshTokenException e) {
                             // ignore — shouldn't happen
@@ -534,6 +535,8 @@ public class OAuthTokenAPI extends WebserverAPI {
             throw new ServletException(e.actualException);
         } catch (StorageQueryException e) {
             throw new ServletException(e);
+        } finally {
+            keepStoragePermitDuringOutboundCalls(req, false);
         }
 
         // Send response only if the transaction committed (null = error already sent by proxyFormPOST)
@@ -37,7 +37,6 @@ import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.session.Session;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.session.info.SessionInformationHolder;
-import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.utils.SemVer;
 import io.supertokens.utils.Utils;
@@ -91,6 +90,9 @@ public class RefreshSessionAPI extends WebserverAPI {
 
         try {
             AppIdentifier appIdentifier = this.getAppIdentifier(req);
+            // the refresh uses the storage of the session's tenant, which is only known once the refresh token is
+            // read, so the request waits for (and holds) a permit of the storage of the tenant in the path
+            getTenantStorage(req);
             AccessToken.VERSION accessTokenVersion = AccessToken.getAccessTokenVersionForCDI(version);
 
             SessionInformationHolder sessionInfo = Session.refreshSession(appIdentifier, main,
@@ -100,7 +102,7 @@ public class RefreshSessionAPI extends WebserverAPI {
                     accessTokenValidity);
             TenantIdentifier tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(),
                     appIdentifier.getAppId(), sessionInfo.session.tenantId);
-            Storage storage = StorageLayer.getStorage(tenantIdentifier, main);
+            Storage storage = getTenantStorage(req, tenantIdentifier);
 
             // Skip the userid_mapping lookup and the user_last_active upsert when the same
             // session user_id was marked active recently. With default 1h access tokens and
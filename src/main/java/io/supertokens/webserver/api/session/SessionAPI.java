@@ -38,7 +38,6 @@ import io.supertokens.pluginInterface.session.SessionInfo;
 import io.supertokens.session.Session;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.session.info.SessionInformationHolder;
-import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.utils.SemVer;
 import io.supertokens.utils.Utils;
@@ -169,7 +168,7 @@ public class SessionAPI extends WebserverAPI {
             AppIdentifier appIdentifier = getAppIdentifier(req);
             tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(),
                     appIdentifier.getAppId(), Session.getTenantIdFromSessionHandle(sessionHandle));
-            storage = StorageLayer.getStorage(tenantIdentifier, main);
+            storage = getTenantStorage(req, tenantIdentifier);
         } catch (TenantOrAppNotFoundException e) {
             throw new ServletException(e);
         }
@@ -189,6 +188,9 @@ public class SessionAPI extends WebserverAPI {
             if (getVersionFromRequest(req).lesserThan(SemVer.v4_0)) {
                 result.remove("recipeUserId");
             }
+            if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_6)) {
+                result.addProperty("sessionVersion", Session.getSessionVersion(sessionInfo));
+            }
 
             super.sendJsonResponse(200, result, resp);
 
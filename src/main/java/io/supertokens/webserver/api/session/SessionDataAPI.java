@@ -19,6 +19,7 @@ package io.supertokens.webserver.api.session;
 import com.google.gson.JsonObject;
 import io.supertokens.Main;
 import io.supertokens.exceptions.AccessTokenPayloadError;
+import io.supertokens.exceptions.SessionVersionConflictException;
 import io.supertokens.exceptions.UnauthorisedException;
 import io.supertokens.output.Logging;
 import io.supertokens.pluginInterface.RECIPE_ID;
@@ -29,7 +30,6 @@ import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.session.Session;
 import io.supertokens.session.accessToken.AccessToken;
-import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.utils.SemVer;
 import io.supertokens.utils.Utils;
 import io.supertokens.webserver.InputParser;
@@ -65,7 +65,7 @@ public class SessionDataAPI extends WebserverAPI {
             AppIdentifier appIdentifier = getAppIdentifier(req);
             tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(),
                     Session.getTenantIdFromSessionHandle(sessionHandle));
-            storage = StorageLayer.getStorage(tenantIdentifier, main);
+            storage = getTenantStorage(req, tenantIdentifier);
         } catch (TenantOrAppNotFoundException e) {
             throw new ServletException(e);
         }
@@ -104,15 +104,31 @@ public class SessionDataAPI extends WebserverAPI {
             AppIdentifier appIdentifier = getAppIdentifier(req);
             tenantIdentifier = new TenantIdentifier(appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(),
                     Session.getTenantIdFromSessionHandle(sessionHandle));
-            storage = StorageLayer.getStorage(tenantIdentifier, main);
+            storage = getTenantStorage(req, tenantIdentifier);
         } catch (TenantOrAppNotFoundException e) {
             throw new ServletException(e);
         }
 
+        String sessionVersion = null;
+        if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_6)) {
+            sessionVersion = InputParser.parseStringOrThrowError(input, "sessionVersion", true);
+            if (sessionVersion != null && !Session.supportsVersionCheckedUpdates(storage)) {
+                throw new ServletException(
+                        new BadRequestException("sessionVersion is not supported by the storage of this app"));
+            }
+        }
+
         try {
+            JsonObject result = new JsonObject();
+            result.addProperty("status", "OK");
+
             // This is only here for consistency: the difference between the two versions is the handling of jwtData
             // which is always null here
-            if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v2_21)) {
+            if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v5_6)) {
+                AccessToken.VERSION version = AccessToken.getAccessTokenVersionForCDI(getVersionFromRequest(req));
+                result.addProperty("sessionVersion", Session.updateSession(tenantIdentifier, storage,
+                        sessionHandle, userDataInDatabase, null, version, sessionVersion));
+            } else if (getVersionFromRequest(req).greaterThanOrEqualTo(SemVer.v2_21)) {
                 AccessToken.VERSION version = AccessToken.getAccessTokenVersionForCDI(getVersionFromRequest(req));
                 Session.updateSession(tenantIdentifier, storage, sessionHandle,
                         userDataInDatabase, null, version);
@@ -121,10 +137,13 @@ public class SessionDataAPI extends WebserverAPI {
                         userDataInDatabase, null);
             }
 
-            JsonObject result = new JsonObject();
-            result.addProperty("status", "OK");
             super.sendJsonResponse(200, result, resp);
 
+        } catch (SessionVersionConflictException e) {
+            JsonObject reply = new JsonObject();
+            reply.addProperty("status", "SESSION_VERSION_CONFLICT_ERROR");
+            reply.addProperty("sessionVersion", e.currentSessionVersion);
+            super.sendJsonResponse(200, reply, resp);
         } catch (StorageQueryException e) {
             throw new ServletException(e);
         } catch (AccessTokenPayloadError e) {
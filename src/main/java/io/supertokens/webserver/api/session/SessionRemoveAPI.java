@@ -33,7 +33,6 @@ import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.useridmapping.UserIdMapping;
 import io.supertokens.session.Session;
-import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.useridmapping.UserIdType;
 import io.supertokens.webserver.InputParser;
 import io.supertokens.webserver.WebserverAPI;
@@ -173,10 +172,8 @@ public class SessionRemoveAPI extends WebserverAPI {
                 for (Map.Entry<String, List<String>> entry : sessionHandlesByTenantId.entrySet()) {
                     String tenantId = entry.getKey();
                     List<String> sessionHandlesForTenant = entry.getValue();
-                    Storage storage = StorageLayer.getStorage(
-                            new TenantIdentifier(
-                                    appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(), tenantId),
-                            main);
+                    Storage storage = getTenantStorage(req, new TenantIdentifier(
+                            appIdentifier.getConnectionUriDomain(), appIdentifier.getAppId(), tenantId));
 
                     String[] sessionHandlesRevoked = Session.revokeSessionUsingSessionHandles(main,
                             appIdentifier, storage, sessionHandlesForTenant.toArray(new String[0]));
@@ -23,9 +23,11 @@ import io.supertokens.Main;
 import io.supertokens.ProcessState;
 import io.supertokens.cliOptions.CLIOptions;
 import io.supertokens.config.Config;
+import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.test.httpRequest.HttpRequestForTesting;
 import io.supertokens.test.httpRequest.HttpRequestMocking;
 import io.supertokens.utils.SemVer;
+import io.supertokens.webserver.APIKeyIndex;
 import org.junit.AfterClass;
 import org.junit.Before;
 import org.junit.Rule;
@@ -95,6 +97,29 @@ public class APIKeysTest {
 
     }
 
+    @Test
+    public void testAPIKeyIndexMatchesOnlyConfiguredKeys() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("api_keys", "\"abctijenbogweg=-2438243u98, ronfjewbhijfvwbnhijkfeuhbbij\"");
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        APIKeyIndex index = Config.getInstance(TenantIdentifier.BASE_TENANT, process.getProcess()).getAPIKeyIndex();
+        assertSame(index, Config.getInstance(TenantIdentifier.BASE_TENANT, process.getProcess()).getAPIKeyIndex());
+        assertTrue(index.hasAPIKeys());
+        assertFalse(index.hasSaaSSecret());
+        assertTrue(index.isAPIKey("abctijenbogweg=-2438243u98"));
+        assertTrue(index.isAPIKey("ronfjewbhijfvwbnhijkfeuhbbij"));
+        assertFalse(index.isAPIKey("abctijenbogweg=-2438243u9"));
+        assertFalse(index.isAPIKey(""));
+        assertFalse(index.isSaaSSecret("abctijenbogweg=-2438243u98"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     // * - set an invalid API key and check that an error is thrown.
     @Test
     public void testErrorIsThrownWhenInvalidApiKeyIsSet() throws Exception {
@@ -835,6 +835,8 @@ public class CronjobTest {
                 null, null,
                 new JsonObject()
         ));
+        // like another core would after changing the tenant
+        MultitenancyHelper.tenantsChangedInDb(process.getProcess());
 
         // Check that it was not updated in memory yet
         found = false;
@@ -865,6 +867,67 @@ public class CronjobTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testThatCoreOnlyReloadsTenantsIfTenantsVersionChangedInDb() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        CronTaskTest.getInstance(process.getProcess()).setIntervalInSeconds(SyncCoreConfigWithDb.RESOURCE_KEY,
+                1);
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        if (StorageLayer.isInMemDb(process.getProcess())) {
+            return;
+        }
+
+        TenantIdentifier t1 = new TenantIdentifier(null, "a1", null);
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                t1,
+                new EmailPasswordConfig(false),
+                new ThirdPartyConfig(false, null),
+                new PasswordlessConfig(false),
+                null, null,
+                new JsonObject()
+        ), false);
+
+        // let the cronjob sync with the change made above
+        Thread.sleep(2100);
+        long tenantsVersionInMemory = MultitenancyHelper.getInstance(process.getProcess())
+                .getTenantsSnapshot().version;
+
+        // a change in the db that doesn't update the tenants version is not picked up by the cronjob
+        MultitenancyStorage storage = (MultitenancyStorage) StorageLayer.getStorage(process.getProcess());
+        storage.overwriteTenantConfig(new TenantConfig(
+                t1,
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(false, null),
+                new PasswordlessConfig(false),
+                null, null,
+                new JsonObject()
+        ));
+        Thread.sleep(2100);
+        assertEquals(tenantsVersionInMemory,
+                MultitenancyHelper.getInstance(process.getProcess()).getTenantsSnapshot().version);
+        assertFalse(MultitenancyHelper.getInstance(process.getProcess()).getTenantsSnapshot()
+                .getTenant(t1).emailPasswordConfig.enabled);
+
+        // but it is once the tenants version is changed
+        MultitenancyHelper.tenantsChangedInDb(process.getProcess());
+        Thread.sleep(2100);
+        assertTrue(MultitenancyHelper.getInstance(process.getProcess()).getTenantsSnapshot()
+                .getTenant(t1).emailPasswordConfig.enabled);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void testThatReAddingSameCronTaskDoesNotScheduleMoreExecutors() throws Exception {
         String[] args = {"../"};
@@ -1052,6 +1115,7 @@ public class CronjobTest {
         intervals.put("io.supertokens.cronjobs.telemetry.Telemetry", 86400);
         intervals.put("io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys",
                 86400);
+        intervals.put("io.supertokens.cronjobs.mintAccessTokenSigningKeys.MintAccessTokenSigningKeys", 900);
         intervals.put("io.supertokens.cronjobs.bulkimport.ProcessBulkImportUsers", 300);
         intervals.put("io.supertokens.cronjobs.cleanupOAuthSessionsAndChallenges.CleanupOAuthSessionsAndChallenges",
                 86400);
@@ -1074,6 +1138,7 @@ public class CronjobTest {
         delays.put("io.supertokens.cronjobs.telemetry.Telemetry", 0);
         delays.put("io.supertokens.cronjobs.deleteExpiredAccessTokenSigningKeys.DeleteExpiredAccessTokenSigningKeys",
                 0);
+        delays.put("io.supertokens.cronjobs.mintAccessTokenSigningKeys.MintAccessTokenSigningKeys", 900);
         delays.put("io.supertokens.cronjobs.bulkimport.ProcessBulkImportUsers", 0);
         delays.put("io.supertokens.cronjobs.cleanupOAuthSessionsAndChallenges.CleanupOAuthSessionsAndChallenges",
                 0);
@@ -1083,7 +1148,7 @@ public class CronjobTest {
         delays.put("io.supertokens.cronjobs.cleanupActivityLogPartitions.CleanupActivityLogPartitions", 0);
 
         List<CronTask> allTasks = Cronjobs.getInstance(process.getProcess()).getTasks();
-        assertEquals(16, allTasks.size());
+        assertEquals(17, allTasks.size());
 
         for (CronTask task : allTasks) {
             assertEquals(intervals.get(task.getClass().getName()).intValue(), task.getIntervalTimeSeconds());
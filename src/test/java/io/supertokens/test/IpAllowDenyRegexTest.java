@@ -30,6 +30,7 @@ import io.supertokens.pluginInterface.multitenancy.*;
 import io.supertokens.storageLayer.StorageLayer;
 import io.supertokens.test.TestingProcessManager.TestingProcess;
 import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.webserver.IpAccessFilter;
 
 import org.junit.*;
 import org.junit.rules.TestRule;
@@ -469,4 +470,45 @@ public class IpAllowDenyRegexTest extends Mockito {
             assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
         }
     }
+
+    @Test
+    public void testIpAccessFilterIsCompiledOncePerTenantConfig() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        TenantIdentifier t1 = new TenantIdentifier(null, null, "t1");
+
+        JsonObject coreConfig = new JsonObject();
+        coreConfig.addProperty("ip_allow_regex", "192.123.3.4");
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                t1, new EmailPasswordConfig(true), new ThirdPartyConfig(true, null), new PasswordlessConfig(true),
+                null, null, coreConfig), false);
+
+        IpAccessFilter filter = Config.getInstance(t1, process.getProcess()).getIpAccessFilter();
+        assertSame(filter, Config.getInstance(t1, process.getProcess()).getIpAccessFilter());
+        assertTrue(filter.isAllowed("192.123.3.4"));
+        assertFalse(filter.isAllowed("127.0.0.1"));
+
+        coreConfig.addProperty("ip_allow_regex", "127\\.\\d+\\.\\d+\\.\\d+");
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                t1, new EmailPasswordConfig(true), new ThirdPartyConfig(true, null), new PasswordlessConfig(true),
+                null, null, coreConfig), false);
+
+        IpAccessFilter updatedFilter = Config.getInstance(t1, process.getProcess()).getIpAccessFilter();
+        assertNotSame(filter, updatedFilter);
+        assertFalse(updatedFilter.isAllowed("192.123.3.4"));
+        assertTrue(updatedFilter.isAllowed("127.0.0.1"));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
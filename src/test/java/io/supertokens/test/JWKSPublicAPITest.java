@@ -27,6 +27,9 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.regex.Matcher;
@@ -116,6 +119,63 @@ public class JWKSPublicAPITest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testConditionalGet() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        Map<String, String> responseHeaders = new HashMap<>();
+        JsonObject response = HttpRequest.sendGETRequestWithResponseHeaders(process.getProcess(), "",
+                "http://localhost:" + HttpRequestForTesting.corePort + "/.well-known/jwks.json", null,
+                1000, 1000, null, responseHeaders);
+        assertEquals(2, response.get("keys").getAsJsonArray().size());
+        String etag = responseHeaders.get("ETag");
+        assertNotNull(etag);
+        assertTrue(etag.startsWith("\"") && etag.endsWith("\""));
+
+        // the same keys give the same ETag
+        Map<String, String> newResponseHeaders = new HashMap<>();
+        HttpRequest.sendGETRequestWithResponseHeaders(process.getProcess(), "",
+                "http://localhost:" + HttpRequestForTesting.corePort + "/.well-known/jwks.json", null,
+                1000, 1000, null, newResponseHeaders);
+        assertEquals(etag, newResponseHeaders.get("ETag"));
+
+        {
+            HttpURLConnection con = sendGETRequestWithIfNoneMatch(etag);
+            assertEquals(304, con.getResponseCode());
+            assertEquals(etag, con.getHeaderField("ETag"));
+            assertNotNull(con.getHeaderField("Cache-Control"));
+            con.disconnect();
+        }
+
+        {
+            HttpURLConnection con = sendGETRequestWithIfNoneMatch("\"other\", W/" + etag);
+            assertEquals(304, con.getResponseCode());
+            con.disconnect();
+        }
+
+        {
+            HttpURLConnection con = sendGETRequestWithIfNoneMatch("\"other\"");
+            assertEquals(200, con.getResponseCode());
+            assertEquals(etag, con.getHeaderField("ETag"));
+            con.disconnect();
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    private static HttpURLConnection sendGETRequestWithIfNoneMatch(String ifNoneMatch) throws IOException {
+        URL url = new URL("http://localhost:" + HttpRequestForTesting.corePort + "/.well-known/jwks.json");
+        HttpURLConnection con = (HttpURLConnection) url.openConnection();
+        con.setConnectTimeout(1000);
+        con.setReadTimeout(1000);
+        con.setRequestProperty("If-None-Match", ifNoneMatch);
+        return con;
+    }
+
     private static long getMaxAgeValue(String input) {
         String pattern = "max-age=(\\d+)";
         Pattern r = Pattern.compile(pattern);
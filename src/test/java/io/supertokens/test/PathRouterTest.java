@@ -3076,4 +3076,70 @@ public class PathRouterTest extends Mockito {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testMostRecentlyAddedAPIWinsWhenTenantPrefixIsAmbiguous() throws Exception {
+        String[] args = {"../"};
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean checkAPIKey(HttpServletRequest req) {
+                return false;
+            }
+
+            @Override
+            public String getPath() {
+                return "/x";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                super.sendTextResponse(200, "x", resp);
+            }
+        });
+
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            public boolean checkAPIKey(HttpServletRequest req) {
+                return false;
+            }
+
+            @Override
+            public String getPath() {
+                return "/foo/x";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                super.sendTextResponse(200, "foo/x", resp);
+            }
+        });
+
+        // /appid-app1/foo/x can be read as appId app1 with path /foo/x, or as appId app1, tenantId foo with path /x
+        String response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/appid-app1/foo/x", new HashMap<>(), 1000, 1000, null,
+                Utils.getCdiVersionStringLatestForTests(), "");
+        assertEquals("foo/x", response);
+
+        response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/appid-app1/bar/x/", new HashMap<>(), 1000, 1000, null,
+                Utils.getCdiVersionStringLatestForTests(), "");
+        assertEquals("x", response);
+
+        response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/FOO/X", new HashMap<>(), 1000, 1000, null,
+                Utils.getCdiVersionStringLatestForTests(), "");
+        assertEquals("foo/x", response);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
 }
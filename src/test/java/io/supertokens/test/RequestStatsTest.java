@@ -246,6 +246,121 @@ public class RequestStatsTest {
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
 
+    @Test
+    public void testLatenciesPerAPIAndStatusCode() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        for (int i = 0; i < 5; i++) {
+            TestMultitenancyAPIHelper.epSignUp(TenantIdentifier.BASE_TENANT, "test" + i + "@example.com",
+                    "password", process.getProcess());
+        }
+        try {
+            HttpRequestForTesting.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:3567/recipe/signup", new JsonObject(), 1000, 1000, null,
+                    Utils.getCdiVersionStringLatestForTests(), "emailpassword");
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals(400, e.statusCode);
+        }
+
+        JsonObject stats = HttpRequestForTesting
+                .sendGETRequest(process.getProcess(), "", "http://localhost:3567/requests/stats", null, 5000,
+                        5000, null, Utils.getCdiVersionStringLatestForTests(), null);
+
+        JsonObject ok = null;
+        JsonObject badRequest = null;
+        for (JsonElement e : stats.get("latencies").getAsJsonArray()) {
+            JsonObject latency = e.getAsJsonObject();
+            if (latency.get("path").getAsString().equals("/recipe/signup") &&
+                    latency.get("method").getAsString().equals("POST")) {
+                if (latency.get("statusCode").getAsInt() == 200) {
+                    ok = latency;
+                } else if (latency.get("statusCode").getAsInt() == 400) {
+                    badRequest = latency;
+                }
+            }
+        }
+
+        assertNotNull(ok);
+        assertEquals(5, ok.get("count").getAsLong());
+        assertTrue(ok.get("p50").getAsDouble() > 0);
+        assertTrue(ok.get("p50").getAsDouble() <= ok.get("p90").getAsDouble());
+        assertTrue(ok.get("p90").getAsDouble() <= ok.get("p99").getAsDouble());
+        assertTrue(ok.get("p99").getAsDouble() <= ok.get("max").getAsDouble());
+
+        assertNotNull(badRequest);
+        assertEquals(1, badRequest.get("count").getAsLong());
+        assertEquals(badRequest.get("max").getAsDouble(), badRequest.get("p99").getAsDouble(), 0);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testNumberOfLatencyHistogramsIsLimited() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        RequestStats requestStats = RequestStats.getInstance(process.getProcess(), new AppIdentifier(null, null));
+        for (int i = 0; i < 300; i++) {
+            requestStats.updateRequestStats("GET", "/test" + i, 200, 1000000);
+        }
+        // methods that are not standard do not get their own histograms
+        requestStats.updateRequestStats("FOO", "/other", 200, 1000000);
+
+        int histograms = 0;
+        JsonObject overflow = null;
+        for (JsonElement e : requestStats.getStats().get("latencies").getAsJsonArray()) {
+            JsonObject latency = e.getAsJsonObject();
+            if (latency.get("path").getAsString().equals("*")) {
+                overflow = latency;
+            } else {
+                histograms++;
+                assertNotEquals("FOO", latency.get("method").getAsString());
+            }
+        }
+        assertTrue(histograms <= 256);
+        assertNotNull(overflow);
+        assertEquals("OTHER", overflow.get("method").getAsString());
+        assertEquals(301 - histograms, overflow.get("count").getAsLong());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testPackedStatsOfAMinute() {
+        assertEquals(0, RequestStats.packStats(0, 0));
+        assertEquals(0.0, RequestStats.getAverage(0), 0);
+        assertEquals(0, RequestStats.getPeak(0));
+
+        long packed = RequestStats.packStats(120, 7);
+        assertEquals(2.0, RequestStats.getAverage(packed), 0);
+        assertEquals(7, RequestStats.getPeak(packed));
+
+        // counts beyond an int are capped, and never bleed into the other half
+        packed = RequestStats.packStats(Long.MAX_VALUE, Long.MAX_VALUE);
+        assertEquals(Integer.MAX_VALUE / 60.0, RequestStats.getAverage(packed), 0);
+        assertEquals(Integer.MAX_VALUE, RequestStats.getPeak(packed));
+
+        packed = RequestStats.packStats(Integer.MAX_VALUE, 0);
+        assertEquals(Integer.MAX_VALUE / 60.0, RequestStats.getAverage(packed), 0);
+        assertEquals(0, RequestStats.getPeak(packed));
+
+        packed = RequestStats.packStats(0, Integer.MAX_VALUE);
+        assertEquals(0.0, RequestStats.getAverage(packed), 0);
+        assertEquals(Integer.MAX_VALUE, RequestStats.getPeak(packed));
+    }
+
     @Test
     public void testWithNonExistantApp() throws Exception {
         String[] args = {"../"};
@@ -0,0 +1,113 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test;
+
+import io.supertokens.webserver.RequestTenantContext;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class RequestTenantContextTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static final String API_PATH = RequestTenantContext.normaliseAPIPath("/recipe/user/");
+
+    private static String tenantId(String path) {
+        return RequestTenantContext.getTenantIdFromPath(path, API_PATH);
+    }
+
+    private static String appId(String path) {
+        return RequestTenantContext.getAppIdFromPath(path, API_PATH);
+    }
+
+    @Test
+    public void testPathsOfTheBaseTenant() {
+        assertEquals("/recipe/user", API_PATH);
+
+        for (String path : new String[]{"/recipe/user", "/recipe/user/", "/public/recipe/user",
+                "/appid-public/recipe/user", "/appid-public/public/recipe/user/"}) {
+            assertNull(path, tenantId(path));
+            assertNull(path, appId(path));
+        }
+    }
+
+    @Test
+    public void testPathsWithOnlyAnAppId() {
+        assertEquals("a1", appId("/appid-a1/recipe/user"));
+        assertNull(tenantId("/appid-a1/recipe/user"));
+
+        assertEquals("a1", appId("/appid-a1/public/recipe/user/"));
+        assertNull(tenantId("/appid-a1/public/recipe/user/"));
+
+        // the hello API has an empty path
+        assertEquals("a1", RequestTenantContext.getAppIdFromPath("/appid-a1",
+                RequestTenantContext.normaliseAPIPath("/")));
+        assertNull(RequestTenantContext.getTenantIdFromPath("/appid-a1",
+                RequestTenantContext.normaliseAPIPath("/")));
+    }
+
+    @Test
+    public void testPathsWithATenantId() {
+        assertEquals("t1", tenantId("/t1/recipe/user"));
+        assertNull(appId("/t1/recipe/user"));
+
+        assertEquals("a1", appId("/appid-a1/t1/recipe/user"));
+        assertEquals("t1", tenantId("/appid-a1/t1/recipe/user"));
+
+        assertEquals("a-1", appId("/appid-a-1/t-1/recipe/user/"));
+        assertEquals("t-1", tenantId("/appid-a-1/t-1/recipe/user/"));
+
+        assertEquals("t1", RequestTenantContext.getTenantIdFromPath("/appid-a1/t1",
+                RequestTenantContext.normaliseAPIPath("")));
+    }
+
+    @Test
+    public void testInvalidPrefixesAreNotParsedAsIds() {
+        for (String path : new String[]{
+                // characters that are not allowed in ids
+                "/appid-a_1/recipe/user", "/t_1/recipe/user", "/appid-a1/t.1/recipe/user",
+                // reserved words cannot be tenant ids
+                "/recipe/recipe/user", "/appid-a1/hello/recipe/user",
+                // more segments than an app and a tenant id
+                "/t1/t2/recipe/user", "/appid-a1/t1/t2/recipe/user",
+                // paths of other APIs
+                "/appid-a1/t1/recipe/users", "/t1/recipe/user//", "/t1/recipe"}) {
+            assertNull(path, tenantId(path));
+        }
+
+        for (String path : new String[]{"/appid-a_1/recipe/user", "/appida1/recipe/user",
+                "/appid-a1/t1/t2/recipe/user", "/appid-a1/recipe/users", "/a1/appid-a1/recipe/user"}) {
+            assertNull(path, appId(path));
+        }
+    }
+}
@@ -288,4 +288,59 @@ public class ResourceDistributorTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testConnectionUriDomainFallbackFollowsAddedAndRemovedResources() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        ResourceDistributor rd = process.getProcess().getResourceDistributor();
+        TenantIdentifier t1 = new TenantIdentifier(null, "a1", "t1");
+        TenantIdentifier t1OnLocalhost = new TenantIdentifier("localhost", "a1", "t1");
+        TenantIdentifier a2OnLocalhost = new TenantIdentifier("localhost", "a2", null);
+
+        ResourceA resource = new ResourceA();
+        rd.setResource(t1, ResourceA.RESOURCE_ID, resource);
+
+        // nothing is configured for localhost, so the base connectionUriDomain's resource is used
+        assertSame(resource, rd.getResource(t1OnLocalhost, ResourceA.RESOURCE_ID));
+
+        // once anything is configured for localhost (even with another resource key), there is no fallback
+        rd.setResource(a2OnLocalhost, ResourceB.RESOURCE_ID, new ResourceB());
+        try {
+            rd.getResource(t1OnLocalhost, ResourceA.RESOURCE_ID);
+            fail();
+        } catch (TenantOrAppNotFoundException e) {
+            // expected
+        }
+
+        // replacing keeps localhost configured
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> newResources = new HashMap<>();
+        newResources.put(new ResourceDistributor.KeyClass(a2OnLocalhost, ResourceB.RESOURCE_ID), new ResourceB());
+        rd.replaceResourcesWithResourceKey(ResourceB.RESOURCE_ID, newResources);
+        try {
+            rd.getResource(t1OnLocalhost, ResourceA.RESOURCE_ID);
+            fail();
+        } catch (TenantOrAppNotFoundException e) {
+            // expected
+        }
+
+        // and the fallback is back after all of localhost's resources are removed
+        rd.replaceResourcesWithResourceKey(ResourceB.RESOURCE_ID, new HashMap<>());
+        assertSame(resource, rd.getResource(t1OnLocalhost, ResourceA.RESOURCE_ID));
+
+        rd.setResource(a2OnLocalhost, ResourceB.RESOURCE_ID, new ResourceB());
+        rd.removeResource(a2OnLocalhost, ResourceB.RESOURCE_ID);
+        assertSame(resource, rd.getResource(t1OnLocalhost, ResourceA.RESOURCE_ID));
+
+        Map<ResourceDistributor.KeyClass, ResourceDistributor.SingletonResource> resourcesWithKey =
+                rd.getAllResourcesWithResourceKey(ResourceA.RESOURCE_ID);
+        assertEquals(1, resourcesWithKey.size());
+        assertSame(resource, resourcesWithKey.get(new ResourceDistributor.KeyClass(t1, ResourceA.RESOURCE_ID)));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
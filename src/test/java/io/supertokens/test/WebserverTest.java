@@ -16,6 +16,8 @@
 
 package io.supertokens.test;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
 import io.supertokens.ProcessState.EventAndException;
@@ -42,12 +44,20 @@ import org.junit.Test;
 import org.junit.rules.TestRule;
 import org.mockito.Mockito;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.net.ConnectException;
 import java.net.InetAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpResponse;
 import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.*;
 
@@ -383,6 +393,417 @@ public class WebserverTest extends Mockito {
 
     }
 
+    @Test
+    public void testRequestBodyLargerThanMaxSizeIsRejected() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("max_request_body_size_kb", "1");
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = 4101569349146553021L;
+
+            @Override
+            public String getPath() {
+                return "/largeJsonInput";
+            }
+
+            @Override
+            public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+
+                InputParser.parseJsonObjectOrThrowError(req);
+                sendTextResponse(200, "validJsonBody", resp);
+            }
+
+        });
+
+        JsonObject smallBody = new JsonObject();
+        smallBody.addProperty("data", "a".repeat(100));
+        String response = HttpRequest.sendJsonPOSTRequest(process.getProcess(), "",
+                "http://localhost:" + HttpRequestForTesting.corePort + "/largeJsonInput", smallBody, 1000, 1000, null);
+        assertEquals(response, "validJsonBody");
+
+        JsonObject largeBody = new JsonObject();
+        largeBody.addProperty("data", "a".repeat(2000));
+        try {
+            HttpRequest.sendJsonPOSTRequest(process.getProcess(), "",
+                    "http://localhost:" + HttpRequestForTesting.corePort + "/largeJsonInput", largeBody, 1000, 1000,
+                    null);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals("Http error. Status Code: 400. Message: Request body is too large", e.getMessage());
+            assertEquals(e.statusCode, 400);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testJsonArrayInputIsConsumedElementByElement() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = -3920415238774624519L;
+
+            @Override
+            public String getPath() {
+                return "/jsonArrayInput";
+            }
+
+            @Override
+            public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+                StringBuilder elements = new StringBuilder();
+                JsonObject input = InputParser.parseJsonObjectWithArrayOrThrowError(req, "items",
+                        (index, element) -> elements.append(index).append(":").append(element.getAsString())
+                                .append(","));
+                sendTextResponse(200, input.get("name").getAsString() + " " + elements, resp);
+            }
+
+        });
+
+        String url = "http://localhost:" + HttpRequestForTesting.corePort + "/jsonArrayInput";
+
+        JsonObject body = new JsonObject();
+        body.addProperty("name", "test");
+        JsonArray items = new JsonArray();
+        items.add("a");
+        items.add("b");
+        body.add("items", items);
+        String response = HttpRequest.sendJsonPOSTRequest(process.getProcess(), "", url, body, 1000, 1000, null);
+        assertEquals("test 0:a,1:b,", response);
+
+        JsonObject bodyWithoutItems = new JsonObject();
+        bodyWithoutItems.addProperty("name", "test");
+        try {
+            HttpRequest.sendJsonPOSTRequest(process.getProcess(), "", url, bodyWithoutItems, 1000, 1000, null);
+            fail();
+        } catch (HttpResponseException e) {
+            assertEquals("Http error. Status Code: 400. Message: Field name 'items' is invalid in JSON input",
+                    e.getMessage());
+            assertEquals(e.statusCode, 400);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    private static java.net.http.HttpResponse<String> sendChunkedJsonPOSTRequest(String url, String body)
+            throws Exception {
+        // the body is sent without a Content-Length, so that it can only be checked while it is being read
+        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .header("Content-Type", "application/json; charset=UTF-8")
+                .POST(java.net.http.HttpRequest.BodyPublishers.ofInputStream(
+                        () -> new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8))))
+                .build();
+        return HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build()
+                .send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test
+    public void testStreamedJsonArrayInputIsLimitedBySizeInBytesAndNumberOfElements() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("max_request_body_size_kb", "1");
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        AtomicInteger numberOfElementsRead = new AtomicInteger(0);
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = -6243317937004719842L;
+
+            @Override
+            public String getPath() {
+                return "/limitedJsonArrayInput";
+            }
+
+            @Override
+            public void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException, ServletException {
+                InputParser.parseJsonObjectWithArrayOrThrowError(req, "items",
+                        new InputParser.JsonArrayElementConsumer() {
+                            @Override
+                            public void beforeElement(int index) throws ServletException {
+                                if (index >= 2) {
+                                    throw new ServletException(
+                                            new WebserverAPI.BadRequestException("Too many items"));
+                                }
+                            }
+
+                            @Override
+                            public void accept(int index, JsonElement element) {
+                                numberOfElementsRead.incrementAndGet();
+                            }
+                        });
+                sendTextResponse(200, "OK", resp);
+            }
+
+        });
+
+        String url = "http://localhost:" + HttpRequestForTesting.corePort + "/limitedJsonArrayInput";
+
+        // 600 chars fit in the limit
+        HttpResponse<String> response = sendChunkedJsonPOSTRequest(url, "{\"items\":[\"" + "a".repeat(600) + "\"]}");
+        assertEquals(200, response.statusCode());
+        assertEquals("OK", response.body());
+
+        // but 600 chars of 2 bytes each do not
+        response = sendChunkedJsonPOSTRequest(url, "{\"items\":[\"" + "\u00e9".repeat(600) + "\"]}");
+        assertEquals(400, response.statusCode());
+        assertEquals("Request body is too large", response.body());
+
+        // elements after the limit are not read
+        numberOfElementsRead.set(0);
+        response = sendChunkedJsonPOSTRequest(url, "{\"items\":[\"a\",\"b\",\"c\",\"d\"]}");
+        assertEquals(400, response.statusCode());
+        assertEquals("Too many items", response.body());
+        assertEquals(2, numberOfElementsRead.get());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testRequestsRunOnVirtualThreadsIfEnabled() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("webserver_virtual_threads_enabled", "true");
+        Utils.setValueInConfig("max_concurrent_requests_per_storage", "1");
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = 6502311432974218795L;
+
+            @Override
+            public String getPath() {
+                return "/virtualThreadCheck";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                sendTextResponse(200, Thread.currentThread().isVirtual() + "", resp);
+            }
+
+        });
+
+        // the permit is released after each request, so sequential requests with a single permit work
+        for (int i = 0; i < 3; i++) {
+            String response = HttpRequest.sendGETRequest(process.getProcess(), "",
+                    "http://localhost:" + HttpRequestForTesting.corePort + "/virtualThreadCheck", null, 1000, 1000,
+                    null);
+            assertEquals("true", response);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testOnlyRequestsThatUseAStorageWaitForItsPermits() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("webserver_virtual_threads_enabled", "true");
+        Utils.setValueInConfig("max_concurrent_requests_per_storage", "1");
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        CountDownLatch permitTaken = new CountDownLatch(1);
+        CountDownLatch finishRequest = new CountDownLatch(1);
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = -4106427361538829013L;
+
+            @Override
+            public String getPath() {
+                return "/holdStoragePermit";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException, ServletException {
+                try {
+                    getTenantStorage(req);
+                    permitTaken.countDown();
+                    finishRequest.await(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    throw new ServletException(e);
+                }
+                sendTextResponse(200, "done", resp);
+            }
+        });
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = 8853250731695730846L;
+
+            @Override
+            public String getPath() {
+                return "/useStorage";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException, ServletException {
+                try {
+                    getTenantStorage(req);
+                } catch (Exception e) {
+                    throw new ServletException(e);
+                }
+                sendTextResponse(200, "done", resp);
+            }
+        });
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = -1893320125407786614L;
+
+            @Override
+            public String getPath() {
+                return "/noStorage";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+                sendTextResponse(200, "done", resp);
+            }
+        });
+
+        String baseUrl = "http://localhost:" + HttpRequestForTesting.corePort;
+        Thread holder = new Thread(() -> {
+            try {
+                HttpRequest.sendGETRequest(process.getProcess(), "", baseUrl + "/holdStoragePermit", null, 1000,
+                        10000, null);
+            } catch (Exception ignored) {
+            }
+        });
+        holder.start();
+        assertTrue(permitTaken.await(5, TimeUnit.SECONDS));
+
+        // the only permit is held, but this request never asks for a storage
+        assertEquals("done", HttpRequest.sendGETRequest(process.getProcess(), "", baseUrl + "/noStorage", null, 1000,
+                1000, null));
+
+        // this one waits until the permit is released
+        try {
+            HttpRequest.sendGETRequest(process.getProcess(), "", baseUrl + "/useStorage", null, 1000, 500, null);
+            fail();
+        } catch (SocketTimeoutException ignored) {
+        }
+
+        finishRequest.countDown();
+        holder.join();
+        assertEquals("done", HttpRequest.sendGETRequest(process.getProcess(), "", baseUrl + "/useStorage", null, 1000,
+                1000, null));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testStoragePermitIsNotHeldDuringOutboundCalls() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("webserver_virtual_threads_enabled", "true");
+        Utils.setValueInConfig("max_concurrent_requests_per_storage", "1");
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        CountDownLatch outboundCallStarted = new CountDownLatch(1);
+        CountDownLatch finishOutboundCall = new CountDownLatch(1);
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = 3047198253120964317L;
+
+            @Override
+            public String getPath() {
+                return "/callOtherService";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException, ServletException {
+                try {
+                    getTenantStorage(req);
+                    releaseStoragePermitDuringOutboundCall(req);
+                    try {
+                        outboundCallStarted.countDown();
+                        finishOutboundCall.await(5, TimeUnit.SECONDS);
+                    } finally {
+                        retakeStoragePermitAfterOutboundCall(req);
+                    }
+                } catch (Exception e) {
+                    throw new ServletException(e);
+                }
+                sendTextResponse(200, "done", resp);
+            }
+        });
+        Webserver.getInstance(process.getProcess()).addAPI(new WebserverAPI(process.getProcess(), "") {
+            private static final long serialVersionUID = -6720954183394607521L;
+
+            @Override
+            public String getPath() {
+                return "/useStorage";
+            }
+
+            @Override
+            protected void doGet(HttpServletRequest req, HttpServletResponse resp)
+                    throws IOException, ServletException {
+                try {
+                    getTenantStorage(req);
+                } catch (Exception e) {
+                    throw new ServletException(e);
+                }
+                sendTextResponse(200, "done", resp);
+            }
+        });
+
+        String baseUrl = "http://localhost:" + HttpRequestForTesting.corePort;
+        Thread caller = new Thread(() -> {
+            try {
+                HttpRequest.sendGETRequest(process.getProcess(), "", baseUrl + "/callOtherService", null, 1000,
+                        10000, null);
+            } catch (Exception ignored) {
+            }
+        });
+        caller.start();
+        assertTrue(outboundCallStarted.await(5, TimeUnit.SECONDS));
+
+        // the only permit is free while the other request waits for its outbound call
+        assertEquals("done", HttpRequest.sendGETRequest(process.getProcess(), "", baseUrl + "/useStorage", null, 1000,
+                1000, null));
+
+        finishOutboundCall.countDown();
+        caller.join();
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testHttp2CleartextConnectionsAreAcceptedIfEnabled() throws Exception {
+        String[] args = {"../"};
+
+        Utils.setValueInConfig("webserver_http2_enabled", "true");
+        Utils.setValueInConfig("webserver_max_keep_alive_requests", "-1");
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2).build();
+        java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
+                .uri(URI.create("http://localhost:" + HttpRequestForTesting.corePort + "/hello"))
+                .GET()
+                .build();
+
+        // the first request is upgraded from HTTP/1.1, and the ones after that reuse the HTTP/2 connection
+        for (int i = 0; i < 3; i++) {
+            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+            assertEquals(200, response.statusCode());
+            assertEquals(HttpClient.Version.HTTP_2, response.version());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void testInvalidGetInput() throws Exception {
         String[] args = {"../"};
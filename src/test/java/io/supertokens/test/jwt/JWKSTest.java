@@ -24,7 +24,9 @@ import com.auth0.jwt.interfaces.RSAKeyProvider;
 import com.google.gson.JsonObject;
 import io.supertokens.ProcessState;
 import io.supertokens.jwt.JWTSigningFunctions;
-import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
+import io.supertokens.pluginInterface.jwt.JWTSigningKeyInfo;
+import io.supertokens.signingkeys.ParsedSigningKey;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.Utils;
@@ -42,7 +44,7 @@ import java.security.spec.RSAPublicKeySpec;
 import java.util.Base64;
 import java.util.List;
 
-import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.*;
 
 public class JWKSTest {
     @Rule
@@ -62,7 +64,8 @@ public class JWKSTest {
     }
 
     /**
-     * Test that after startup there is one JWK for each supported algorithm type in storage
+     * Test that after startup there is one JWK for RS256 in storage. Static keys for the other supported algorithms
+     * are only created when access_token_signing_algorithm needs them.
      */
     @Test
     public void testThatThereAreTheSameNumberOfJWKSAsSupportedAlgorithmsBeforeJWTCreation() throws Exception {
@@ -72,7 +75,7 @@ public class JWKSTest {
 
         List<JsonObject> keysFromStorage = SigningKeys.getInstance(process.getProcess()).getJWKS();
         // We also get a dynamic key in the JWKs list
-        assert keysFromStorage.size() == JWTSigningKey.SupportedAlgorithms.values().length + 1;
+        assert keysFromStorage.size() == 1 + 1;
 
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
@@ -90,7 +93,7 @@ public class JWKSTest {
 
         List<JsonObject> keysFromStorageBeforeJWTCreation = SigningKeys.getInstance(process.getProcess()).getJWKS();
         // We also get a dynamic key in the JWKs list
-        assert keysFromStorageBeforeJWTCreation.size() == JWTSigningKey.SupportedAlgorithms.values().length + 1;
+        assert keysFromStorageBeforeJWTCreation.size() == 1 + 1;
         int numberOfKeysBeforeJWTCreation = keysFromStorageBeforeJWTCreation.size();
 
         String algorithm = "RS256";
@@ -274,4 +277,51 @@ public class JWKSTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    /**
+     * Test that each signing key is parsed once, and that the parsed key matches the one in storage
+     */
+    @Test
+    public void testThatParsedSigningKeysAreReused() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SigningKeys signingKeys = SigningKeys.getInstance(process.getProcess());
+        for (JWTSigningKeyInfo keyInfo : signingKeys.getAllKeys()) {
+            ParsedSigningKey parsedKey = signingKeys.getParsedKey(keyInfo);
+            assertSame(parsedKey, signingKeys.getParsedKey(keyInfo));
+            assertEquals(keyInfo.keyId, parsedKey.keyId);
+            assertArrayEquals(Base64.getDecoder().decode(((JWTAsymmetricSigningKeyInfo) keyInfo).publicKey),
+                    parsedKey.getPublicKey().getEncoded());
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    /**
+     * Test that signing keys can be looked up by their kid
+     */
+    @Test
+    public void testThatSigningKeysCanBeFoundById() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SigningKeys signingKeys = SigningKeys.getInstance(process.getProcess());
+        List<JWTSigningKeyInfo> allKeys = signingKeys.getAllKeys();
+        assertTrue(allKeys.size() > 1);
+        for (JWTSigningKeyInfo keyInfo : allKeys) {
+            JWTSigningKeyInfo keyById = signingKeys.getSigningKeyById(keyInfo.keyId);
+            assertNotNull(keyById);
+            assertEquals(keyInfo.keyId, keyById.keyId);
+            assertEquals(keyInfo.keyString, keyById.keyString);
+        }
+        assertNull(signingKeys.getSigningKeyById("unknown-kid"));
+        assertNull(signingKeys.getSigningKeyById(null));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
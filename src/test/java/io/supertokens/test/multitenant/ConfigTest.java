@@ -1967,6 +1967,7 @@ public class ConfigTest {
                 "refresh_token_validity",
                 "access_token_signing_key_dynamic",
                 "access_token_dynamic_signing_key_update_interval",
+                "access_token_signing_algorithm",
                 "api_keys",
                 "disable_telemetry",
                 "password_hashing_alg",
@@ -1979,6 +1980,7 @@ public class ConfigTest {
                 new Object[]{60 * 2400, 61 * 2400}, // refresh_token_validity
                 new Object[]{true, false}, // access_token_signing_key_dynamic
                 new Object[]{168, 169}, // access_token_dynamic_signing_key_update_interval
+                new Object[]{"RS256", "ES256"}, // access_token_signing_algorithm
                 new Object[]{"abcd1234abcd1234abcd1234abcd1234", "qwer1234qwer1234qwer1234qwer1234"}, // api_keys
                 new Object[]{true, false}, // disable_telemetry
                 new Object[]{"BCRYPT", "ARGON2"}, // password_hashing_alg
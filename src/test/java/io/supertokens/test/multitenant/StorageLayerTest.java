@@ -2063,4 +2063,72 @@ public class StorageLayerTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void testThatStoragesForAppFollowChangesToTheStorageOfItsTenants() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            return;
+        }
+
+        if (StorageLayer.isInMemDb(process.getProcess())) {
+            return;
+        }
+
+        Storage baseStorage = StorageLayer.getBaseStorage(process.getProcess());
+        AppIdentifier app = new AppIdentifier(null, "a1");
+
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                app.getAsPublicTenantIdentifier(),
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                null, null, new JsonObject()
+        ), false);
+        assertArrayEquals(new Storage[]{baseStorage}, StorageLayer.getStoragesForApp(process.getProcess(), app));
+
+        // a tenant in another user pool adds its storage to the app
+        JsonObject config = new JsonObject();
+        baseStorage.modifyConfigToAddANewUserPoolForTesting(config, 1);
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                new TenantIdentifier(null, "a1", "t1"),
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                null, null, config
+        ), false);
+        Storage t1Storage = StorageLayer.getStorage(new TenantIdentifier(null, "a1", "t1"), process.getProcess());
+        assertNotSame(baseStorage, t1Storage);
+        Set<Storage> storages = Set.of(StorageLayer.getStoragesForApp(process.getProcess(), app));
+        assertEquals(Set.of(baseStorage, t1Storage), storages);
+
+        // other apps are not affected
+        assertArrayEquals(new Storage[]{baseStorage},
+                StorageLayer.getStoragesForApp(process.getProcess(), new AppIdentifier(null, null)));
+        try {
+            StorageLayer.getStoragesForApp(process.getProcess(), new AppIdentifier(null, "a2"));
+            fail();
+        } catch (TenantOrAppNotFoundException e) {
+            // expected
+        }
+
+        // and moving the tenant back to the base user pool removes it again
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantConfig(
+                new TenantIdentifier(null, "a1", "t1"),
+                new EmailPasswordConfig(true),
+                new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true),
+                null, null, new JsonObject()
+        ), false);
+        assertArrayEquals(new Storage[]{baseStorage}, StorageLayer.getStoragesForApp(process.getProcess(), app));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
 }
@@ -0,0 +1,127 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.multitenant;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import static org.junit.Assert.*;
+
+public class TenantsSnapshotTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static TenantConfig tenantConfig(TenantIdentifier tenantIdentifier) {
+        return new TenantConfig(tenantIdentifier, new EmailPasswordConfig(true), new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true), null, null, new JsonObject());
+    }
+
+    @Test
+    public void tenantsCanBeFoundById() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+            return;
+        }
+
+        long versionBefore = MultitenancyHelper.getInstance(process.getProcess()).getTenantsSnapshot().version;
+
+        TenantIdentifier app = new TenantIdentifier(null, "a1", null);
+        TenantIdentifier t1 = new TenantIdentifier(null, "a1", "t1");
+        TenantIdentifier t2 = new TenantIdentifier(null, "a1", "t2");
+        TenantIdentifier otherApp = new TenantIdentifier(null, "a2", null);
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), TenantIdentifier.BASE_TENANT, tenantConfig(app));
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), app, tenantConfig(t1));
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), app, tenantConfig(t2));
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), TenantIdentifier.BASE_TENANT,
+                tenantConfig(otherApp));
+
+        MultitenancyHelper.TenantsSnapshot snapshot = MultitenancyHelper.getInstance(process.getProcess())
+                .getTenantsSnapshot();
+        assertTrue(snapshot.version > versionBefore);
+
+        for (TenantIdentifier tenantIdentifier : new TenantIdentifier[]{app, t1, t2, otherApp}) {
+            TenantConfig tenantInfo = Multitenancy.getTenantInfo(process.getProcess(), tenantIdentifier);
+            assertEquals(tenantIdentifier, tenantInfo.tenantIdentifier);
+            assertTrue(Multitenancy.isTenantPresent(process.getProcess(), tenantIdentifier));
+            // callers get their own copy of the config
+            assertNotSame(snapshot.getTenant(tenantIdentifier), tenantInfo);
+            assertEquals(snapshot.getTenant(tenantIdentifier), tenantInfo);
+        }
+
+        TenantIdentifier unknownTenant = new TenantIdentifier(null, "a1", "t3");
+        assertNull(Multitenancy.getTenantInfo(process.getProcess(), unknownTenant));
+        assertFalse(Multitenancy.isTenantPresent(process.getProcess(), unknownTenant));
+
+        // the tenants of an app are in the same order as in the full list
+        TenantConfig[] tenantsOfApp = Multitenancy.getAllTenantsForApp(app.toAppIdentifier(), process.getProcess());
+        assertEquals(3, tenantsOfApp.length);
+        int index = 0;
+        for (TenantConfig tenantConfig : Multitenancy.getAllTenants(process.getProcess())) {
+            if (tenantConfig.tenantIdentifier.toAppIdentifier().equals(app.toAppIdentifier())) {
+                assertEquals(tenantConfig, tenantsOfApp[index++]);
+            }
+        }
+        assertEquals(0, Multitenancy.getAllTenantsForApp(new AppIdentifier(null, "a3"), process.getProcess()).length);
+
+        // the base CUD has the base app, a1 and a2
+        assertEquals(5, Multitenancy.getAllAppsAndTenantsForConnectionUriDomain(null, process.getProcess()).length);
+        assertEquals(0, Multitenancy.getAllAppsAndTenantsForConnectionUriDomain("localhost",
+                process.getProcess()).length);
+
+        // deleting a tenant publishes a new snapshot without changing the old one
+        Multitenancy.deleteTenant(t2, process.getProcess());
+        assertNull(Multitenancy.getTenantInfo(process.getProcess(), t2));
+        assertNotNull(snapshot.getTenant(t2));
+        assertTrue(MultitenancyHelper.getInstance(process.getProcess()).getTenantsSnapshot().version >
+                snapshot.version);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
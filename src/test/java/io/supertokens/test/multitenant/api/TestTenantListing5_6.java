@@ -0,0 +1,163 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.multitenant.api;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import io.supertokens.Main;
+import io.supertokens.ProcessState;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.multitenancy.MultitenancyHelper;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.utils.SemVer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class TestTenantListing5_6 {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static TenantConfig tenantConfig(TenantIdentifier tenantIdentifier) {
+        return new TenantConfig(tenantIdentifier, new EmailPasswordConfig(true), new ThirdPartyConfig(true, null),
+                new PasswordlessConfig(true), null, null, new JsonObject());
+    }
+
+    private static JsonObject listTenants(Main main, boolean refreshFromDb) throws Exception {
+        Map<String, String> params = new HashMap<>();
+        if (refreshFromDb) {
+            params.put("refreshFromDb", "true");
+        }
+        JsonObject response = HttpRequestForTesting.sendGETRequest(main, "",
+                "http://localhost:3567/recipe/multitenancy/tenant/list/v2", params, 1000, 1000, null,
+                SemVer.v5_6.get(), "multitenancy");
+        assertEquals("OK", response.get("status").getAsString());
+        return response;
+    }
+
+    private static boolean hasTenant(JsonObject listResponse, String tenantId) {
+        for (JsonElement tenant : listResponse.get("tenants").getAsJsonArray()) {
+            if (tenant.getAsJsonObject().get("tenantId").getAsString().equals(tenantId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Test
+    public void testThatTenantsAreListedFromMemoryUnlessRefreshIsAskedFor() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+            return;
+        }
+
+        // tenants created via this core are listed right away
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), TenantIdentifier.BASE_TENANT,
+                tenantConfig(new TenantIdentifier(null, null, "t1")));
+        JsonObject response = listTenants(process.getProcess(), false);
+        assertEquals(3, response.entrySet().size());
+        assertTrue(hasTenant(response, "t1"));
+        long loadedFromDbTime = response.get("tenantsLoadedFromDbTime").getAsLong();
+
+        // a tenant added by someone else is not listed until the tenants are loaded from the db again
+        StorageLayer.getMultitenancyStorage(process.getProcess())
+                .createTenant(tenantConfig(new TenantIdentifier(null, null, "t2")));
+        response = listTenants(process.getProcess(), false);
+        assertFalse(hasTenant(response, "t2"));
+        assertEquals(loadedFromDbTime, response.get("tenantsLoadedFromDbTime").getAsLong());
+
+        Thread.sleep(5);
+        response = listTenants(process.getProcess(), true);
+        assertTrue(hasTenant(response, "t1"));
+        assertTrue(hasTenant(response, "t2"));
+        assertTrue(response.get("tenantsLoadedFromDbTime").getAsLong() > loadedFromDbTime);
+
+        // older CDI versions get the same response as before
+        response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/multitenancy/tenant/list/v2", null, 1000, 1000, null,
+                SemVer.v5_5.get(), "multitenancy");
+        assertEquals(2, response.entrySet().size());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void testThatTheLoadedFromDbTimeIsUpdatedWhenTheTenantsAreCheckedToBeCurrent() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+            return;
+        }
+
+        // the first check always reads all the tenants, after which the tenants version is known
+        MultitenancyHelper.getInstance(process.getProcess()).refreshTenantsInCoreIfTenantsChangedInDb();
+        MultitenancyHelper.TenantsSnapshot tenants = MultitenancyHelper.getInstance(process.getProcess())
+                .getTenantsSnapshot();
+        long loadedFromDbTime = listTenants(process.getProcess(), false).get("tenantsLoadedFromDbTime").getAsLong();
+        assertEquals(tenants.getLoadedFromDbTime(), loadedFromDbTime);
+
+        // the tenants version has not changed, so the tenants are not read again, but are known to be current
+        Thread.sleep(5);
+        MultitenancyHelper.getInstance(process.getProcess()).refreshTenantsInCoreIfTenantsChangedInDb();
+        assertSame(tenants, MultitenancyHelper.getInstance(process.getProcess()).getTenantsSnapshot());
+        assertTrue(listTenants(process.getProcess(), false).get("tenantsLoadedFromDbTime").getAsLong()
+                > loadedFromDbTime);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
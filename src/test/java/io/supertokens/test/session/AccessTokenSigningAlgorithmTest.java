@@ -0,0 +1,241 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session;
+
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.ProcessState;
+import io.supertokens.exceptions.TryRefreshTokenException;
+import io.supertokens.featureflag.EE_FEATURES;
+import io.supertokens.featureflag.FeatureFlagTestContent;
+import io.supertokens.jwt.JWTSigningFunctions;
+import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
+import io.supertokens.multitenancy.Multitenancy;
+import io.supertokens.pluginInterface.STORAGE_TYPE;
+import io.supertokens.pluginInterface.multitenancy.*;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.signingkeys.AccessTokenSigningKey;
+import io.supertokens.signingkeys.SigningKeys;
+import io.supertokens.storageLayer.StorageLayer;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class AccessTokenSigningAlgorithmTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static String getAlgFromHeader(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.split("\\.")[0]), StandardCharsets.UTF_8);
+        return JsonParser.parseString(header).getAsJsonObject().get("alg").getAsString();
+    }
+
+    private static String getKidFromHeader(String token) {
+        String header = new String(Base64.getUrlDecoder().decode(token.split("\\.")[0]), StandardCharsets.UTF_8);
+        return JsonParser.parseString(header).getAsJsonObject().get("kid").getAsString();
+    }
+
+    private void testSigningAlgorithm(String algorithm, String kty, String crv) throws Exception {
+        Utils.setValueInConfig("access_token_signing_algorithm", algorithm);
+
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                userDataInJWT, new JsonObject());
+        String token = sessionInfo.accessToken.token;
+        assertEquals(algorithm, getAlgFromHeader(token));
+
+        SessionInformationHolder verifiedSession = Session.getSession(process.getProcess(), token,
+                sessionInfo.antiCsrfToken, false, true, false);
+        assertEquals(sessionInfo.session.handle, verifiedSession.session.handle);
+        assertEquals("value", verifiedSession.session.userDataInJWT.get("key").getAsString());
+
+        // the key that signed the token is published with the parameters of its algorithm
+        String kid = getKidFromHeader(token);
+        JsonObject jwk = null;
+        for (JsonObject key : SigningKeys.getInstance(process.getProcess()).getJWKS()) {
+            if (key.get("kid").getAsString().equals(kid)) {
+                jwk = key;
+            }
+        }
+        assertNotNull(jwk);
+        assertEquals(algorithm, jwk.get("alg").getAsString());
+        assertEquals(kty, jwk.get("kty").getAsString());
+        assertEquals(crv, jwk.get("crv").getAsString());
+        assertEquals(32, Base64.getUrlDecoder().decode(jwk.get("x").getAsString()).length);
+
+        // a token with a changed payload is rejected
+        String[] parts = token.split("\\.");
+        JsonObject payload = JsonParser.parseString(
+                new String(Base64.getUrlDecoder().decode(parts[1]), StandardCharsets.UTF_8)).getAsJsonObject();
+        payload.addProperty("key", "otherValue");
+        String tamperedToken = parts[0] + "." + Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(payload.toString().getBytes(StandardCharsets.UTF_8)) + "." + parts[2];
+        try {
+            Session.getSession(process.getProcess(), tamperedToken, sessionInfo.antiCsrfToken, false, true, false);
+            fail();
+        } catch (TryRefreshTokenException e) {
+            // expected
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void accessTokensCanBeSignedWithES256() throws Exception {
+        testSigningAlgorithm("ES256", "EC", "P-256");
+    }
+
+    @Test
+    public void accessTokensCanBeSignedWithEdDSA() throws Exception {
+        testSigningAlgorithm("EdDSA", "OKP", "Ed25519");
+    }
+
+    @Test
+    public void jwtsAreOnlySignedWithTheRequestedAlgorithm() throws Exception {
+        Utils.setValueInConfig("access_token_signing_algorithm", "ES256");
+
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        // the dynamic keys are ES256, so they can't be used to sign an RS256 JWT
+        try {
+            JWTSigningFunctions.createJWTToken(process.getProcess(), "RS256", new JsonObject(), null, 100, true);
+            fail();
+        } catch (UnsupportedJWTSigningAlgorithmException e) {
+            // expected
+        }
+        String jwt = JWTSigningFunctions.createJWTToken(process.getProcess(), "ES256", new JsonObject(), null, 100,
+                true);
+        assertEquals("ES256", getAlgFromHeader(jwt));
+
+        // static keys are only RS256
+        try {
+            JWTSigningFunctions.createJWTToken(process.getProcess(), "ES256", new JsonObject(), null, 100, false);
+            fail();
+        } catch (UnsupportedJWTSigningAlgorithmException e) {
+            // expected
+        }
+        jwt = JWTSigningFunctions.createJWTToken(process.getProcess(), "RS256", new JsonObject(), null, 100, false);
+        assertEquals("RS256", getAlgFromHeader(jwt));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void invalidSigningAlgorithmIsRejected() throws Exception {
+        Utils.setValueInConfig("access_token_signing_algorithm", "HS256");
+
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+
+        ProcessState.EventAndException e = process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.INIT_FAILURE);
+        assertNotNull(e);
+        assertEquals("'access_token_signing_algorithm' must be one of 'RS256', 'ES256' or 'EdDSA'",
+                e.exception.getCause().getMessage());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void tokensSignedWithThePreviousAlgorithmAreVerifiedAfterChangingIt() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.startIsolatedProcess(args, false);
+        FeatureFlagTestContent.getInstance(process.getProcess())
+                .setKeyValue(FeatureFlagTestContent.ENABLED_FEATURES, new EE_FEATURES[]{EE_FEATURES.MULTI_TENANCY});
+        process.startProcess();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        if (StorageLayer.getStorage(process.getProcess()).getType() != STORAGE_TYPE.SQL) {
+            process.kill();
+            assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+            return;
+        }
+
+        TenantIdentifier tenantIdentifier = new TenantIdentifier(null, "a1", null);
+        AppIdentifier appIdentifier = tenantIdentifier.toAppIdentifier();
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantIdentifier(null, null, null),
+                new TenantConfig(tenantIdentifier, new EmailPasswordConfig(true), new ThirdPartyConfig(true, null),
+                        new PasswordlessConfig(true), null, null, new JsonObject()));
+
+        SessionInformationHolder rsaSession = Session.createNewSession(tenantIdentifier,
+                StorageLayer.getStorage(tenantIdentifier, process.getProcess()), process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+        assertEquals("RS256", getAlgFromHeader(rsaSession.accessToken.token));
+
+        JsonObject config = new JsonObject();
+        config.addProperty("access_token_signing_algorithm", "ES256");
+        Multitenancy.addNewOrUpdateAppOrTenant(process.getProcess(), new TenantIdentifier(null, null, null),
+                new TenantConfig(tenantIdentifier, new EmailPasswordConfig(true), new ThirdPartyConfig(true, null),
+                        new PasswordlessConfig(true), null, null, config));
+
+        // the new key is published right away, but the RS256 key keeps signing new tokens until the overlap period
+        // has passed
+        SessionInformationHolder sessionDuringOverlap = Session.createNewSession(tenantIdentifier,
+                StorageLayer.getStorage(tenantIdentifier, process.getProcess()), process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+        assertEquals("RS256", getAlgFromHeader(sessionDuringOverlap.accessToken.token));
+
+        List<JsonObject> jwks = SigningKeys.getInstance(appIdentifier, process.getProcess()).getJWKS();
+        assertTrue(jwks.stream().anyMatch(jwk -> jwk.get("alg").getAsString().equals("ES256")));
+
+        AccessTokenSigningKey.getInstance(appIdentifier, process.getProcess()).setDynamicSigningKeyOverlapMS(0);
+        SessionInformationHolder es256Session = Session.createNewSession(tenantIdentifier,
+                StorageLayer.getStorage(tenantIdentifier, process.getProcess()), process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+        assertEquals("ES256", getAlgFromHeader(es256Session.accessToken.token));
+
+        // tokens of both algorithms can be verified
+        for (SessionInformationHolder sessionInfo : new SessionInformationHolder[]{rsaSession, es256Session}) {
+            SessionInformationHolder verifiedSession = Session.getSession(appIdentifier, process.getProcess(),
+                    sessionInfo.accessToken.token, sessionInfo.antiCsrfToken, false, true, false);
+            assertEquals(sessionInfo.session.handle, verifiedSession.session.handle);
+        }
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -29,6 +29,7 @@ import io.supertokens.pluginInterface.multitenancy.TenantIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.pluginInterface.session.SessionStorage;
 import io.supertokens.signingkeys.AccessTokenSigningKey;
+import io.supertokens.signingkeys.SigningKeyPairPool;
 import io.supertokens.signingkeys.SigningKeys;
 import io.supertokens.signingkeys.SigningKeys.KeyInfo;
 import io.supertokens.storageLayer.StorageLayer;
@@ -213,4 +214,64 @@ public class AccessTokenSigningKeyTest {
         process.kill();
         assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
     }
+
+    @Test
+    public void nextSigningKeyIsCreatedAheadOfTime() throws Exception {
+        Utils.setValueInConfig("access_token_dynamic_signing_key_update_interval", "0.0025"); // 9 seconds
+
+        String[] args = {"../"};
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+
+        List<KeyInfo> dynamicKeys = SigningKeys.getInstance(process.getProcess()).getDynamicKeys();
+        assertEquals(1, dynamicKeys.size());
+        long firstKeyCreatedAt = dynamicKeys.get(0).createdAtTime;
+
+        // the key has just been created, so there is nothing to do yet
+        AccessTokenSigningKey.getInstance(process.getProcess()).createNextSigningKeyIfNeeded(60000);
+        assertEquals(1, SigningKeys.getInstance(process.getProcess()).getDynamicKeys().size());
+
+        // the first key can sign for 7.2 seconds (9 seconds - 1.8 seconds of overlap), and the next key can be
+        // created at most 2.25 seconds (a quarter of the interval) before that
+        Thread.sleep(Math.max(0, firstKeyCreatedAt + 5500 - System.currentTimeMillis()));
+
+        AccessTokenSigningKey.getInstance(process.getProcess()).createNextSigningKeyIfNeeded(60000);
+        dynamicKeys = SigningKeys.getInstance(process.getProcess()).getDynamicKeys();
+        assertEquals(2, dynamicKeys.size());
+        // the first key is still used for signing until the new one is due
+        assertEquals(firstKeyCreatedAt, dynamicKeys.get(1).createdAtTime);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void signingKeyPairPoolIsRefilled() throws Exception {
+        String[] args = {"../"};
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+
+        SigningKeyPairPool pool = SigningKeyPairPool.getInstance(process.getProcess());
+        pool.refill();
+        assertEquals(4, pool.size());
+
+        assertNotNull(pool.take());
+        assertEquals(3, pool.size());
+
+        pool.refill();
+        assertEquals(4, pool.size());
+
+        // an empty pool still returns a new key pair
+        for (int i = 0; i < 5; i++) {
+            assertNotNull(pool.take());
+        }
+        assertEquals(0, pool.size());
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
 }
@@ -21,16 +21,19 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import io.supertokens.ProcessState.EventAndException;
 import io.supertokens.ProcessState.PROCESS_STATE;
+import io.supertokens.ResourceDistributor;
 import io.supertokens.exceptions.AccessTokenPayloadError;
 import io.supertokens.exceptions.TryRefreshTokenException;
 import io.supertokens.jwt.JWTSigningFunctions;
 import io.supertokens.jwt.exceptions.UnsupportedJWTSigningAlgorithmException;
 import io.supertokens.pluginInterface.exceptions.StorageQueryException;
 import io.supertokens.pluginInterface.exceptions.StorageTransactionLogicException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
 import io.supertokens.pluginInterface.multitenancy.exceptions.TenantOrAppNotFoundException;
 import io.supertokens.session.Session;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.session.accessToken.AccessToken.AccessTokenInfo;
+import io.supertokens.session.accessToken.VerifiedAccessTokenCache;
 import io.supertokens.session.info.SessionInformationHolder;
 import io.supertokens.session.info.TokenInfo;
 import io.supertokens.session.jwt.JWT;
@@ -253,6 +256,60 @@ public class AccessTokenTest {
     }
 
     // good case test
+    @Test
+    public void verifiedAccessTokensAreCachedIfEnabled() throws Exception {
+        String[] args = {"../"};
+        Utils.setValueInConfig("access_token_verification_cache_size", "10");
+        TestingProcess process = TestingProcessManager.start(args);
+        EventAndException e = process.checkOrWaitForEvent(PROCESS_STATE.STARTED);
+        assertNotNull(e);
+        JsonObject jsonObj = new JsonObject();
+        jsonObj.addProperty("key", "value");
+
+        long expiryTime = System.currentTimeMillis() + 60000;
+        TokenInfo newToken = AccessToken.createNewAccessToken(process.getProcess(), "sessionHandle", "userId",
+                "refreshTokenHash1", null, jsonObj, null, expiryTime, AccessToken.getLatestVersion(), false);
+
+        AccessTokenInfo info = AccessToken.getInfoFromAccessToken(process.getProcess(), newToken.token, false);
+        AccessTokenInfo cachedInfo = AccessToken.getInfoFromAccessToken(process.getProcess(), newToken.token, false);
+        assertSame(info, cachedInfo);
+
+        // the anti-csrf check is still done for tokens from the cache
+        try {
+            AccessToken.getInfoFromAccessToken(process.getProcess(), newToken.token, true);
+            fail();
+        } catch (TryRefreshTokenException ex) {
+            assertEquals("Access token does not contain all the information. Maybe the structure has changed?",
+                    ex.getMessage());
+        }
+
+        // a tampered token is not found in the cache, and so still fails verification
+        int changedChar = newToken.token.length() - 2;
+        String tamperedToken = newToken.token.substring(0, changedChar)
+                + (newToken.token.charAt(changedChar) == 'A' ? 'B' : 'A') + newToken.token.substring(changedChar + 1);
+        try {
+            AccessToken.getInfoFromAccessToken(process.getProcess(), tamperedToken, false);
+            fail();
+        } catch (TryRefreshTokenException ignored) {
+        }
+
+        JsonObject stats = VerifiedAccessTokenCache.getInstance(
+                ResourceDistributor.getAppForTesting().toAppIdentifier(), process.getProcess()).getStats();
+        assertEquals(1, stats.get("size").getAsInt());
+        assertEquals(2, stats.get("hits").getAsLong());
+        assertEquals(2, stats.get("misses").getAsLong());
+        assertEquals(0.5, stats.get("hitRate").getAsDouble(), 0.0001);
+
+        // no cache is created for apps that don't exist
+        try {
+            VerifiedAccessTokenCache.getInstance(new AppIdentifier(null, "unknown"), process.getProcess());
+            fail();
+        } catch (TenantOrAppNotFoundException ignored) {
+        }
+
+        process.kill();
+    }
+
     @Test
     public void inputOutputTest() throws Exception {
         String[] args = {"../"};
@@ -0,0 +1,222 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.exceptions.UnauthorisedException;
+import io.supertokens.pluginInterface.multitenancy.AppIdentifier;
+import io.supertokens.session.InFlightRefreshes;
+import io.supertokens.session.Session;
+import io.supertokens.session.accessToken.AccessToken;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.utils.SemVer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+public class InFlightRefreshesTest {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static InFlightRefreshes.Key key(String refreshToken) {
+        return new InFlightRefreshes.Key(new AppIdentifier(null, null), refreshToken, false,
+                AccessToken.getLatestVersion(), false, SemVer.v5_6, null);
+    }
+
+    private static void waitUntilWaiting(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            while (thread.getState() != Thread.State.WAITING) {
+                Thread.sleep(10);
+            }
+        }
+    }
+
+    private static void awaitUninterruptibly(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Test
+    public void concurrentRefreshesWithTheSameKeyAreDoneOnce() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        InFlightRefreshes inFlightRefreshes = InFlightRefreshes.getInstance(process.getProcess());
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch finishLeader = new CountDownLatch(1);
+        AtomicInteger numberOfRefreshes = new AtomicInteger(0);
+        SessionInformationHolder result = new SessionInformationHolder(null, null, null, null, null);
+
+        ExecutorService es = Executors.newFixedThreadPool(5);
+        Future<SessionInformationHolder> leader = es.submit(() -> inFlightRefreshes.refresh(key("token"), () -> {
+            numberOfRefreshes.incrementAndGet();
+            leaderStarted.countDown();
+            awaitUninterruptibly(finishLeader);
+            return result;
+        }));
+        leaderStarted.await();
+
+        List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+        List<Future<SessionInformationHolder>> followers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            followers.add(es.submit(() -> {
+                followerThreads.add(Thread.currentThread());
+                return inFlightRefreshes.refresh(key("token"), () -> {
+                    numberOfRefreshes.incrementAndGet();
+                    return new SessionInformationHolder(null, null, null, null, null);
+                });
+            }));
+        }
+        while (followerThreads.size() < 4) {
+            Thread.sleep(10);
+        }
+        waitUntilWaiting(followerThreads);
+
+        // a refresh with another token is not joined with the one in flight
+        SessionInformationHolder otherResult = inFlightRefreshes.refresh(key("otherToken"), () -> {
+            numberOfRefreshes.incrementAndGet();
+            return new SessionInformationHolder(null, null, null, null, null);
+        });
+        assertNotSame(result, otherResult);
+
+        finishLeader.countDown();
+        assertSame(result, leader.get());
+        for (Future<SessionInformationHolder> follower : followers) {
+            assertSame(result, follower.get());
+        }
+        assertEquals(2, numberOfRefreshes.get());
+
+        // once done, the next refresh with the same token runs again
+        inFlightRefreshes.refresh(key("token"), () -> {
+            numberOfRefreshes.incrementAndGet();
+            return result;
+        });
+        assertEquals(3, numberOfRefreshes.get());
+
+        es.shutdown();
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void callersWaitingForAFailedRefreshGetTheSameError() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        InFlightRefreshes inFlightRefreshes = InFlightRefreshes.getInstance(process.getProcess());
+        CountDownLatch leaderStarted = new CountDownLatch(1);
+        CountDownLatch finishLeader = new CountDownLatch(1);
+
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        Future<SessionInformationHolder> leader = es.submit(() -> inFlightRefreshes.refresh(key("token"), () -> {
+            leaderStarted.countDown();
+            awaitUninterruptibly(finishLeader);
+            throw new UnauthorisedException("Session missing in db or has expired");
+        }));
+        leaderStarted.await();
+
+        List<Thread> followerThreads = new CopyOnWriteArrayList<>();
+        Future<SessionInformationHolder> follower = es.submit(() -> {
+            followerThreads.add(Thread.currentThread());
+            return inFlightRefreshes.refresh(key("token"), () -> {
+                throw new IllegalStateException("should not be called");
+            });
+        });
+        while (followerThreads.isEmpty()) {
+            Thread.sleep(10);
+        }
+        waitUntilWaiting(followerThreads);
+        finishLeader.countDown();
+
+        for (Future<SessionInformationHolder> f : List.of(leader, follower)) {
+            try {
+                f.get();
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof UnauthorisedException);
+                assertEquals("Session missing in db or has expired", e.getCause().getMessage());
+            }
+        }
+
+        es.shutdown();
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void parallelRefreshesOfASessionAllSucceed() throws Exception {
+        String[] args = {"../"};
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+
+        int numberOfRequests = 10;
+        ExecutorService es = Executors.newFixedThreadPool(numberOfRequests);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SessionInformationHolder>> refreshes = new ArrayList<>();
+        for (int i = 0; i < numberOfRequests; i++) {
+            refreshes.add(es.submit(() -> {
+                start.await();
+                return Session.refreshSession(process.getProcess(), sessionInfo.refreshToken.token,
+                        sessionInfo.antiCsrfToken, false, AccessToken.getLatestVersion(), SemVer.v5_6);
+            }));
+        }
+        start.countDown();
+
+        // requests that ran at the same time share a result, so every caller gets a working access token for the
+        // same session
+        for (Future<SessionInformationHolder> refresh : refreshes) {
+            SessionInformationHolder refreshed = refresh.get();
+            assertEquals(sessionInfo.session.handle, refreshed.session.handle);
+            Session.getSession(process.getProcess(), refreshed.accessToken.token, refreshed.antiCsrfToken, false,
+                    true, false);
+        }
+
+        es.shutdown();
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}
@@ -17,9 +17,15 @@
 package io.supertokens.test.session;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import io.supertokens.pluginInterface.jwt.JWTAsymmetricSigningKeyInfo;
 import io.supertokens.session.accessToken.AccessToken;
 import io.supertokens.session.jwt.JWT;
 import io.supertokens.session.jwt.JWT.JWTException;
+import io.supertokens.signingkeys.JWTSigningKey;
+import io.supertokens.signingkeys.ParsedSigningKey;
 import io.supertokens.test.Utils;
 import org.junit.AfterClass;
 import org.junit.Before;
@@ -27,10 +33,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TestRule;
 
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
+import java.util.Base64;
 
 import static org.junit.Assert.*;
 
@@ -161,6 +169,89 @@ public class JWTTest {
                 "JWT header mismatch - kid");
     }
 
+    @Test
+    public void preParseJWTInfoSplitsLikeStringSplit() throws Exception {
+        assertPreParseThrows("a.b.c.d", "Invalid JWT");
+        assertPreParseThrows("a.b.", "Invalid JWT");
+        assertPreParseThrows("a.b", "Invalid JWT");
+        assertPreParseThrows("...", "Invalid JWT");
+
+        String header = io.supertokens.utils.Utils.convertToBase64(
+                "{\"typ\": \"JWT\", \"alg\": \"RS256\", \"kid\": \"key1\"}");
+        JWT.JWTPreParseInfo info = JWT.preParseJWTInfo(header + "..signature..");
+        assertEquals(header, info.header);
+        assertEquals("", info.payload);
+        assertEquals("signature", info.signature);
+        assertEquals("key1", info.kid);
+    }
+
+    @Test
+    public void accessTokensCanBeCreatedAndVerified() throws Exception {
+        for (JWTSigningKey.SupportedAlgorithms algorithm : JWTSigningKey.SupportedAlgorithms.values()) {
+            io.supertokens.utils.Utils.PubPriKey key = io.supertokens.utils.Utils.generateNewPubPriKey(algorithm);
+            ParsedSigningKey signingKey = new ParsedSigningKey(new JWTAsymmetricSigningKeyInfo("d-" + algorithm,
+                    System.currentTimeMillis(), algorithm.name(), key.toString()));
+
+            JsonObject payload = new JsonObject();
+            payload.addProperty("sub", "userId");
+            payload.add("antiCsrfToken", JsonNull.INSTANCE);
+            JsonObject nested = new JsonObject();
+            nested.add("key", JsonNull.INSTANCE);
+            payload.add("nested", nested);
+
+            String token = JWT.createAndSignAccessToken(payload, signingKey, AccessToken.VERSION.V5);
+
+            JWT.JWTPreParseInfo info = JWT.preParseJWTInfo(token);
+            assertEquals(AccessToken.VERSION.V5, info.version);
+            assertEquals("d-" + algorithm, info.kid);
+            assertEquals(algorithm, info.algorithm);
+
+            JsonObject verifiedPayload = JWT.verifyJWTAndGetPayload(info, signingKey.getPublicKey(), algorithm)
+                    .payload;
+            assertEquals("userId", verifiedPayload.get("sub").getAsString());
+            // like auth0's JWT builder, only null claims at the top level are left out
+            assertFalse(verifiedPayload.has("antiCsrfToken"));
+            assertTrue(verifiedPayload.get("nested").getAsJsonObject().get("key").isJsonNull());
+
+            // the header is base64url encoded without padding, like in tokens made by auth0's JWT builder
+            assertFalse(token.contains("="));
+            JsonObject header = JsonParser.parseString(
+                    new String(Base64.getUrlDecoder().decode(info.header), StandardCharsets.UTF_8))
+                    .getAsJsonObject();
+            assertEquals(algorithm.name(), header.get("alg").getAsString());
+            assertEquals("JWT", header.get("typ").getAsString());
+            assertEquals("5", header.get("version").getAsString());
+            assertEquals("d-" + algorithm, header.get("kid").getAsString());
+
+            try {
+                JWT.verifyJWTAndGetPayload(JWT.preParseJWTInfo(token + "x"), signingKey.getPublicKey(), algorithm);
+                fail();
+            } catch (JWTException | IllegalArgumentException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void keysWithTheSameIdGetTheirOwnHeaders() throws Exception {
+        // dynamic key ids are made from the time they are created at, so two apps can have keys with the same id
+        String keyId = "d-" + System.currentTimeMillis();
+        for (JWTSigningKey.SupportedAlgorithms algorithm : JWTSigningKey.SupportedAlgorithms.values()) {
+            io.supertokens.utils.Utils.PubPriKey key = io.supertokens.utils.Utils.generateNewPubPriKey(algorithm);
+            ParsedSigningKey signingKey = new ParsedSigningKey(new JWTAsymmetricSigningKeyInfo(keyId,
+                    System.currentTimeMillis(), algorithm.name(), key.toString()));
+
+            JsonObject payload = new JsonObject();
+            payload.addProperty("sub", "userId");
+            String token = JWT.createAndSignAccessToken(payload, signingKey, AccessToken.VERSION.V5);
+
+            JWT.JWTPreParseInfo info = JWT.preParseJWTInfo(token);
+            assertEquals(keyId, info.kid);
+            assertEquals(algorithm, info.algorithm);
+            JWT.verifyJWTAndGetPayload(info, signingKey.getPublicKey(), algorithm);
+        }
+    }
+
     private static String tokenWithHeader(String headerJson) {
         return io.supertokens.utils.Utils.convertToBase64(headerJson) + ".payload.signature";
     }
@@ -16,6 +16,7 @@
 
 package io.supertokens.test.session;
 
+import com.google.gson.JsonObject;
 import io.supertokens.ProcessState.PROCESS_STATE;
 import io.supertokens.config.Config;
 import io.supertokens.exceptions.UnauthorisedException;
@@ -25,6 +26,7 @@ import io.supertokens.session.info.TokenInfo;
 import io.supertokens.session.refreshToken.RefreshToken;
 import io.supertokens.session.refreshToken.RefreshToken.RefreshTokenInfo;
 import io.supertokens.session.refreshToken.RefreshToken.TYPE;
+import io.supertokens.session.refreshToken.RefreshTokenKey;
 import io.supertokens.test.TestingProcessManager;
 import io.supertokens.test.TestingProcessManager.TestingProcess;
 import io.supertokens.test.Utils;
@@ -39,9 +41,12 @@ import javax.crypto.AEADBadTagException;
 import javax.crypto.BadPaddingException;
 import javax.crypto.IllegalBlockSizeException;
 import javax.crypto.NoSuchPaddingException;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
 import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 
 import static org.junit.Assert.*;
@@ -93,14 +98,80 @@ public class RefreshTokenTest {
         fail();
     }
 
+    @Test
+    public void encryptAndDecryptWorksWithGivenKey() throws Exception {
+        byte[] keyBytes = new byte[32];
+        new SecureRandom().nextBytes(keyBytes);
+        SecretKey key = new SecretKeySpec(keyBytes, "AES");
+        String message = "I am to be encrypted and then decrypted";
+
+        String enc = io.supertokens.utils.Utils.encrypt(message, key);
+        // a new nonce is used every time
+        assertNotEquals(enc, io.supertokens.utils.Utils.encrypt(message, key));
+        assertEquals(message, io.supertokens.utils.Utils.decrypt(enc, key));
+
+        new SecureRandom().nextBytes(keyBytes);
+        try {
+            io.supertokens.utils.Utils.decrypt(enc, new SecretKeySpec(keyBytes, "AES"));
+            fail();
+        } catch (AEADBadTagException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void refreshTokensCreatedBeforeV3CanStillBeUsed() throws Exception {
+        String[] args = {"../"};
+        TestingProcess process = TestingProcessManager.startIsolatedProcess(args);
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STARTED));
+
+        // this is how V2 tokens were created
+        String nonce = io.supertokens.utils.Utils.hashSHA256("nonce");
+        JsonObject payload = new JsonObject();
+        payload.addProperty("sessionHandle", "sessionHandle");
+        payload.addProperty("userId", "userId");
+        payload.addProperty("parentRefreshTokenHash1", "parentRefreshTokenHash1");
+        payload.addProperty("nonce", nonce);
+        payload.addProperty("antiCsrfToken", "antiCsrfToken");
+        String key = RefreshTokenKey.getInstance(process.getProcess()).getKey();
+        String token = io.supertokens.utils.Utils.encrypt(payload.toString(), key) + "." + nonce + ".V2";
+
+        RefreshTokenInfo infoFromToken = RefreshToken.getInfoFromRefreshToken(process.getProcess(), token);
+        assertSame(TYPE.FREE_OPTIMISED, infoFromToken.type);
+        assertEquals("sessionHandle", infoFromToken.sessionHandle);
+        assertEquals("userId", infoFromToken.userId);
+        assertEquals("parentRefreshTokenHash1", infoFromToken.parentRefreshTokenHash1);
+        assertEquals("antiCsrfToken", infoFromToken.antiCsrfToken);
+
+        // a V2 token can't be read as a V3 token, since they are encrypted with different keys
+        try {
+            RefreshToken.getInfoFromRefreshToken(process.getProcess(),
+                    token.substring(0, token.length() - 2) + "V3");
+            fail();
+        } catch (UnauthorisedException e) {
+            // expected
+        }
+
+        TokenInfo newToken = RefreshToken.createNewRefreshToken(process.getProcess(), "sessionHandle", "userId",
+                null, null);
+        assertTrue(newToken.token.endsWith(".V3"));
+        assertSame(TYPE.FREE_OPTIMISED_CACHED_KEY,
+                RefreshToken.getInfoFromRefreshToken(process.getProcess(), newToken.token).type);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(PROCESS_STATE.STOPPED));
+    }
+
     @Test
     public void freePaidVersionTest() {
         assertEquals("V0", TYPE.FREE.toString());
         assertEquals("V1", TYPE.PAID.toString());
         assertEquals("V2", TYPE.FREE_OPTIMISED.toString());
+        assertEquals("V3", TYPE.FREE_OPTIMISED_CACHED_KEY.toString());
         assertSame(TYPE.fromString("V0"), TYPE.FREE);
         assertSame(TYPE.fromString("V1"), TYPE.PAID);
         assertSame(TYPE.fromString("V2"), TYPE.FREE_OPTIMISED);
+        assertSame(TYPE.fromString("V3"), TYPE.FREE_OPTIMISED_CACHED_KEY);
         assertNull(TYPE.fromString("random"));
     }
 
@@ -133,7 +204,7 @@ public class RefreshTokenTest {
         assertEquals("sessionHandle", infoFromToken.sessionHandle);
         assertEquals("antiCsrfToken", infoFromToken.antiCsrfToken);
         assertNull(infoFromToken.parentRefreshTokenHash2);
-        assertSame(infoFromToken.type, TYPE.FREE_OPTIMISED);
+        assertSame(infoFromToken.type, TYPE.FREE_OPTIMISED_CACHED_KEY);
         // -100000 for some grace period for creation and checking above
         assertTrue(tokenInfo.expiry > System.currentTimeMillis()
                 + Config.getConfig(process.getProcess()).getRefreshTokenValidityInMillis() - 100000);
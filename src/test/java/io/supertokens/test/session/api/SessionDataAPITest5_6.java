@@ -0,0 +1,203 @@
+/*
+ *    Copyright (c) 2025, VRAI Labs and/or its affiliates. All rights reserved.
+ *
+ *    This software is licensed under the Apache License, Version 2.0 (the
+ *    "License") as published by the Apache Software Foundation.
+ *
+ *    You may not use this file except in compliance with the License. You may
+ *    obtain a copy of the License at http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ *    WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ *    License for the specific language governing permissions and limitations
+ *    under the License.
+ */
+
+package io.supertokens.test.session.api;
+
+import com.google.gson.JsonObject;
+import io.supertokens.ProcessState;
+import io.supertokens.session.Session;
+import io.supertokens.session.info.SessionInformationHolder;
+import io.supertokens.test.TestingProcessManager;
+import io.supertokens.test.Utils;
+import io.supertokens.test.httpRequest.HttpRequestForTesting;
+import io.supertokens.utils.SemVer;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TestRule;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.*;
+
+public class SessionDataAPITest5_6 {
+    @Rule
+    public TestRule watchman = Utils.getOnFailure();
+
+    @AfterClass
+    public static void afterTesting() {
+        Utils.afterTesting();
+    }
+
+    @Before
+    public void beforeEach() {
+        Utils.reset();
+    }
+
+    private static String getSessionVersion(TestingProcessManager.TestingProcess process, String sessionHandle)
+            throws Exception {
+        HashMap<String, String> map = new HashMap<>();
+        map.put("sessionHandle", sessionHandle);
+        JsonObject response = HttpRequestForTesting.sendGETRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session", map, 1000, 1000, null, SemVer.v5_6.get(), "session");
+        assertEquals("OK", response.get("status").getAsString());
+        return response.get("sessionVersion").getAsString();
+    }
+
+    private static JsonObject updateSessionData(TestingProcessManager.TestingProcess process, String sessionHandle,
+                                                JsonObject userDataInDatabase, String sessionVersion)
+            throws Exception {
+        JsonObject putRequestBody = new JsonObject();
+        putRequestBody.addProperty("sessionHandle", sessionHandle);
+        putRequestBody.add("userDataInDatabase", userDataInDatabase);
+        if (sessionVersion != null) {
+            putRequestBody.addProperty("sessionVersion", sessionVersion);
+        }
+        return HttpRequestForTesting.sendJsonPUTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/session/data", putRequestBody, 1000, 1000, null,
+                SemVer.v5_6.get(), "session");
+    }
+
+    @Test
+    public void updatingWithTheCurrentVersionWorks() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+        String sessionHandle = sessionInfo.session.handle;
+        String sessionVersion = getSessionVersion(process, sessionHandle);
+
+        JsonObject userDataInDatabase = new JsonObject();
+        userDataInDatabase.addProperty("key", "value");
+        JsonObject response = updateSessionData(process, sessionHandle, userDataInDatabase, sessionVersion);
+        assertEquals(2, response.entrySet().size());
+        assertEquals("OK", response.get("status").getAsString());
+
+        // the returned version is the version of the session as it is now
+        String newSessionVersion = response.get("sessionVersion").getAsString();
+        assertNotEquals(sessionVersion, newSessionVersion);
+        assertEquals(newSessionVersion, getSessionVersion(process, sessionHandle));
+
+        // the access token payload is part of the version too
+        JsonObject userDataInJWT = new JsonObject();
+        userDataInJWT.addProperty("key", "value");
+        JsonObject putRequestBody = new JsonObject();
+        putRequestBody.addProperty("sessionHandle", sessionHandle);
+        putRequestBody.add("userDataInJWT", userDataInJWT);
+        putRequestBody.addProperty("sessionVersion", newSessionVersion);
+        response = HttpRequestForTesting.sendJsonPUTRequest(process.getProcess(), "",
+                "http://localhost:3567/recipe/jwt/data", putRequestBody, 1000, 1000, null,
+                SemVer.v5_6.get(), "session");
+        assertEquals("OK", response.get("status").getAsString());
+        assertNotEquals(newSessionVersion, response.get("sessionVersion").getAsString());
+        assertEquals(response.get("sessionVersion").getAsString(), getSessionVersion(process, sessionHandle));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void updatingWithAnOldVersionIsRejected() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+        String sessionHandle = sessionInfo.session.handle;
+        String sessionVersion = getSessionVersion(process, sessionHandle);
+
+        JsonObject firstUpdate = new JsonObject();
+        firstUpdate.addProperty("key", "first");
+        JsonObject response = updateSessionData(process, sessionHandle, firstUpdate, sessionVersion);
+        assertEquals("OK", response.get("status").getAsString());
+        String currentSessionVersion = response.get("sessionVersion").getAsString();
+
+        // a second caller that read the session before the first update does not overwrite it
+        JsonObject secondUpdate = new JsonObject();
+        secondUpdate.addProperty("key", "second");
+        response = updateSessionData(process, sessionHandle, secondUpdate, sessionVersion);
+        assertEquals(2, response.entrySet().size());
+        assertEquals("SESSION_VERSION_CONFLICT_ERROR", response.get("status").getAsString());
+        assertEquals(currentSessionVersion, response.get("sessionVersion").getAsString());
+        assertEquals(firstUpdate, Session.getSessionData(process.getProcess(), sessionHandle));
+
+        // and can retry with the version it got back
+        response = updateSessionData(process, sessionHandle, secondUpdate,
+                response.get("sessionVersion").getAsString());
+        assertEquals("OK", response.get("status").getAsString());
+        assertEquals(secondUpdate, Session.getSessionData(process.getProcess(), sessionHandle));
+
+        // without a version, the update is done as before
+        response = updateSessionData(process, sessionHandle, firstUpdate, null);
+        assertEquals("OK", response.get("status").getAsString());
+        assertEquals(firstUpdate, Session.getSessionData(process.getProcess(), sessionHandle));
+        assertEquals(response.get("sessionVersion").getAsString(), getSessionVersion(process, sessionHandle));
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+
+    @Test
+    public void onlyOneOfConcurrentUpdatesWithTheSameVersionWins() throws Exception {
+        String[] args = {"../"};
+
+        TestingProcessManager.TestingProcess process = TestingProcessManager.start(args);
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STARTED));
+
+        SessionInformationHolder sessionInfo = Session.createNewSession(process.getProcess(), "userId",
+                new JsonObject(), new JsonObject());
+        String sessionHandle = sessionInfo.session.handle;
+        String sessionVersion = getSessionVersion(process, sessionHandle);
+
+        int numberOfUpdates = 10;
+        ExecutorService executor = Executors.newFixedThreadPool(numberOfUpdates);
+        List<Future<JsonObject>> responses = new ArrayList<>();
+        for (int i = 0; i < numberOfUpdates; i++) {
+            JsonObject userDataInDatabase = new JsonObject();
+            userDataInDatabase.addProperty("key", "value" + i);
+            responses.add(executor.submit(
+                    () -> updateSessionData(process, sessionHandle, userDataInDatabase, sessionVersion)));
+        }
+
+        int succeeded = 0;
+        for (Future<JsonObject> response : responses) {
+            String status = response.get().get("status").getAsString();
+            if (status.equals("OK")) {
+                succeeded++;
+                assertEquals(response.get().get("sessionVersion").getAsString(),
+                        getSessionVersion(process, sessionHandle));
+            } else {
+                assertEquals("SESSION_VERSION_CONFLICT_ERROR", status);
+            }
+        }
+        executor.shutdown();
+        assertEquals(1, succeeded);
+
+        process.kill();
+        assertNotNull(process.checkOrWaitForEvent(ProcessState.PROCESS_STATE.STOPPED));
+    }
+}